@@ -0,0 +1,151 @@
+package nl.bioinf.benchmark;
+
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.HeaderIndexLocation;
+import nl.bioinf.model.MethylationArray;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates methylation data shaped like data/large_methylation_dataset.csv: an id, gene, chr, fpos, tpos and strand
+ * column followed by one column per sample, beta values with 2 decimals and about 5% missing values (NA). The same
+ * seed always gives the same data, so every benchmark run measures the same input.
+ */
+public class SyntheticMethylationData {
+    // Amount of probes on the Illumina MethylationEPIC array
+    public static final int EPIC_ROW_COUNT = 866_836;
+    public static final double DEFAULT_NA_RATE = 0.05;
+    public static final int SAMPLE_INDEX = 6;
+    private static final String[] CHROMOSOMES = {
+            "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15", "16", "17", "18", "19",
+            "20", "21", "22", "X", "Y"};
+    private final int rowCount;
+    private final int sampleCount;
+    private final double naRate;
+    private final long seed;
+
+    /**
+     *
+     * @param rowCount    amount of probes (rows), up to {@link #EPIC_ROW_COUNT} for an EPIC sized file
+     * @param sampleCount amount of samples (columns)
+     * @param naRate      fraction of beta values that is missing
+     * @param seed        seed of the random values
+     */
+    public SyntheticMethylationData(int rowCount, int sampleCount, double naRate, long seed) {
+        this.rowCount = rowCount;
+        this.sampleCount = sampleCount;
+        this.naRate = naRate;
+        this.seed = seed;
+    }
+
+    public SyntheticMethylationData(int rowCount, int sampleCount) {
+        this(rowCount, sampleCount, DEFAULT_NA_RATE, 42);
+    }
+
+    public String getHeader() {
+        StringBuilder header = new StringBuilder("id,gene,chr,fpos,tpos,strand");
+        for (int sample = 1; sample <= sampleCount; sample++) {
+            header.append(",Sample").append(sample);
+        }
+        return header.toString();
+    }
+
+    /**
+     * @return names of all samples, in the order of the columns
+     */
+    public String[] getSamples() {
+        String[] samples = new String[sampleCount];
+        for (int sample = 0; sample < sampleCount; sample++) {
+            samples[sample] = "Sample" + (sample + 1);
+        }
+        return samples;
+    }
+
+    /**
+     * @param count amount of genes
+     * @return names of genes that occur in the data
+     */
+    public String[] getGenes(int count) {
+        String[] genes = new String[count];
+        for (int gene = 0; gene < count; gene++) {
+            genes[gene] = "GENE" + gene;
+        }
+        return genes;
+    }
+
+    /**
+     * Writes the data to a csv file, like the input files of the tool
+     *
+     * @param filePath path to write the file to
+     * @throws IOException for instances where file writing failed
+     */
+    public void writeCsv(Path filePath) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder line = new StringBuilder();
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writer.write(getHeader());
+            writer.newLine();
+            for (int row = 0; row < rowCount; row++) {
+                line.setLength(0);
+                line.append(createLocation(row, random));
+                for (int sample = 0; sample < sampleCount; sample++) {
+                    double value = nextBetaValue(random);
+                    line.append(Double.isNaN(value) ? "NA" : Double.toString(value));
+                    line.append(sample < sampleCount - 1 ? "," : "");
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Builds the data directly in memory, it holds the same rows as the file of {@link #writeCsv(Path)}
+     *
+     * @return {@link MethylationArray} holding all rows
+     */
+    public MethylationArray createArray() {
+        Random random = new Random(seed);
+        List<String> locations = new ArrayList<>(rowCount);
+        BetaValueMatrix betaValues = new BetaValueMatrix(sampleCount, rowCount);
+        double[] rowValues = new double[sampleCount];
+        for (int row = 0; row < rowCount; row++) {
+            locations.add(createLocation(row, random));
+            for (int sample = 0; sample < sampleCount; sample++) {
+                rowValues[sample] = nextBetaValue(random);
+            }
+            betaValues.addRow(rowValues);
+        }
+
+        MethylationArray data = new MethylationArray();
+        data.setSampleIndex(SAMPLE_INDEX);
+        data.setHeader(getHeader(), SAMPLE_INDEX);
+        data.setSamples(List.of(getSamples()));
+        data.setIndexInformation(new HeaderIndexLocation(getHeader()));
+        data.addData(locations, betaValues);
+        return data;
+    }
+
+    /**
+     * Genes repeat every 20000 rows, so every gene has several probes once the data is larger than that
+     */
+    private String createLocation(int row, Random random) {
+        int position = random.nextInt(250_000_000);
+        return String.format("cg%08d,GENE%d,%s,%d,%d,%s,", row, row % 20_000,
+                CHROMOSOMES[random.nextInt(CHROMOSOMES.length)], position, position, random.nextBoolean() ? "+" : "-");
+    }
+
+    private double nextBetaValue(Random random) {
+        if (random.nextDouble() < naRate) {
+            return Double.NaN;
+        }
+        return random.nextInt(101) / 100.0;
+    }
+}
@@ -0,0 +1,88 @@
+package nl.bioinf.comparing;
+
+import nl.bioinf.benchmark.SyntheticMethylationData;
+import nl.bioinf.filtering.MethylationDataFilter;
+import nl.bioinf.io.ProbeResultWriter;
+import nl.bioinf.model.ComparisonResults;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.StatisticalMethods;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the comparers on generated data: all pairs of samples, regions and two groups of samples per probe.
+ * Rows with missing values are removed first, as the sample and region comparers skip incomplete samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ComparerBenchmark {
+    private static final String[] ALL_METHODS = {"t-test", "spearman", "wilcoxon-test", "welch-test"};
+    @Param({"5000", "100000"})
+    public int rows;
+    @Param({"10"})
+    public int samples;
+    @Param({"1", "4"})
+    public int threads;
+    private MethylationArray data;
+    private String[] sampleNames;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = new SyntheticMethylationData(rows, samples).createArray();
+        MethylationDataFilter.removeNA(data);
+        sampleNames = data.getSamples().toArray(String[]::new);
+        outputFile = Files.createTempFile("bval-benchmark", ".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public ComparisonResults sampleComparer() {
+        return new MethylationArraySampleComparer(data, sampleNames, ALL_METHODS, threads)
+                .performStatisticalMethods();
+    }
+
+    @Benchmark
+    public ComparisonResults chromosomeComparer() {
+        // Chromosomes have different amounts of probes, which only the welch-test allows
+        return new MethylationArrayPosComparer(data, new String[]{"welch-test"},
+                MethylationDataFilter.PosFilterType.CHROMOSOME, new String[]{"1", "2", "X"})
+                .performStatisticalMethods();
+    }
+
+    @Benchmark
+    public long probeComparer() throws IOException {
+        List<String> group1 = Arrays.asList(sampleNames).subList(0, samples / 2);
+        List<String> group2 = Arrays.asList(sampleNames).subList(samples / 2, samples);
+        try (ProbeResultWriter writer = new ProbeResultWriter(outputFile, data.getAnnotationHeader(),
+                "group1", "group2")) {
+            return new MethylationArrayProbeComparer(data, group1, group2,
+                    StatisticalMethods.get("welch-test"), threads).performStatisticalMethods(writer);
+        }
+    }
+
+    @Benchmark
+    public double[][] spearmanCorrelationMatrix() {
+        return new SpearmanCorrelationMatrix(data, sampleNames, threads).computeCorrelations();
+    }
+}
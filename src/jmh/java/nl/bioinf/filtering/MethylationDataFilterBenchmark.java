@@ -0,0 +1,98 @@
+package nl.bioinf.filtering;
+
+import nl.bioinf.benchmark.SyntheticMethylationData;
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.MethylationArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every filter of {@link MethylationDataFilter}. The filters work in place, so every invocation gets its own
+ * copy of the generated data, copying is not part of the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MethylationDataFilterBenchmark {
+    @Param({"5000", "100000"})
+    public int rows;
+    @Param({"50"})
+    public int samples;
+    private SyntheticMethylationData generator;
+    private MethylationArray template;
+    private MethylationArray data;
+    private String[] sampleFilter;
+    private String[] geneFilter;
+
+    @Setup(Level.Trial)
+    public void setupTrial() {
+        generator = new SyntheticMethylationData(rows, samples);
+        template = generator.createArray();
+        String[] allSamples = generator.getSamples();
+        sampleFilter = new String[allSamples.length / 2];
+        System.arraycopy(allSamples, 0, sampleFilter, 0, sampleFilter.length);
+        geneFilter = generator.getGenes(100);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        List<String> locations = new ArrayList<>(template.getRowCount());
+        double[][] columns = new double[template.getSampleCount()][];
+        for (int row = 0; row < template.getRowCount(); row++) {
+            locations.add(template.getLocation(row));
+        }
+        for (int sample = 0; sample < columns.length; sample++) {
+            // Returns a copy of the column, so the template itself is never filtered
+            columns[sample] = template.getSampleBetaValues(sample);
+        }
+
+        data = new MethylationArray();
+        data.setSampleIndex(template.getSampleIndex());
+        data.setHeader(generator.getHeader(), SyntheticMethylationData.SAMPLE_INDEX);
+        data.setSamples(template.getSamples());
+        data.setIndexInformation(template.getIndexInformation());
+        data.addData(locations, BetaValueMatrix.fromColumns(columns, template.getRowCount()));
+    }
+
+    @Benchmark
+    public MethylationArray removeNA() {
+        MethylationDataFilter.removeNA(data);
+        return data;
+    }
+
+    @Benchmark
+    public MethylationArray filterBySample() {
+        MethylationDataFilter.filterBySample(data, sampleFilter);
+        return data;
+    }
+
+    @Benchmark
+    public MethylationArray filterByGene() {
+        MethylationDataFilter.filterByPos(data, MethylationDataFilter.PosFilterType.GENE, geneFilter);
+        return data;
+    }
+
+    @Benchmark
+    public MethylationArray filterByChromosome() {
+        MethylationDataFilter.filterByPos(data, MethylationDataFilter.PosFilterType.CHROMOSOME,
+                new String[]{"1", "X"});
+        return data;
+    }
+
+    @Benchmark
+    public MethylationArray filterByCutOff() {
+        MethylationDataFilter.filterByCutOff(data, 0.5f, MethylationDataFilter.CutoffType.upper);
+        return data;
+    }
+}
@@ -0,0 +1,77 @@
+package nl.bioinf.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BetaValueParser} with the previous way of parsing beta values (Double.parseDouble followed by a
+ * range check), on cells that look like those of a typical input file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BetaValueParserBenchmark {
+    private static final int CELL_COUNT = 4096;
+    private String[] cells;
+    private ByteBuffer buffer;
+    private int[] cellStarts;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        cells = new String[CELL_COUNT];
+        StringBuilder line = new StringBuilder();
+        cellStarts = new int[CELL_COUNT + 1];
+
+        for (int i = 0; i < CELL_COUNT; i++) {
+            // Roughly 1 in 50 values is missing, the others have 2 to 8 decimals
+            cells[i] = random.nextInt(50) == 0 ? "NA"
+                    : String.format(Locale.ROOT, "%." + (2 + random.nextInt(7)) + "f", random.nextDouble());
+            cellStarts[i] = line.length();
+            line.append(cells[i]).append(',');
+        }
+        cellStarts[CELL_COUNT] = line.length();
+        buffer = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void parseDouble(Blackhole blackhole) {
+        for (String cell : cells) {
+            if (cell.equals("NA")) {
+                blackhole.consume(Double.NaN);
+                continue;
+            }
+            double betaVal = Double.parseDouble(cell);
+            if (betaVal < 0 || betaVal > 1) {
+                throw new IllegalArgumentException();
+            }
+            blackhole.consume(betaVal);
+        }
+    }
+
+    @Benchmark
+    public void betaValueParserString(Blackhole blackhole) {
+        for (String cell : cells) {
+            blackhole.consume(BetaValueParser.parse(cell));
+        }
+    }
+
+    @Benchmark
+    public void betaValueParserBuffer(Blackhole blackhole) {
+        for (int i = 0; i < CELL_COUNT; i++) {
+            blackhole.consume(BetaValueParser.parse(buffer, cellStarts[i], cellStarts[i + 1] - 1));
+        }
+    }
+}
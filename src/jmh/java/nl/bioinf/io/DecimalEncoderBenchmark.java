@@ -0,0 +1,68 @@
+package nl.bioinf.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DecimalEncoder} with the previous way of writing beta values in {@link FilterFileWriter}
+ * (String.format per value, appended to a StringBuilder), on one row of 4096 beta values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DecimalEncoderBenchmark {
+    private static final int VALUE_COUNT = 4096;
+    private double[] values;
+    private DecimalEncoder encoder;
+    private byte[] buffer;
+    private StringBuilder builder;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        values = new double[VALUE_COUNT];
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            // Roughly 1 in 50 values is missing
+            values[i] = random.nextInt(50) == 0 ? Double.NaN : random.nextDouble();
+        }
+        encoder = new DecimalEncoder(2);
+        buffer = new byte[VALUE_COUNT * (encoder.getMaxLength() + 1)];
+        builder = new StringBuilder();
+    }
+
+    @Benchmark
+    public void stringFormat(Blackhole blackhole) {
+        builder.setLength(0);
+        for (double value : values) {
+            if (Double.isNaN(value)) {
+                builder.append(Double.NaN);
+            } else {
+                builder.append(String.format(Locale.US, "%.2f", value));
+            }
+            builder.append(',');
+        }
+        blackhole.consume(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void decimalEncoder(Blackhole blackhole) {
+        int length = 0;
+        for (double value : values) {
+            length = encoder.encode(value, buffer, length);
+            buffer[length++] = ',';
+        }
+        blackhole.consume(length);
+        blackhole.consume(buffer);
+    }
+}
@@ -0,0 +1,67 @@
+package nl.bioinf.io;
+
+import nl.bioinf.benchmark.SyntheticMethylationData;
+import nl.bioinf.comparing.MethylationArraySampleComparer;
+import nl.bioinf.filtering.MethylationDataFilter;
+import nl.bioinf.model.ComparisonResults;
+import nl.bioinf.model.MethylationArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing filtered data and comparison results. The comparison results are those of all pairs of samples,
+ * computed once before the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileWriterBenchmark {
+    private static final String[] METHODS = {"t-test", "spearman", "welch-test"};
+    @Param({"5000", "100000"})
+    public int rows;
+    @Param({"50"})
+    public int samples;
+    private MethylationArray data;
+    private ComparisonResults comparisonResults;
+    private Path outputFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = new SyntheticMethylationData(rows, samples).createArray();
+        outputFile = Files.createTempFile("bval-benchmark", ".csv");
+
+        // The comparers skip samples with missing values, so the comparisons are made on the complete rows
+        MethylationArray completeData = new SyntheticMethylationData(rows, samples).createArray();
+        MethylationDataFilter.removeNA(completeData);
+        comparisonResults = new MethylationArraySampleComparer(completeData,
+                completeData.getSamples().toArray(String[]::new), METHODS, 4).performStatisticalMethods();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void filterFileWriter() throws IOException {
+        FilterFileWriter.writeFile(data, outputFile);
+    }
+
+    @Benchmark
+    public void comparisonFileWriter() throws IOException {
+        new ComparisonFileWriter(comparisonResults, outputFile).writeData();
+    }
+}
@@ -0,0 +1,77 @@
+package nl.bioinf.io;
+
+import nl.bioinf.benchmark.SyntheticMethylationData;
+import nl.bioinf.model.MethylationArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a generated input file with every reader of the tool. Use -p rows=866836 for an EPIC sized file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MethylationFileReaderBenchmark {
+    @Param({"5000", "100000"})
+    public int rows;
+    @Param({"50"})
+    public int samples;
+    private Path csvFile;
+    private Path bvalFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        csvFile = Files.createTempFile("bval-benchmark", ".csv");
+        bvalFile = Files.createTempFile("bval-benchmark", ".bval");
+        SyntheticMethylationData generator = new SyntheticMethylationData(rows, samples);
+        generator.writeCsv(csvFile);
+        BvalFileWriter.writeFile(generator.createArray(), bvalFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(bvalFile);
+    }
+
+    @Benchmark
+    public MethylationArray methylationFileReader() throws IOException {
+        MethylationFileReader reader = new MethylationFileReader();
+        reader.readCSV(csvFile, SyntheticMethylationData.SAMPLE_INDEX);
+        return reader.getData();
+    }
+
+    @Benchmark
+    public MethylationArray mappedMethylationFileReader() throws IOException {
+        MappedMethylationFileReader reader = new MappedMethylationFileReader();
+        reader.readCSV(csvFile, SyntheticMethylationData.SAMPLE_INDEX);
+        return reader.getData();
+    }
+
+    @Benchmark
+    public MethylationArray parallelMethylationFileReader() throws IOException {
+        ParallelMethylationFileReader reader = new ParallelMethylationFileReader(4);
+        reader.readCSV(csvFile, SyntheticMethylationData.SAMPLE_INDEX);
+        return reader.getData();
+    }
+
+    @Benchmark
+    public MethylationArray bvalFileReader() throws IOException {
+        BvalFileReader reader = new BvalFileReader();
+        reader.readFile(bvalFile);
+        return reader.getData();
+    }
+}
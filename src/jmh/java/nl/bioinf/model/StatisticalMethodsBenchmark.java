@@ -0,0 +1,67 @@
+package nl.bioinf.model;
+
+import nl.bioinf.benchmark.SyntheticMethylationData;
+import nl.bioinf.filtering.MethylationDataFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Measures every entry of {@link StatisticalMethods} on one pair of generated samples.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StatisticalMethodsBenchmark {
+    @Param({"5000", "100000"})
+    public int rows;
+    // Every built-in method, setup fails when a method is missing, see checkMeasuredMethods
+    @Param({"t-test", "spearman", "wilcoxon-test", "welch-test", "mann-whitney-test"})
+    public String method;
+    private BiFunction<double[], double[], Double> statisticalMethod;
+    private double[] sample1;
+    private double[] sample2;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        checkMeasuredMethods();
+        MethylationArray data = new SyntheticMethylationData(rows, 2).createArray();
+        MethylationDataFilter.removeNA(data);
+        sample1 = data.getSampleBetaValues(0);
+        sample2 = data.getSampleBetaValues(1);
+        statisticalMethod = new StatisticalMethods().getStatisticalMethods().get(method);
+    }
+
+    @Benchmark
+    public double run() {
+        return statisticalMethod.apply(sample1, sample2);
+    }
+
+    /**
+     * Fails when the methods of the method parameter differ from {@link StatisticalMethods#validNames()}, so a new
+     * provider is not silently left out of the benchmark
+     */
+    private static void checkMeasuredMethods() {
+        List<String> measured;
+        try {
+            measured = List.of(StatisticalMethodsBenchmark.class.getField("method").getAnnotation(Param.class).value());
+        } catch (NoSuchFieldException ex) {
+            throw new IllegalStateException(ex);
+        }
+        List<String> validNames = StatisticalMethods.validNames();
+        if (!measured.containsAll(validNames) || !validNames.containsAll(measured)) {
+            throw new IllegalStateException(String.format("The benchmarked methods %s do not match the available " +
+                    "methods %s", measured, validNames));
+        }
+    }
+}
@@ -27,6 +27,17 @@ public class ChrArgumentCheck implements UserArgumentsCheck {
         this.chromosomes = methylationArray.getChromosomes();
     }
 
+    /**
+     * Sets passed chromosome arguments as class variable, without checking whether they are present in the data.
+     * Used when the data is streamed and the chromosomes are not known in advance.
+     *
+     * @param filterChr String array user argument, that should contain one or more chromosome
+     */
+    public ChrArgumentCheck(String[] filterChr) {
+        this.filterChr = filterChr;
+        this.chromosomes = null;
+    }
+
     /**
      * Checks whether chromosome argument(s) are either a number between 1-23 or X/Y.
      *
@@ -62,7 +73,7 @@ public class ChrArgumentCheck implements UserArgumentsCheck {
                     throw ex;
                 }
             }
-            if (!chromosomes.contains(chr)) {
+            if (chromosomes != null && !chromosomes.contains(chr)) {
                 logger.error("The following chromosome is not present in the data: '{}'. Please only pass " +
                         "chromosomes that are present in the input file.", chr);
                 throw new IllegalArgumentException();
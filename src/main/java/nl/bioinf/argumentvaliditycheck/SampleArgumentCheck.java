@@ -5,7 +5,8 @@ import nl.bioinf.model.UserArgumentsCheck;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Checks validity of sample argument(s) passed by user
@@ -13,7 +14,7 @@ import java.util.List;
 public class SampleArgumentCheck implements UserArgumentsCheck {
     private static final Logger logger = LogManager.getLogger();
     private final String[] filterSamples;
-    private final List<String> samples;
+    private final Set<String> samples;
 
     /**
      * Sets passed sample filter argument(s) and all samples present in dataset as class variable
@@ -23,7 +24,7 @@ public class SampleArgumentCheck implements UserArgumentsCheck {
      */
     public SampleArgumentCheck(String[] filterSamples, MethylationArray methylationArray) {
         this.filterSamples = filterSamples;
-        samples = methylationArray.getSamples();
+        samples = new HashSet<>(methylationArray.getSamples());
 
     }
 
@@ -1,29 +1,38 @@
 package nl.bioinf.comparing;
 
 import nl.bioinf.filtering.MethylationDataFilter;
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.ComparisonResultSink;
 import nl.bioinf.model.ComparisonResults;
 import nl.bioinf.model.MethylationArray;
 import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PairContext;
+import nl.bioinf.statistics.PreparedSample;
+import nl.bioinf.statistics.StatisticalMethod;
 import org.apache.commons.math3.exception.NumberIsTooSmallException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
-import java.util.function.BiFunction;
 import java.util.stream.DoubleStream;
 
 
 /**
- * Compare class that will compare the beta values of either genes OR chromosomes via statistical tests.
+ * Compare class that will compare the beta values of either genes OR chromosomes via statistical tests. Either all
+ * probes of the regions are compared, or the probes are first summarized to one value per sample by a
+ * {@link RegionAggregator} so the regions are compared sample by sample.
  */
 public class MethylationArrayPosComparer {
     private static final Logger logger = LogManager.getLogger();
-    // Key: name of statistical tests
-    // Value: Bifunction that can be used to run the statistical test
-    private final StatisticalMethods statisticalMethods;
+    // Provider of every method, in the order of methods
+    private final StatisticalMethod[] statisticalMethods;
     private final MethylationArray data;
     private final String[] methods;
     private final String[] posArguments;
+    // Summarizes the regions before comparing, null to compare all probes
+    private final RegionAggregator regionAggregator;
     MethylationDataFilter.PosFilterType posFilterType;
     ComparisonResults statisticalData;
 
@@ -36,11 +45,27 @@ public class MethylationArrayPosComparer {
      */
     public MethylationArrayPosComparer(MethylationArray data, String[] methods,
                                        MethylationDataFilter.PosFilterType posFilterType, String[] posArguments) {
+        this(data, methods, posFilterType, posArguments, null);
+    }
+
+    /**
+     *
+     * @param data             {@link MethylationArray}
+     * @param methods          statistical methods acquired through CLI.
+     * @param posFilterType    used to log weather chromosomes or genes are compared.
+     * @param posArguments     array if either chromosomes or genes to compare
+     * @param regionAggregator {@link RegionAggregator} that summarizes every region to one value per sample before
+     *                         comparing, null to compare all probes of the regions
+     */
+    public MethylationArrayPosComparer(MethylationArray data, String[] methods,
+                                       MethylationDataFilter.PosFilterType posFilterType, String[] posArguments,
+                                       RegionAggregator regionAggregator) {
         this.data = data;
+        this.regionAggregator = regionAggregator;
         this.methods = methods;
         statisticalData = new ComparisonResults(methods);
         this.posFilterType = posFilterType;
-        statisticalMethods = new StatisticalMethods();
+        statisticalMethods = StatisticalMethods.get(methods);
         this.posArguments = posArguments;
     }
 
@@ -51,50 +76,161 @@ public class MethylationArrayPosComparer {
      * @return {@link ComparisonResults} that holds the data of the compared action.
      */
     public ComparisonResults performStatisticalMethods() {
+        try {
+            performStatisticalMethods(statisticalData);
+        } catch (IOException ex) {
+            // ComparisonResults keeps the results in memory, it does not throw
+            throw new UncheckedIOException(ex);
+        }
+        return statisticalData;
+    }
+
+    /**
+     * Compare the beta values of either genes OR chromosomes, based on user passed argument(s),
+     * via different statistical tests, passing the results of every pair to the sink as soon as it is compared
+     *
+     * @param sink {@link ComparisonResultSink} that receives the results, in the order of the pairs
+     * @throws IOException for instances where the sink failed to write the results
+     */
+    public void performStatisticalMethods(ComparisonResultSink sink) throws IOException {
         logger.info("Starting comparing on {}", posFilterType.getName());
+        double[][] posBetaValues = regionAggregator == null ? collectPosBetaValues() : aggregatePosBetaValues();
+        PreparedSample[] preparedRegions = prepareRegions(posBetaValues);
+
         for (int i = 0; i < posArguments.length - 1; i++) {
             for (int j = i + 1; j < posArguments.length; j++) {
-                double[] betaValues1 = data.getPosBetaValues(posArguments[i]);
-                double[] betaValues2 = data.getPosBetaValues(posArguments[j]);
+                double[] betaValues1 = posBetaValues[i];
+                double[] betaValues2 = posBetaValues[j];
                 logger.debug("Sizes of beta values: {} = {}, {} = {}",
                         posArguments[i], betaValues1.length,
                         posArguments[j], betaValues2.length);
                 validateValuesAndStatistics(betaValues2, betaValues1);
-                if (DoubleStream.of(betaValues1).anyMatch(Double::isNaN) ||
+                if (regionAggregator != null) {
+                    // A sample without any value in one of the regions only leaves out that sample
+                    double[][] completeSamples = dropMissingSamples(betaValues1, betaValues2);
+                    if (completeSamples[0].length < 2) {
+                        logger.warn("Less than 2 samples have values in both {} and {}, excluding {} vs {}.",
+                                posArguments[i], posArguments[j], posArguments[i], posArguments[j]);
+                        continue;
+                    }
+                    betaValues1 = completeSamples[0];
+                    betaValues2 = completeSamples[1];
+                } else if (DoubleStream.of(betaValues1).anyMatch(Double::isNaN) ||
                         DoubleStream.of(betaValues2).anyMatch(Double::isNaN)) {
                     logger.warn("Found invalid value(s) (missing value/NaN) in 1 of the samples in the comparison: {} vs {}, " +
                                     "please compare samples without missing values. Continuing comparisons, " +
                                     "excluding {} vs {}. Run with -NA or --remove-na to remove all NA values.",
-                            data.getSamples().get(i), data.getSamples().get(j), data.getSamples().get(i), data.getSamples().get(j));
+                            posArguments[i], posArguments[j], posArguments[i], posArguments[j]);
                     continue;
                 }
-                String compareName = String.format("%s,%s", posArguments[i], posArguments[j]);
-                statisticalData.addNewSampleVsSample(compareName);
-
-                for (String method : methods) {
+                double[] results = new double[methods.length];
+                PairContext pairContext = StatisticalMethods.localPairContext();
+                if (preparedRegions != null && preparedRegions[i] != null && preparedRegions[j] != null) {
+                    pairContext.reset(preparedRegions[i], preparedRegions[j]);
+                } else {
+                    pairContext.reset(betaValues1, betaValues2);
+                }
+                for (int method = 0; method < methods.length; method++) {
                     try {
-                        BiFunction<double[], double[], Double> func = statisticalMethods.getStatisticalMethods().get(method);
-                        double methodOutput = func.apply(betaValues1, betaValues2);
-                        statisticalData.addToData(method, methodOutput);
+                        results[method] = statisticalMethods[method].compute(pairContext);
                     } catch (NumberIsTooSmallException e) {
 
                         logger.error("Invalid {} found: {} or {}. Exiting application!",
-                                posFilterType.getName(), posArguments[1], posArguments[j]);
+                                posFilterType.getName(), posArguments[i], posArguments[j]);
                         throw new IllegalArgumentException();
                     }
                 }
+                sink.accept(posArguments[i], posArguments[j], results);
             }
         }
         logger.info("Successfully compared the different {}s", posFilterType.getName());
-        return statisticalData;
+    }
+
+    /**
+     * Prepares every region without missing values once when one of the methods is vectorizable, ranking them only
+     * when one of the methods needs the ranks, so this is not repeated for every pair a region is in
+     *
+     * @param posBetaValues beta values of every region
+     * @return prepared regions, null for regions with missing values, or null when none of the methods is
+     * vectorizable
+     */
+    private PreparedSample[] prepareRegions(double[][] posBetaValues) {
+        if (Arrays.stream(statisticalMethods).noneMatch(StatisticalMethod::isVectorizable)) {
+            return null;
+        }
+        boolean rank = Arrays.stream(statisticalMethods).anyMatch(StatisticalMethod::needsRanks);
+        PreparedSample[] preparedRegions = new PreparedSample[posBetaValues.length];
+        for (int i = 0; i < posBetaValues.length; i++) {
+            if (DoubleStream.of(posBetaValues[i]).noneMatch(Double::isNaN)) {
+                preparedRegions[i] = PreparedSample.prepare(posBetaValues[i], rank);
+            }
+        }
+        return preparedRegions;
+    }
+
+    /**
+     * @return beta values of all probes of every region, row by row. Every region is looked up once, the lookup only
+     * visits the rows of the region.
+     */
+    private double[][] collectPosBetaValues() {
+        double[][] posBetaValues = new double[posArguments.length][];
+        for (int i = 0; i < posArguments.length; i++) {
+            posBetaValues[i] = posFilterType == MethylationDataFilter.PosFilterType.GENE
+                    ? data.getGeneBetaValues(posArguments[i])
+                    : data.getChromosomeBetaValues(posArguments[i]);
+        }
+        return posBetaValues;
+    }
+
+    /**
+     * @return summary of every sample of every region, all regions have one value per sample
+     */
+    private double[][] aggregatePosBetaValues() {
+        BetaValueMatrix regionValues = regionAggregator.aggregate(posFilterType, posArguments);
+        double[][] posBetaValues = new double[posArguments.length][regionValues.getSampleCount()];
+        for (int i = 0; i < posArguments.length; i++) {
+            regionValues.copyRow(i, posBetaValues[i]);
+        }
+        return posBetaValues;
+    }
+
+    /**
+     * Leaves out the samples that are missing (NaN) in either of two aggregated regions
+     *
+     * @param betaValues1 summary of every sample of the first region
+     * @param betaValues2 summary of every sample of the second region, in the same order
+     * @return values of the samples that are present in both regions, first those of the first region, then those
+     * of the second. The input arrays when no sample is missing.
+     */
+    private static double[][] dropMissingSamples(double[] betaValues1, double[] betaValues2) {
+        int count = 0;
+        for (int sample = 0; sample < betaValues1.length; sample++) {
+            if (!Double.isNaN(betaValues1[sample]) && !Double.isNaN(betaValues2[sample])) {
+                count++;
+            }
+        }
+        if (count == betaValues1.length) {
+            return new double[][]{betaValues1, betaValues2};
+        }
+        logger.debug("Leaving out {} samples with missing values", betaValues1.length - count);
+        double[][] completeSamples = new double[2][count];
+        int index = 0;
+        for (int sample = 0; sample < betaValues1.length; sample++) {
+            if (!Double.isNaN(betaValues1[sample]) && !Double.isNaN(betaValues2[sample])) {
+                completeSamples[0][index] = betaValues1[sample];
+                completeSamples[1][index] = betaValues2[sample];
+                index++;
+            }
+        }
+        return completeSamples;
     }
 
     private void validateValuesAndStatistics(double[] betaValues2, double[] betaValues1) {
 
         if (betaValues2.length != betaValues1.length &&
-                !Arrays.stream(methods).allMatch(s -> s.equals("welch-test"))) {
+                Arrays.stream(statisticalMethods).anyMatch(StatisticalMethod::isPairable)) {
             logger.error("Used a statistical method that requires the same sample size in data. " +
-                    "Please use the [welch-test] to work around this");
+                    "Please use one of {} to work around this", StatisticalMethods.unpairableNames());
             throw new IllegalArgumentException();
         }
     }
@@ -0,0 +1,260 @@
+package nl.bioinf.comparing;
+
+import nl.bioinf.io.ProbeResultWriter;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PairContext;
+import nl.bioinf.statistics.StatisticalMethod;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares two groups of samples for every probe (row) separately, with a {@link StatisticalMethod} that is not
+ * pairable. The probes are split into chunks that are tested on multiple threads, finished chunks are written in
+ * order, so only a few chunks of results are kept in memory. Missing values are left out of the test of the probe
+ * they belong to.
+ */
+public class MethylationArrayProbeComparer {
+    private static final Logger logger = LogManager.getLogger();
+    // Amount of probes per chunk
+    private static final int CHUNK_SIZE = 16384;
+    // Amount of chunks per thread that may be tested or waiting to be written at the same time
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    private final MethylationArray data;
+    private final StatisticalMethod probeTest;
+    private final int threads;
+    private final int[] group1Columns;
+    private final int[] group2Columns;
+
+    /**
+     *
+     * @param data          {@link MethylationArray}
+     * @param group1Samples names of the samples in the first group
+     * @param group2Samples names of the samples in the second group
+     * @param probeTest     statistical test to perform per probe, a method that is not pairable
+     * @param threads       amount of threads used to test the probes
+     * @throws IllegalArgumentException whenever a sample is not found in the data, a group is empty or the test is
+     *                                  pairable
+     */
+    public MethylationArrayProbeComparer(MethylationArray data, List<String> group1Samples,
+                                         List<String> group2Samples, StatisticalMethod probeTest, int threads)
+            throws IllegalArgumentException {
+        if (probeTest.isPairable()) {
+            logger.error("The groups can not be compared per probe with '{}', please use one of {}.",
+                    probeTest.getName(), StatisticalMethods.unpairableNames());
+            throw new IllegalArgumentException();
+        }
+        this.data = data;
+        this.probeTest = probeTest;
+        this.threads = Math.max(threads, 1);
+
+        Map<String, Integer> sampleColumns = new HashMap<>();
+        List<String> dataSamples = data.getSamples();
+        for (int column = dataSamples.size() - 1; column >= 0; column--) {
+            sampleColumns.put(dataSamples.get(column), column);
+        }
+        group1Columns = findColumns(group1Samples, sampleColumns);
+        group2Columns = findColumns(group2Samples, sampleColumns);
+    }
+
+    /**
+     * Tests every probe and writes the results in the order of the probes
+     *
+     * @param writer {@link ProbeResultWriter} to write the result of every probe to
+     * @return amount of probes that were tested
+     * @throws IOException for instances where file writing failed
+     */
+    public long performStatisticalMethods(ProbeResultWriter writer) throws IOException {
+        logger.info("Starting {} on {} probes, {} vs {} samples", probeTest.getName(), data.getRowCount(),
+                group1Columns.length, group2Columns.length);
+        // Views are taken on this thread, taking the first view may trim the beta value matrix
+        double[][] group1Views = columnViews(group1Columns);
+        double[][] group2Views = columnViews(group2Columns);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Deque<Future<ChunkResult>> chunks = new ArrayDeque<>();
+        int maxChunksInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+
+        try {
+            for (int chunkStart = 0; chunkStart < data.getRowCount(); chunkStart += CHUNK_SIZE) {
+                int start = chunkStart;
+                int end = Math.min(chunkStart + CHUNK_SIZE, data.getRowCount());
+                chunks.add(executor.submit(() -> testChunk(group1Views, group2Views, start, end)));
+                if (chunks.size() >= maxChunksInFlight) {
+                    writeChunk(chunks.removeFirst().get(), writer);
+                }
+            }
+            while (!chunks.isEmpty()) {
+                writeChunk(chunks.removeFirst().get(), writer);
+            }
+
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(ex.getCause());
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.info("Successfully performed {} on {} probes", probeTest.getName(), data.getRowCount());
+        return data.getRowCount();
+    }
+
+    /**
+     * Tests all probes of one chunk. The values of the chunk are first copied per sample into contiguous slices, so
+     * the probes are gathered from a few small arrays instead of from the full columns.
+     *
+     * @param group1Views beta values of every sample of the first group
+     * @param group2Views beta values of every sample of the second group
+     * @param start       index of the first probe of the chunk
+     * @param end         index directly after the last probe of the chunk
+     * @return {@link ChunkResult} holding the result of every probe of the chunk
+     */
+    private ChunkResult testChunk(double[][] group1Views, double[][] group2Views, int start, int end) {
+        ChunkResult result = new ChunkResult(start, end - start);
+        double[][] group1Slices = copySlices(group1Views, start, end);
+        double[][] group2Slices = copySlices(group2Views, start, end);
+        // Non-missing values of one probe per group, one array for every amount of values. Reused for every probe
+        // of the chunk, so the samples passed to the test have the exact length without allocating per probe.
+        double[][] group1Values = new double[group1Columns.length + 1][];
+        double[][] group2Values = new double[group2Columns.length + 1][];
+        double[] values = new double[Math.max(group1Columns.length, group2Columns.length)];
+        PairContext pair = StatisticalMethods.localPairContext();
+
+        for (int i = 0; i < end - start; i++) {
+            double[] sample1 = copyValues(values, gatherValues(group1Slices, i, values, 0), group1Values);
+            double[] sample2 = copyValues(values, gatherValues(group2Slices, i, values, 0), group2Values);
+            pair.reset(sample1, sample2);
+            result.count1[i] = sample1.length;
+            result.count2[i] = sample2.length;
+            result.mean1[i] = pair.getMean1();
+            result.mean2[i] = pair.getMean2();
+            try {
+                result.statistic[i] = probeTest.statistic(pair);
+                result.pValue[i] = probeTest.compute(pair);
+            } catch (IllegalArgumentException ex) {
+                // Too few values left in one of the groups for this probe
+                result.statistic[i] = Double.NaN;
+                result.pValue[i] = Double.NaN;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param values gathered values
+     * @param count  amount of gathered values
+     * @param bySize arrays to reuse, index count holds the array of count values
+     * @return array of exactly count values holding the gathered values
+     */
+    private static double[] copyValues(double[] values, int count, double[][] bySize) {
+        if (bySize[count] == null) {
+            bySize[count] = new double[count];
+        }
+        System.arraycopy(values, 0, bySize[count], 0, count);
+        return bySize[count];
+    }
+
+    private double[][] columnViews(int[] columns) {
+        double[][] views = new double[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            views[i] = data.getSampleBetaValuesView(columns[i]);
+        }
+        return views;
+    }
+
+    /**
+     * @return the values [start, end) of every column, one array per column
+     */
+    private static double[][] copySlices(double[][] columns, int start, int end) {
+        double[][] slices = new double[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            slices[i] = Arrays.copyOfRange(columns[i], start, end);
+        }
+        return slices;
+    }
+
+    /**
+     * Copies the non-missing values of one probe of the given slices into values, starting at offset
+     *
+     * @param slices values of the chunk, one array per sample
+     * @param index  index of the probe within the chunk
+     * @return amount of values copied
+     */
+    private static int gatherValues(double[][] slices, int index, double[] values, int offset) {
+        int count = 0;
+        for (double[] slice : slices) {
+            double value = slice[index];
+            if (!Double.isNaN(value)) {
+                values[offset + count++] = value;
+            }
+        }
+        return count;
+    }
+
+    private void writeChunk(ChunkResult result, ProbeResultWriter writer) throws IOException {
+        for (int i = 0; i < result.count1.length; i++) {
+            writer.writeRow(data.getLocation(result.start + i), result.count1[i], result.count2[i],
+                    result.mean1[i], result.mean2[i], result.statistic[i], result.pValue[i]);
+        }
+    }
+
+    private static int[] findColumns(List<String> samples, Map<String, Integer> sampleColumns)
+            throws IllegalArgumentException {
+        if (samples.isEmpty()) {
+            logger.error("No samples found for one of the groups, every group needs at least one sample.");
+            throw new IllegalArgumentException();
+        }
+        int[] columns = new int[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            Integer column = sampleColumns.get(samples.get(i));
+            if (column == null) {
+                logger.error("Sample not found in the data, exiting code. Did not compare following " +
+                        "sample: '{}'.", samples.get(i));
+                throw new IllegalArgumentException();
+            }
+            columns[i] = column;
+        }
+        return columns;
+    }
+
+    /**
+     * Results of all probes of one chunk, stored per column
+     */
+    private static class ChunkResult {
+        private final int start;
+        private final int[] count1;
+        private final int[] count2;
+        private final double[] mean1;
+        private final double[] mean2;
+        private final double[] statistic;
+        private final double[] pValue;
+
+        ChunkResult(int start, int size) {
+            this.start = start;
+            count1 = new int[size];
+            count2 = new int[size];
+            mean1 = new double[size];
+            mean2 = new double[size];
+            statistic = new double[size];
+            pValue = new double[size];
+        }
+    }
+}
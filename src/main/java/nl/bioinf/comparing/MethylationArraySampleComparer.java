@@ -1,28 +1,44 @@
 package nl.bioinf.comparing;
 
+import nl.bioinf.model.ComparisonResultSink;
 import nl.bioinf.model.ComparisonResults;
 import nl.bioinf.model.MethylationArray;
-import nl.bioinf.model.MethylationData;
 import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PairContext;
+import nl.bioinf.statistics.PreparedSample;
+import nl.bioinf.statistics.StatisticalMethod;
+import nl.bioinf.utils.ParallelTasks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.BiFunction;
-import java.util.stream.DoubleStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
- * Compare class that will compare the beta values of samples via statistical tests
+ * Compare class that will compare the beta values of samples via statistical tests. The beta values of every sample
+ * are extracted once, and prepared once for the vectorizable methods (e.g. ranked for spearman), after which the
+ * sample pairs can be compared on multiple threads. The pairs are compared in
+ * batches, every finished batch is passed to a {@link ComparisonResultSink} in the order of the pairs, regardless of
+ * the amount of threads.
  */
 public class MethylationArraySampleComparer {
     private static final Logger logger = LogManager.getLogger();
+    // Amount of pairs per thread that are compared before their results are passed on
+    private static final int PAIRS_PER_THREAD = 64;
 
-    // Key: name of statistical tests
-    // Value: Bifunction that can be used to run the statistical test
-    private final Map<String, BiFunction<double[], double[], Double>> statisticalMethods = new StatisticalMethods().getStatisticalMethods();
+    // Provider of every method, in the order of methods
+    private final StatisticalMethod[] statisticalMethods;
     private final MethylationArray data;
     private final String[] samples;
     private final String[] methods;
+    private final int threads;
     ComparisonResults statisticalData;
 
     /**
@@ -32,8 +48,21 @@ public class MethylationArraySampleComparer {
      * @param methods Statistical methods used to compare the beta values
      */
     public MethylationArraySampleComparer(MethylationArray data, String[] samples, String[] methods) {
+        this(data, samples, methods, 1);
+    }
+
+    /**
+     *
+     * @param data    {@link MethylationArray}
+     * @param samples Array of samples that will be compared to each other
+     * @param methods Statistical methods used to compare the beta values
+     * @param threads amount of threads used to compare the sample pairs
+     */
+    public MethylationArraySampleComparer(MethylationArray data, String[] samples, String[] methods, int threads) {
         this.samples = samples;
         this.methods = methods;
+        statisticalMethods = StatisticalMethods.get(methods);
+        this.threads = Math.max(threads, 1);
         statisticalData = new ComparisonResults(methods);
         this.data = data;
     }
@@ -46,55 +75,180 @@ public class MethylationArraySampleComparer {
      * @throws IllegalArgumentException Whenever samples are not found in the data
      */
     public ComparisonResults performStatisticalMethods() throws IllegalArgumentException {
-        int invalidSample = -1;
-
-        if (samples != null) {
-            for (int i = 0; i < samples.length; i++) {
-                for (int j = i + 1; j < samples.length; j++) {
-                    int sample1 = data.getSamples().indexOf(samples[i]);
-                    int sample2 = data.getSamples().indexOf(samples[j]);
-
-                    if (sample1 == invalidSample || sample2 == invalidSample) {
-                        logger.error("Sample not found in the data, exiting code. Did not compare following " +
-                                "samples: '{}' vs '{}'.", samples[i], samples[j]);
-                        throw new IllegalArgumentException();
-                    }
+        if (samples == null) {
+            return null;
+        }
+        try {
+            performStatisticalMethods(statisticalData);
+        } catch (IOException ex) {
+            // ComparisonResults keeps the results in memory, it does not throw
+            throw new UncheckedIOException(ex);
+        }
+        return statisticalData;
+    }
 
-                    double[] sample1BetaValues = getBetaValues(sample1);
-                    double[] sample2BetaValues = getBetaValues(sample2);
-                    if (DoubleStream.of(sample1BetaValues).anyMatch(Double::isNaN) ||
-                            DoubleStream.of(sample2BetaValues).anyMatch(Double::isNaN)) {
-                        logger.warn("Found invalid value(s) (missing value/NaN) in 1 of the samples in the comparison: {} vs {}, " +
-                                        "please compare samples without missing values. Continuing comparisons, " +
-                                        "excluding {} vs {}. Run with -NA or --remove-na to remove all NA values.",
-                                samples[i], samples[j], samples[i], samples[j]);
-                        continue;
-                    }
-                    String sampleNames = String.format("%s,%s", samples[i], samples[j]);
-                    statisticalData.addNewSampleVsSample(sampleNames);
+    /**
+     * Performs statistical methods on the beta values ({@link MethylationArray}) for all samples given in the
+     * constructor, passing the results of every pair to the sink as soon as its batch is finished.
+     *
+     * @param sink {@link ComparisonResultSink} that receives the results, in the order of the pairs
+     * @throws IllegalArgumentException Whenever samples are not found in the data
+     * @throws IOException              for instances where the sink failed to write the results
+     */
+    public void performStatisticalMethods(ComparisonResultSink sink) throws IllegalArgumentException, IOException {
+        if (samples == null) {
+            return;
+        }
 
-                    for (String statisticalMethod : methods) {
-                        BiFunction<double[], double[], Double> func = statisticalMethods.get(statisticalMethod);
-                        double methodOutput = func.apply(sample1BetaValues, sample2BetaValues);
-                        statisticalData.addToData(statisticalMethod, methodOutput);
+        double[][] sampleBetaValues = extractSamples();
+        List<int[]> pairs = determinePairs(sampleBetaValues);
+        int batchSize = threads * PAIRS_PER_THREAD;
+        double[][] results = new double[Math.min(batchSize, pairs.size())][];
 
+        logger.debug("Comparing {} sample pairs on {} threads", pairs.size(), threads);
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            PreparedSample[] preparedSamples = prepareSamples(pool, sampleBetaValues);
+            for (int batchStart = 0; batchStart < pairs.size(); batchStart += batchSize) {
+                List<int[]> batch = pairs.subList(batchStart, Math.min(batchStart + batchSize, pairs.size()));
+                if (pool == null || batch.size() < 2) {
+                    for (int pair = 0; pair < batch.size(); pair++) {
+                        results[pair] = comparePair(sampleBetaValues, preparedSamples, batch.get(pair));
                     }
+                } else {
+                    comparePairsInParallel(pool, sampleBetaValues, preparedSamples, batch, results);
                 }
+
+                for (int pair = 0; pair < batch.size(); pair++) {
+                    sink.accept(samples[batch.get(pair)[0]], samples[batch.get(pair)[1]], results[pair]);
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
+        }
 
-            logger.info("Successfully performed statistical-methods: {}, on samples {}.", methods, samples);
-            return statisticalData;
+        logger.info("Successfully performed statistical-methods: {}, on samples {}.", methods, samples);
+    }
+
+    /**
+     * Looks up every sample once and extracts its beta values, samples with missing values are not extracted
+     *
+     * @return beta values per sample, in the order of the samples passed to the constructor, null for samples that
+     * contain missing values
+     * @throws IllegalArgumentException Whenever samples are not found in the data
+     */
+    private double[][] extractSamples() throws IllegalArgumentException {
+        Map<String, Integer> sampleColumns = new HashMap<>();
+        List<String> dataSamples = data.getSamples();
+        for (int column = dataSamples.size() - 1; column >= 0; column--) {
+            // Iterating backwards keeps the first column of duplicate names, like indexOf
+            sampleColumns.put(dataSamples.get(column), column);
         }
-        return null;
+
+        double[][] sampleBetaValues = new double[samples.length][];
+        for (int i = 0; i < samples.length; i++) {
+            Integer column = sampleColumns.get(samples[i]);
+            if (column == null) {
+                if (samples.length > 1) {
+                    logger.error("Sample not found in the data, exiting code. Did not compare following " +
+                            "sample: '{}'.", samples[i]);
+                    throw new IllegalArgumentException();
+                }
+                continue;
+            }
+            if (!data.sampleHasNA(column)) {
+                sampleBetaValues[i] = data.getSampleBetaValuesView(column);
+            }
+        }
+        return sampleBetaValues;
+    }
+
+    /**
+     * Determines all pairs of samples to compare, skipping pairs where one of the samples contains missing values
+     *
+     * @param sampleBetaValues beta values per sample, null for samples that contain missing values
+     * @return List of pairs, each holding the indexes of both samples in the samples array
+     */
+    private List<int[]> determinePairs(double[][] sampleBetaValues) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < samples.length; i++) {
+            for (int j = i + 1; j < samples.length; j++) {
+                if (sampleBetaValues[i] == null || sampleBetaValues[j] == null) {
+                    logger.warn("Found invalid value(s) (missing value/NaN) in 1 of the samples in the comparison: {} vs {}, " +
+                                    "please compare samples without missing values. Continuing comparisons, " +
+                                    "excluding {} vs {}. Run with -NA or --remove-na to remove all NA values.",
+                            samples[i], samples[j], samples[i], samples[j]);
+                    continue;
+                }
+                pairs.add(new int[]{i, j});
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Prepares every sample once when one of the methods is vectorizable, ranking the samples only when one of the
+     * methods needs the ranks, so this is not repeated for every pair a sample is in
+     *
+     * @param pool             pool of {@link #threads} threads, null to prepare the samples on the calling thread
+     * @param sampleBetaValues beta values per sample, null for samples that contain missing values
+     * @return prepared samples, null for samples that contain missing values, or null when none of the methods is
+     * vectorizable
+     */
+    private PreparedSample[] prepareSamples(ForkJoinPool pool, double[][] sampleBetaValues) {
+        if (Arrays.stream(statisticalMethods).noneMatch(StatisticalMethod::isVectorizable)) {
+            return null;
+        }
+        boolean rank = Arrays.stream(statisticalMethods).anyMatch(StatisticalMethod::needsRanks);
+        PreparedSample[] preparedSamples = new PreparedSample[sampleBetaValues.length];
+        IntStream samplesToPrepare = IntStream.range(0, sampleBetaValues.length)
+                .filter(sample -> sampleBetaValues[sample] != null);
+        if (pool == null) {
+            samplesToPrepare.forEach(sample ->
+                    preparedSamples[sample] = PreparedSample.prepare(sampleBetaValues[sample], rank));
+        } else {
+            ParallelTasks.run(pool, () -> samplesToPrepare.parallel().forEach(sample ->
+                    preparedSamples[sample] = PreparedSample.prepare(sampleBetaValues[sample], rank)));
+        }
+        return preparedSamples;
+    }
+
+    /**
+     * Compares all pairs on the pool, every pair writes its results to its own index
+     *
+     * @param pool             pool of {@link #threads} threads
+     * @param sampleBetaValues beta values per sample
+     * @param preparedSamples  prepared samples, null when the samples were not prepared
+     * @param pairs            pairs of sample indexes to compare
+     * @param results          array to store the results of every pair in
+     */
+    private void comparePairsInParallel(ForkJoinPool pool, double[][] sampleBetaValues,
+                                        PreparedSample[] preparedSamples, List<int[]> pairs, double[][] results) {
+        ParallelTasks.run(pool, () -> IntStream.range(0, pairs.size()).parallel()
+                .forEach(pair -> results[pair] = comparePair(sampleBetaValues, preparedSamples, pairs.get(pair))));
     }
 
-    private double[] getBetaValues(int sample) {
-        double[] betaValues = new double[data.getData().size()];
-        int index = 0;
-        for (MethylationData lineData : data.getData()) {
-            betaValues[index] = lineData.betaValues().get(sample);
-            index++;
+    /**
+     * Runs all statistical methods on one pair of samples, sharing their preprocessing
+     *
+     * @param sampleBetaValues beta values per sample
+     * @param preparedSamples  prepared samples, null when the samples were not prepared
+     * @param pair             indexes of both samples
+     * @return result of every method, in the order of the methods
+     */
+    private double[] comparePair(double[][] sampleBetaValues, PreparedSample[] preparedSamples, int[] pair) {
+        double[] pairResults = new double[methods.length];
+        PairContext pairContext = StatisticalMethods.localPairContext();
+        if (preparedSamples != null) {
+            pairContext.reset(preparedSamples[pair[0]], preparedSamples[pair[1]]);
+        } else {
+            pairContext.reset(sampleBetaValues[pair[0]], sampleBetaValues[pair[1]]);
+        }
+        for (int method = 0; method < methods.length; method++) {
+            pairResults[method] = statisticalMethods[method].compute(pairContext);
         }
-        return betaValues;
+        return pairResults;
     }
 }
@@ -0,0 +1,154 @@
+package nl.bioinf.comparing;
+
+import nl.bioinf.filtering.MethylationDataFilter;
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.PositionIndex;
+import nl.bioinf.utils.ParallelTasks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Collapses the probes of every chromosome or gene to one value per sample, e.g. the mean beta value of all probes
+ * of a gene in a sample. The result is a region x sample matrix that is much smaller than the data, so regions can be
+ * compared sample by sample instead of on all of their probes. The rows of every region are looked up in the
+ * {@link PositionIndex} of the data, the regions are summarized in parallel.
+ */
+public class RegionAggregator {
+    private static final Logger logger = LogManager.getLogger();
+    // Share of the values left out at both ends by the trimmed mean, like mean(x, trim = 0.1) of R
+    private static final double TRIM = 0.1;
+    private final MethylationArray data;
+    private final Summary summary;
+    private final int threads;
+
+    /**
+     *
+     * @param data    {@link MethylationArray}
+     * @param summary {@link Summary} of the beta values of a region in one sample
+     * @param threads amount of threads used to summarize the regions
+     */
+    public RegionAggregator(MethylationArray data, Summary summary, int threads) {
+        this.data = data;
+        this.summary = summary;
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Summarizes the beta values of every sample in every region, missing values are left out
+     *
+     * @param posFilterType whether the regions are chromosomes or genes
+     * @param regions       names of the chromosomes or genes, in any case
+     * @return {@link BetaValueMatrix} with one row per region, in the order of the regions, and one column per sample
+     * of the data. NaN when all values of a sample in a region are missing.
+     * @throws IllegalArgumentException whenever a region is not present in the data
+     */
+    public BetaValueMatrix aggregate(MethylationDataFilter.PosFilterType posFilterType, String[] regions)
+            throws IllegalArgumentException {
+        logger.info("Summarizing the {}s using the {}", posFilterType.getName(), summary.getName());
+        PositionIndex positionIndex = data.getPositionIndex();
+        int[][] regionRows = new int[regions.length][];
+        for (int region = 0; region < regions.length; region++) {
+            regionRows[region] = posFilterType == MethylationDataFilter.PosFilterType.GENE
+                    ? positionIndex.getGeneRows(regions[region])
+                    : positionIndex.getChromosomeRows(regions[region]);
+            if (regionRows[region].length == 0) {
+                logger.error("Variable not found in data: {}", regions[region]);
+                throw new IllegalArgumentException();
+            }
+        }
+
+        double[][] columns = new double[data.getSampleCount()][regions.length];
+        ParallelTasks.run(threads, () -> IntStream.range(0, regions.length).parallel()
+                .forEach(region -> summarizeRegion(regionRows[region], region, columns)));
+
+        logger.info("Successfully summarized {} {}s", regions.length, posFilterType.getName());
+        return BetaValueMatrix.fromColumns(columns, regions.length);
+    }
+
+    /**
+     * Stores the summary of every sample of one region in row region of the columns, every region is only written
+     * by one thread
+     */
+    private void summarizeRegion(int[] rows, int region, double[][] columns) {
+        double[] values = new double[rows.length];
+        for (int sample = 0; sample < columns.length; sample++) {
+            int count = 0;
+            for (int row : rows) {
+                double betaValue = data.getBetaValue(row, sample);
+                if (!Double.isNaN(betaValue)) {
+                    values[count++] = betaValue;
+                }
+            }
+            columns[sample][region] = count == 0 ? Double.NaN : summary.summarize(values, count);
+        }
+    }
+
+    /**
+     * Summaries of the beta values of a region in one sample
+     */
+    public enum Summary {
+        MEAN("mean") {
+            @Override
+            double summarize(double[] values, int count) {
+                return mean(values, 0, count);
+            }
+        },
+        MEDIAN("median") {
+            @Override
+            double summarize(double[] values, int count) {
+                Arrays.sort(values, 0, count);
+                int middle = count / 2;
+                return count % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+            }
+        },
+        TRIMMED_MEAN("trimmed-mean") {
+            @Override
+            double summarize(double[] values, int count) {
+                Arrays.sort(values, 0, count);
+                int trimmed = (int) Math.floor(count * TRIM);
+                return mean(values, trimmed, count - trimmed);
+            }
+        };
+
+        private final String name;
+
+        Summary(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param values beta values without NaN, may be reordered
+         * @param count  amount of values to summarize, at least 1
+         * @return summary of the first count values
+         */
+        abstract double summarize(double[] values, int count);
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @param name name of the summary, as passed by the user
+         * @return the matching {@link Summary}
+         * @throws IllegalArgumentException whenever no summary has this name
+         */
+        public static Summary fromName(String name) throws IllegalArgumentException {
+            return Arrays.stream(values())
+                    .filter(summary -> summary.name.equals(name))
+                    .findFirst()
+                    .orElseThrow(IllegalArgumentException::new);
+        }
+
+        private static double mean(double[] values, int start, int end) {
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                sum += values[i];
+            }
+            return sum / (end - start);
+        }
+    }
+}
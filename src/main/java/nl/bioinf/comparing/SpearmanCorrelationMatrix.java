@@ -0,0 +1,191 @@
+package nl.bioinf.comparing;
+
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.statistics.Ranks;
+import nl.bioinf.utils.ParallelTasks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the Spearman correlation of all pairs of samples at once. Every sample is ranked once, the ranks are
+ * centered and scaled to unit length, so the correlation of two samples is the dot product of their scaled ranks.
+ * The dot products are computed in tiles of samples and blocks of rows, so the rows of a tile stay in cache while
+ * they are reused for every pair in the tile.
+ */
+public class SpearmanCorrelationMatrix {
+    private static final Logger logger = LogManager.getLogger();
+    // Amount of samples per side of a tile
+    private static final int SAMPLE_TILE = 16;
+    // Amount of rows processed at once, 2 x 16 samples x 2048 rows x 8 bytes = 512 KB
+    private static final int ROW_BLOCK = 2048;
+    private final MethylationArray data;
+    private final String[] samples;
+    private final int threads;
+
+    /**
+     *
+     * @param data    {@link MethylationArray}
+     * @param samples Array of samples to correlate with each other
+     * @param threads amount of threads used to compute the tiles of the matrix
+     */
+    public SpearmanCorrelationMatrix(MethylationArray data, String[] samples, int threads) {
+        this.data = data;
+        this.samples = samples;
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Computes the correlation matrix, pairs with a sample that contains missing values get NaN as correlation
+     *
+     * @return symmetric matrix with the Spearman correlation of every pair of samples, in the order of the samples
+     * @throws IllegalArgumentException Whenever samples are not found in the data
+     */
+    public double[][] computeCorrelations() throws IllegalArgumentException {
+        logger.info("Computing Spearman correlation matrix of {} samples", samples.length);
+        double[][] scaledRanks = new double[samples.length][];
+        Map<String, Integer> sampleColumns = new HashMap<>();
+        List<String> dataSamples = data.getSamples();
+        for (int column = dataSamples.size() - 1; column >= 0; column--) {
+            sampleColumns.put(dataSamples.get(column), column);
+        }
+
+        // Beta values of every sample without copying them, null for samples that contain missing values
+        double[][] sampleBetaValues = new double[samples.length][];
+        for (int i = 0; i < samples.length; i++) {
+            Integer column = sampleColumns.get(samples[i]);
+            if (column == null) {
+                logger.error("Sample not found in the data, exiting code. Did not compare following " +
+                        "sample: '{}'.", samples[i]);
+                throw new IllegalArgumentException();
+            }
+            if (data.sampleHasNA(column)) {
+                logger.warn("Found invalid value(s) (missing value/NaN) in sample: {}, its correlations are " +
+                        "written as NaN. Run with -NA or --remove-na to remove all NA values.", samples[i]);
+            } else {
+                sampleBetaValues[i] = data.getSampleBetaValuesView(column);
+            }
+        }
+
+        double[][] correlations = new double[samples.length][samples.length];
+        List<int[]> tiles = new ArrayList<>();
+        for (int tileStart1 = 0; tileStart1 < samples.length; tileStart1 += SAMPLE_TILE) {
+            for (int tileStart2 = tileStart1; tileStart2 < samples.length; tileStart2 += SAMPLE_TILE) {
+                tiles.add(new int[]{tileStart1, tileStart2});
+            }
+        }
+
+        ParallelTasks.run(threads, () -> {
+            // Every sample is ranked once, instead of once for every pair it is part of
+            IntStream.range(0, samples.length).parallel()
+                    .filter(i -> sampleBetaValues[i] != null)
+                    .forEach(i -> scaledRanks[i] = scale(rank(sampleBetaValues[i])));
+            tiles.parallelStream()
+                    .forEach(tile -> computeTile(scaledRanks, correlations, tile[0], tile[1]));
+        });
+
+        logger.info("Successfully computed Spearman correlation matrix");
+        return correlations;
+    }
+
+    public String[] getSamples() {
+        return samples.clone();
+    }
+
+    /**
+     * Computes the correlations of all pairs between two tiles of samples, every pair is only written by one tile
+     */
+    private static void computeTile(double[][] scaledRanks, double[][] correlations, int tileStart1,
+                                    int tileStart2) {
+        int tileEnd1 = Math.min(tileStart1 + SAMPLE_TILE, scaledRanks.length);
+        int tileEnd2 = Math.min(tileStart2 + SAMPLE_TILE, scaledRanks.length);
+        double[][] sums = new double[SAMPLE_TILE][SAMPLE_TILE];
+        int rowCount = 0;
+        for (double[] ranks : scaledRanks) {
+            if (ranks != null) {
+                rowCount = ranks.length;
+                break;
+            }
+        }
+
+        for (int blockStart = 0; blockStart < rowCount; blockStart += ROW_BLOCK) {
+            int blockEnd = Math.min(blockStart + ROW_BLOCK, rowCount);
+            for (int i = tileStart1; i < tileEnd1; i++) {
+                double[] ranks1 = scaledRanks[i];
+                if (ranks1 == null) {
+                    continue;
+                }
+                // Within the diagonal tile only the upper triangle is computed
+                for (int j = Math.max(tileStart2, tileStart1 == tileStart2 ? i : tileStart2); j < tileEnd2; j++) {
+                    double[] ranks2 = scaledRanks[j];
+                    if (ranks2 == null) {
+                        continue;
+                    }
+                    double sum = 0;
+                    for (int row = blockStart; row < blockEnd; row++) {
+                        sum += ranks1[row] * ranks2[row];
+                    }
+                    sums[i - tileStart1][j - tileStart2] += sum;
+                }
+            }
+        }
+
+        for (int i = tileStart1; i < tileEnd1; i++) {
+            for (int j = Math.max(tileStart2, tileStart1 == tileStart2 ? i : tileStart2); j < tileEnd2; j++) {
+                double correlation = scaledRanks[i] == null || scaledRanks[j] == null ? Double.NaN
+                        : clamp(sums[i - tileStart1][j - tileStart2]);
+                correlations[i][j] = correlation;
+                correlations[j][i] = correlation;
+            }
+        }
+    }
+
+    /**
+     * Ranks the values, ties get the average of their ranks (like the default ranking of
+     * {@link org.apache.commons.math3.stat.correlation.SpearmansCorrelation}) through {@link Ranks#averageRanks}.
+     *
+     * @param values values to rank, without NaN
+     * @return rank of every value, starting at 1
+     */
+    static double[] rank(double[] values) {
+        double[] ranks = new double[values.length];
+        Ranks.averageRanks(values, values.length, new double[values.length], ranks);
+        return ranks;
+    }
+
+    /**
+     * Centers the ranks around 0 and scales them to a length of 1
+     *
+     * @param ranks ranks of one sample
+     * @return scaled ranks, all NaN when all ranks are equal
+     */
+    private static double[] scale(double[] ranks) {
+        double mean = 0;
+        for (double rank : ranks) {
+            mean += rank;
+        }
+        mean /= ranks.length;
+
+        double sumOfSquares = 0;
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] -= mean;
+            sumOfSquares += ranks[i] * ranks[i];
+        }
+
+        double norm = Math.sqrt(sumOfSquares);
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] /= norm;
+        }
+        return ranks;
+    }
+
+    private static double clamp(double correlation) {
+        // Rounding can push the dot product of identical samples just above 1
+        return Math.max(-1, Math.min(1, correlation));
+    }
+}
@@ -0,0 +1,292 @@
+package nl.bioinf.filtering;
+
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.HeaderIndexLocation;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.ProbeAnnotations;
+import nl.bioinf.utils.ParallelTasks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Combines all filters requested by the user (NA removal, samples, chromosomes or genes and the cutoff) into one
+ * operation per row, so the data is filtered in a single pass instead of one pass per filter. Gives the same result
+ * as running the filters of {@link MethylationDataFilter} one after another: NA removal looks at all samples, the
+ * cutoff is applied to the kept samples only.
+ */
+public class FilterPlan {
+    private static final Logger logger = LogManager.getLogger(FilterPlan.class.getName());
+    // Amount of rows per partition when filtering a MethylationArray on multiple threads
+    private static final int PARTITION_SIZE = 16384;
+    private boolean removeNa = false;
+    private String[] samplesFilter = null;
+    private MethylationDataFilter.PosFilterType posFilterType = null;
+    private String[] posFilter = null;
+    private float cutoff = 0.0f;
+    private MethylationDataFilter.CutoffType cutoffType = MethylationDataFilter.CutoffType.upper;
+
+    /**
+     * @param removeNa whether to remove all rows that contain one or more NA values
+     */
+    public void setRemoveNa(boolean removeNa) {
+        this.removeNa = removeNa;
+    }
+
+    /**
+     * @param samplesFilter String array containing sample names that correspond with columns in the data
+     */
+    public void setSamplesFilter(String[] samplesFilter) {
+        this.samplesFilter = samplesFilter;
+    }
+
+    /**
+     * @param posFilterType enum, either CHROMOSOME or GENE
+     * @param posFilter     String array containing either chromosome- or gene names, in uppercase
+     */
+    public void setPosFilter(MethylationDataFilter.PosFilterType posFilterType, String[] posFilter) {
+        this.posFilterType = posFilterType;
+        this.posFilter = posFilter;
+    }
+
+    /**
+     * @param cutoff     a float that sets a cutoff point on how to filter beta values, 0.0 disables the filter
+     * @param cutoffType enum, either upper or lower
+     */
+    public void setCutOff(float cutoff, MethylationDataFilter.CutoffType cutoffType) {
+        this.cutoff = cutoff;
+        this.cutoffType = cutoffType;
+    }
+
+    /**
+     * Builds the header of the output, containing only the samples that pass the sample filter
+     *
+     * @param headerData {@link MethylationArray} holding the header information of the input file
+     * @return full header line for the output file
+     */
+    public String getOutputHeader(MethylationArray headerData) {
+        MethylationArray outputHeader = new MethylationArray();
+        outputHeader.setHeader(headerData.getHeader(), headerData.getSampleIndex());
+        List<String> samples = headerData.getSamples();
+        List<String> keptSamples = new ArrayList<>();
+        for (int column : determineColumnsToKeep(samples)) {
+            keptSamples.add(samples.get(column));
+        }
+        outputHeader.setSamples(keptSamples);
+        return outputHeader.getHeader();
+    }
+
+    /**
+     * Compiles the filters into a {@link RowFilter} for rows of a file with the given header, used for filtering a
+     * file row by row
+     *
+     * @param headerData {@link MethylationArray} holding the header information of the input file
+     * @return {@link RowFilter} that filters one row at a time
+     */
+    public RowFilter compile(MethylationArray headerData) {
+        Set<String> posValues = posFilter == null ? null : new HashSet<>(Arrays.asList(posFilter));
+        return new RowFilter(determineColumnsToKeep(headerData.getSamples()), posValues,
+                headerData.getIndexInformation());
+    }
+
+    /**
+     * Filters the data in place. The rows are split into partitions that are checked on multiple threads, after
+     * which the beta values of the kept rows and samples are copied once, applying the cutoff while copying. When
+     * only samples are removed nothing is copied, the kept samples are projected from the existing columns instead.
+     *
+     * @param data    {@link MethylationArray} to filter
+     * @param threads amount of threads used for filtering
+     */
+    public void apply(MethylationArray data, int threads) {
+        logger.info("Starting filtering in a single pass");
+        int[] columnsToKeep = determineColumnsToKeep(data.getSamples());
+        if (posFilter == null && !removeNa && cutoff == 0.0) {
+            data.keepSamples(columnsToKeep);
+            logger.info("Successfully filtered {} rows, {} samples kept", data.getRowCount(), columnsToKeep.length);
+            return;
+        }
+        ProbeAnnotations annotations = data.getAnnotations();
+        BitSet posCodes = posFilter == null ? null : determinePosCodes(annotations);
+        int rowCount = data.getRowCount();
+        int partitionCount = (rowCount + PARTITION_SIZE - 1) / PARTITION_SIZE;
+        int[][] partitionRows = new int[partitionCount][];
+        int[][] keptRowsHolder = new int[1][];
+        double[][] keptColumns = new double[columnsToKeep.length][];
+
+        ParallelTasks.run(threads, () -> {
+            IntStream.range(0, partitionCount).parallel()
+                    .forEach(partition -> partitionRows[partition] = selectRows(data, annotations, posCodes,
+                            partition * PARTITION_SIZE, Math.min((partition + 1) * PARTITION_SIZE, rowCount)));
+
+            int[] keptRows = concatenate(partitionRows);
+            keptRowsHolder[0] = keptRows;
+            for (int i = 0; i < keptColumns.length; i++) {
+                keptColumns[i] = new double[keptRows.length];
+            }
+            IntStream.range(0, (keptRows.length + PARTITION_SIZE - 1) / PARTITION_SIZE).parallel()
+                    .forEach(partition -> copyValues(data, keptRows, columnsToKeep, keptColumns,
+                            partition * PARTITION_SIZE,
+                            Math.min((partition + 1) * PARTITION_SIZE, keptRows.length)));
+        });
+
+        int[] keptRows = keptRowsHolder[0];
+        data.keepRowsAndSamples(keptRows, columnsToKeep, BetaValueMatrix.fromColumns(keptColumns, keptRows.length));
+        logger.info("Successfully filtered {} rows, {} rows and {} samples kept", rowCount, keptRows.length,
+                columnsToKeep.length);
+    }
+
+    /**
+     * @return indexes of the rows between start and end that pass the NA and position filters
+     */
+    private int[] selectRows(MethylationArray data, ProbeAnnotations annotations, BitSet posCodes, int start,
+                             int end) {
+        boolean byGene = posFilterType == MethylationDataFilter.PosFilterType.GENE;
+        int[] rows = new int[end - start];
+        int keptRows = 0;
+        for (int row = start; row < end; row++) {
+            if (posCodes != null && !posCodes.get(byGene
+                    ? annotations.getGeneCode(row)
+                    : annotations.getChromosomeCode(row))) {
+                continue;
+            }
+            if (!(removeNa && data.rowHasNA(row))) {
+                rows[keptRows++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, keptRows);
+    }
+
+    /**
+     * Copies the values of kept rows start..end-1 of every kept sample, applying the cutoff
+     */
+    private void copyValues(MethylationArray data, int[] keptRows, int[] columnsToKeep, double[][] keptColumns,
+                            int start, int end) {
+        for (int i = 0; i < columnsToKeep.length; i++) {
+            int column = columnsToKeep[i];
+            double[] target = keptColumns[i];
+            for (int row = start; row < end; row++) {
+                target[row] = applyCutOff(data.getBetaValue(keptRows[row], column));
+            }
+        }
+    }
+
+    private static int[] concatenate(int[][] partitions) {
+        int length = 0;
+        for (int[] partition : partitions) {
+            length += partition.length;
+        }
+        int[] all = new int[length];
+        int offset = 0;
+        for (int[] partition : partitions) {
+            System.arraycopy(partition, 0, all, offset, partition.length);
+            offset += partition.length;
+        }
+        return all;
+    }
+
+    /**
+     * Marks the dictionary codes of the chromosomes or genes to keep, so every row is checked with a single bit
+     * lookup regardless of the amount of chromosomes or genes in the filter
+     */
+    private BitSet determinePosCodes(ProbeAnnotations annotations) {
+        Set<String> posValues = new HashSet<>(Arrays.asList(posFilter));
+        return posFilterType == MethylationDataFilter.PosFilterType.GENE
+                ? annotations.getGeneCodes(posValues)
+                : annotations.getChromosomeCodes(posValues);
+    }
+
+    private int[] determineColumnsToKeep(List<String> samples) {
+        if (samplesFilter == null) {
+            int[] allColumns = new int[samples.size()];
+            Arrays.setAll(allColumns, i -> i);
+            return allColumns;
+        }
+        return MethylationDataFilter.determineColumnsToKeep(samplesFilter, samples);
+    }
+
+    /**
+     * @return the beta value, or NaN when it does not pass the cutoff
+     */
+    private double applyCutOff(double betaValue) {
+        if (cutoff == 0.0) {
+            return betaValue;
+        }
+        boolean passes = cutoffType == MethylationDataFilter.CutoffType.lower
+                ? betaValue <= cutoff
+                : betaValue >= cutoff;
+        return passes ? betaValue : Double.NaN;
+    }
+
+    /**
+     * All filters of a {@link FilterPlan} compiled for one input file, applied to one row at a time. Remembers the
+     * outcome of the position filter for every distinct chromosome or gene, so it is not used by multiple threads.
+     */
+    public class RowFilter {
+        private final int[] columnsToKeep;
+        private final Set<String> posValues;
+        private final HeaderIndexLocation indexLocation;
+        // Key: chromosome or gene as found in the file, value: whether it passes the position filter
+        private final Map<String, Boolean> posOutcomes = new HashMap<>();
+
+        private RowFilter(int[] columnsToKeep, Set<String> posValues, HeaderIndexLocation indexLocation) {
+            this.columnsToKeep = columnsToKeep;
+            this.posValues = posValues;
+            this.indexLocation = indexLocation;
+        }
+
+        /**
+         * @return amount of samples in a filtered row
+         */
+        public int getSampleCount() {
+            return columnsToKeep.length;
+        }
+
+        /**
+         * Filters one row
+         *
+         * @param location       String that contains the genomic information of the row
+         * @param betaValues     beta values of all samples of the row
+         * @param filteredValues array of at least {@link #getSampleCount()} to store the values of the kept samples
+         *                       in, values that do not pass the cutoff are stored as NaN
+         * @return true if the row passes the filters, filteredValues is only filled in that case
+         */
+        public boolean filter(String location, double[] betaValues, double[] filteredValues) {
+            if (posValues != null && !posOutcomes.computeIfAbsent(getPosValue(location),
+                    posValue -> posValues.contains(posValue.toUpperCase()))) {
+                return false;
+            }
+            if (removeNa && hasNA(betaValues)) {
+                return false;
+            }
+            for (int i = 0; i < columnsToKeep.length; i++) {
+                filteredValues[i] = applyCutOff(betaValues[columnsToKeep[i]]);
+            }
+            return true;
+        }
+
+        private String getPosValue(String location) {
+            if (posFilterType == MethylationDataFilter.PosFilterType.GENE) {
+                return ProbeAnnotations.getField(location, indexLocation.getGeneIndex());
+            }
+            return ProbeAnnotations.getField(location, indexLocation.getChrIndex());
+        }
+    }
+
+    private static boolean hasNA(double[] betaValues) {
+        for (double betaValue : betaValues) {
+            if (Double.isNaN(betaValue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
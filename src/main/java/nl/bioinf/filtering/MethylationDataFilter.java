@@ -1,14 +1,15 @@
 package nl.bioinf.filtering;
 
 import nl.bioinf.model.MethylationArray;
-import nl.bioinf.model.MethylationData;
+import nl.bioinf.model.PositionIndex;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Filter class that contains methods to remove columns/rows based on user passed filter arguments e.g. chromosomes/genes
@@ -29,73 +30,35 @@ public class MethylationDataFilter {
 
         //Retrieve data
         List<String> samples = methylationArray.getSamples();
-        List<MethylationData> dataRows = methylationArray.getData();
-
-        // Look at which beta values columns need to be kept, based on filter samples
-        ArrayList<Integer> columnsToKeep = new ArrayList<>();
-        ArrayList<String> filteredSamples = new ArrayList<>();
 
         logger.debug("Determining what sample columns to keep...");
-        determineColumnsToKeep(samplesFilter, samples, columnsToKeep, filteredSamples);
-
-        // Retrieve old data and initiate new arraylist
-        removeUnwantedSamples(dataRows, columnsToKeep);
+        int[] columnsToKeep = determineColumnsToKeep(samplesFilter, samples);
 
         logger.debug("Saving filtered sample data.");
-
-        samples.clear();
-        samples.addAll(filteredSamples);
-
-        methylationArray.setData(dataRows);
-        methylationArray.setSamples(samples);
+        methylationArray.keepSamples(columnsToKeep);
 
         logger.info("Successfully filtered on sample(s)");
     }
 
     /**
-     * Determine what columns (corresponding with samples) should be kept, based on user input
+     * Determine what columns (corresponding with samples) should be kept, based on user input. The filter is put in
+     * a Set first, so every sample is checked in constant time regardless of the amount of filter samples.
      *
-     * @param samplesFilter   String array that user has provided, containing sample names that correspond with
-     *                        columns in the data
-     * @param samples         List containing all samples of the input data
-     * @param columnsToKeep   ArrayList in which the indexes of the columns that should be kept will be saved in
-     * @param filteredSamples ArrayList in which the names of the samples to keep will be saved
+     * @param samplesFilter String array that user has provided, containing sample names that correspond with
+     *                      columns in the data
+     * @param samples       List containing all samples of the input data
+     * @return indexes of the columns that should be kept, in ascending order
      */
-    private static void determineColumnsToKeep(String[] samplesFilter, List<String> samples,
-                                               ArrayList<Integer> columnsToKeep, ArrayList<String> filteredSamples) {
+    static int[] determineColumnsToKeep(String[] samplesFilter, List<String> samples) {
+        Set<String> filter = new HashSet<>(Arrays.asList(samplesFilter));
+        int[] columnsToKeep = new int[samples.size()];
+        int keptColumns = 0;
         for (int i = 0; i < samples.size(); i++) {
-            String sample = samples.get(i);
-
-            for (String sampleFilter : samplesFilter) {
-                if (sample.equals(sampleFilter)) {
-                    columnsToKeep.add(i); // remember the index to keep
-                    filteredSamples.add(sample);
-                    break;
-                }
-            }
-        }
-    }
-
-    /**
-     * Keep only the samples of which the columns match the indexes that correspond with the columns that should be kept
-     *
-     * @param dataRows      the rows of data of the methylationArray object
-     * @param columnsToKeep indexes of columns that match samples that were selected to keep by user
-     */
-    private static void removeUnwantedSamples(List<MethylationData> dataRows, ArrayList<Integer> columnsToKeep) {
-        logger.debug("Creating new data object to save filtered beta values in.");
-        for (MethylationData row : dataRows) {
-            ArrayList<Double> oldBetaValues = row.betaValues();
-            ArrayList<Double> filteredBetaValues = new ArrayList<>();
-
-            // Keep the values that correspond to the filtered samples
-            for (int index : columnsToKeep) {
-                filteredBetaValues.add(oldBetaValues.get(index));
+            if (filter.contains(samples.get(i))) {
+                columnsToKeep[keptColumns++] = i; // remember the index to keep
             }
-
-            oldBetaValues.clear(); // Remove items from list
-            oldBetaValues.addAll(filteredBetaValues); // Replace with filtered values
         }
+        return Arrays.copyOf(columnsToKeep, keptColumns);
     }
 
     /**
@@ -109,64 +72,67 @@ public class MethylationDataFilter {
         logger.info("Starting filtering on {}(s)", posFilterType);
         logger.debug("Filtering on: {} {}.", posFilterType, Arrays.toString(posFilter));
 
-        List<MethylationData> dataRows = methylationArray.getData();
-
-        // Use iterator for removing rows from MethylationData, if user passed gene filter argument
-        Iterator<MethylationData> iter = dataRows.iterator();
-
         logger.debug("Removing rows that don't contain given {} arguments", posFilterType);
 
-        removeUnwantedPos(methylationArray, posFilterType, posFilter, iter);
+        int[] rowsToKeep = determineRowsToKeep(methylationArray, posFilterType, posFilter);
 
         logger.debug("Saving filtered {} data", posFilterType);
-        methylationArray.setData(dataRows);
+        methylationArray.keepRows(rowsToKeep);
 
         logger.info("Successfully filtered on {}", posFilterType);
     }
 
     /**
-     * Remove rows that don`t contain chromosomes or genes as specified by user parameters
+     * Determine what rows contain chromosomes or genes as specified by user parameters, using the
+     * {@link PositionIndex} of the data so only the matching rows are visited
      *
      * @param methylationArray methylationArray contains parsed data from input file, including present genes
      * @param posFilterType    enum, either CHROMOSOME or GENE
      * @param posFilter        String array that user has provided, containing either chromosome- or gene names
-     * @param iter             iterator for iterating through dataRows
+     * @return indexes of the rows that should be kept, in ascending order
      */
-    private static void removeUnwantedPos(MethylationArray methylationArray, PosFilterType posFilterType,
-                                          String[] posFilter, Iterator<MethylationData> iter) {
-        String valueToCheck;
-        while (iter.hasNext()) {
-            MethylationData row = iter.next();
-
+    private static int[] determineRowsToKeep(MethylationArray methylationArray, PosFilterType posFilterType,
+                                             String[] posFilter) {
+        PositionIndex positionIndex = methylationArray.getPositionIndex();
+        Set<String> uniquePosFilter = new HashSet<>(Arrays.asList(posFilter));
+        List<int[]> matchingRows = new ArrayList<>(uniquePosFilter.size());
+        int keptRows = 0;
+
+        for (String posArg : uniquePosFilter) {
             // Determine positional variable to filter on, either GENE or CHROMOSOME
-            if (posFilterType == PosFilterType.GENE) {
-                valueToCheck = row.getGene(methylationArray.getIndexInformation());
-
-            } else {
-                valueToCheck = row.getChromosome(methylationArray.getIndexInformation());
-            }
+            int[] rows = posFilterType == PosFilterType.GENE
+                    ? positionIndex.getGeneRows(posArg)
+                    : positionIndex.getChromosomeRows(posArg);
+            matchingRows.add(rows);
+            keptRows += rows.length;
+        }
 
-            if (!Arrays.asList(posFilter).contains(valueToCheck.toUpperCase())) {
-                iter.remove();
-            }
+        int[] rowsToKeep = new int[keptRows];
+        int offset = 0;
+        for (int[] rows : matchingRows) {
+            System.arraycopy(rows, 0, rowsToKeep, offset, rows.length);
+            offset += rows.length;
         }
+        // Keep the rows in their original order
+        if (matchingRows.size() > 1) {
+            Arrays.sort(rowsToKeep);
+        }
+        return rowsToKeep;
     }
 
     public static void removeNA(MethylationArray methylationArray) {
 
         logger.info("Removing NA's");
 
-        List<MethylationData> dataRows = methylationArray.getData();
-        Iterator<MethylationData> iter = dataRows.iterator();
+        int[] rowsToKeep = new int[methylationArray.getRowCount()];
+        int keptRows = 0;
 
-        while (iter.hasNext()) {
-            MethylationData row = iter.next();
-            ArrayList<Double> naValueToCheck = row.betaValues();
-            if (naValueToCheck.contains(Double.NaN)) {
-                iter.remove();
+        for (int row = 0; row < methylationArray.getRowCount(); row++) {
+            if (!methylationArray.rowHasNA(row)) {
+                rowsToKeep[keptRows++] = row;
             }
         }
-        methylationArray.setData(dataRows);
+        methylationArray.keepRows(Arrays.copyOf(rowsToKeep, keptRows));
     }
 
     /**
@@ -181,54 +147,35 @@ public class MethylationDataFilter {
     public static void filterByCutOff(MethylationArray methylationArray, float cutoff, CutoffType cutoffType) {
         logger.info("Starting filtering on cutoff/cutoff type: {} {}", cutoff, cutoffType);
 
-        List<MethylationData> dataRows = methylationArray.getData();
-
         logger.debug("Iterating through rows to filter on [{} {}]", cutoff, cutoffType);
-        // Retrieve rows and make new rows for filtered values
-        for (MethylationData row : dataRows) {
-            ArrayList<Double> oldBetaValues = row.betaValues();
-            ArrayList<Double> filteredBetaValues = getDoubles(cutoff, cutoffType, oldBetaValues);
-
-            // Initiate new list of beta values, with only those that are >= to cutoff
-            oldBetaValues.clear(); //Remove items from list
-            oldBetaValues.addAll(filteredBetaValues); //Replace with filtered values
+        // Replace all beta values that do not pass the cutoff with NaN
+        for (int row = 0; row < methylationArray.getRowCount(); row++) {
+            for (int sample = 0; sample < methylationArray.getSampleCount(); sample++) {
+                if (!passesCutOff(cutoff, cutoffType, methylationArray.getBetaValue(row, sample))) {
+                    methylationArray.setBetaValue(row, sample, Double.NaN);
+                }
+            }
         }
 
-        logger.debug("Saving filtered cutoff data");
-        methylationArray.setData(dataRows);
-
         logger.info("Successfully filtered on cutoff!");
     }
 
     /**
      * Filtering logic as used in filterByCutOff
      *
-     * @param cutoff        a float that sets a cutoff point on how to filter beta values
-     * @param cutoffType    enum, either upper or lower, determined by what direction the user wants to filter
-     *                      *                   beta values, based on the cutoff
-     * @param oldBetaValues ArrayList containing all doubles of the MethylationArray before filtering
-     * @return filteredBetaValues, ArrayList of doubles containing only the beta values that pass the filter
+     * @param cutoff     a float that sets a cutoff point on how to filter beta values
+     * @param cutoffType enum, either upper or lower, determined by what direction the user wants to filter
+     *                   beta values, based on the cutoff
+     * @param betaValue  beta value to check
+     * @return true if the beta value passes the filter
      */
-    private static ArrayList<Double> getDoubles(float cutoff, CutoffType cutoffType, ArrayList<Double> oldBetaValues) {
-        ArrayList<Double> filteredBetaValues = new ArrayList<>();
-
+    private static boolean passesCutOff(float cutoff, CutoffType cutoffType, double betaValue) {
         // Filter on cutoff, depending on hypo/hyper
-        for (Double betaValue : oldBetaValues) {
-            if (cutoffType == CutoffType.lower) {
-                if (betaValue <= cutoff) {
-                    filteredBetaValues.add(betaValue);
-                } else {
-                    filteredBetaValues.add(Double.NaN);
-                }
-            } else { // if CutoffType = 'upper'
-                if (betaValue >= cutoff) {
-                    filteredBetaValues.add(betaValue);
-                } else {
-                    filteredBetaValues.add(Double.NaN);
-                }
-            }
+        if (cutoffType == CutoffType.lower) {
+            return betaValue <= cutoff;
+        } else { // if CutoffType = 'upper'
+            return betaValue >= cutoff;
         }
-        return filteredBetaValues;
     }
 
     /**
@@ -0,0 +1,87 @@
+package nl.bioinf.filtering;
+
+import nl.bioinf.io.FilterRowWriter;
+import nl.bioinf.io.MethylationRowReader;
+import nl.bioinf.model.MethylationArray;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+
+/**
+ * Filters the input file row by row, deciding the fate of each row as it is read and writing it directly to the
+ * output. Applies the same filters as {@link MethylationDataFilter}, compiled by a {@link FilterPlan}, without keeping
+ * the data in memory.
+ */
+public class StreamingMethylationFilter {
+    private static final Logger logger = LogManager.getLogger(StreamingMethylationFilter.class.getName());
+    private final FilterPlan filterPlan = new FilterPlan();
+
+    /**
+     * @param removeNa whether to remove all rows that contain one or more NA values
+     */
+    public void setRemoveNa(boolean removeNa) {
+        filterPlan.setRemoveNa(removeNa);
+    }
+
+    /**
+     * @param samplesFilter String array containing sample names that correspond with columns in the data
+     */
+    public void setSamplesFilter(String[] samplesFilter) {
+        filterPlan.setSamplesFilter(samplesFilter);
+    }
+
+    /**
+     * @param posFilterType enum, either CHROMOSOME or GENE
+     * @param posFilter     String array containing either chromosome- or gene names, in uppercase
+     */
+    public void setPosFilter(MethylationDataFilter.PosFilterType posFilterType, String[] posFilter) {
+        filterPlan.setPosFilter(posFilterType, posFilter);
+    }
+
+    /**
+     * @param cutoff     a float that sets a cutoff point on how to filter beta values, 0.0 disables the filter
+     * @param cutoffType enum, either upper or lower
+     */
+    public void setCutOff(float cutoff, MethylationDataFilter.CutoffType cutoffType) {
+        filterPlan.setCutOff(cutoff, cutoffType);
+    }
+
+    /**
+     * Builds the header of the output, containing only the samples that pass the sample filter
+     *
+     * @param headerData {@link MethylationArray} holding the header information of the input file
+     * @return full header line for the output file
+     */
+    public String getOutputHeader(MethylationArray headerData) {
+        return filterPlan.getOutputHeader(headerData);
+    }
+
+    /**
+     * Reads all rows, filters them and writes the rows that pass to the writer
+     *
+     * @param reader {@link MethylationRowReader} positioned after the header
+     * @param writer {@link FilterRowWriter} to write the passing rows to
+     * @return amount of rows written
+     * @throws IOException for instances where reading or writing failed
+     */
+    public long run(MethylationRowReader reader, FilterRowWriter writer) throws IOException {
+        logger.info("Starting streaming filter");
+        FilterPlan.RowFilter rowFilter = filterPlan.compile(reader.getHeaderData());
+        double[] filteredValues = new double[rowFilter.getSampleCount()];
+
+        long rowsRead = 0;
+        long rowsWritten = 0;
+
+        while (reader.next()) {
+            rowsRead++;
+            if (rowFilter.filter(reader.getLocation(), reader.getBetaValues(), filteredValues)) {
+                writer.writeRow(reader.getLocation(), filteredValues);
+                rowsWritten++;
+            }
+        }
+
+        logger.info("Successfully filtered {} rows, {} rows written", rowsRead, rowsWritten);
+        return rowsWritten;
+    }
+}
@@ -0,0 +1,162 @@
+package nl.bioinf.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses beta values from the input file. Beta values are almost always short decimals like 0.85, these are parsed
+ * and range checked in a single pass without creating any objects. Missing values (NA, NaN or an empty value) are
+ * parsed to NaN, other notations (e.g. exponents) are handed to {@link Double#parseDouble(String)}.
+ */
+public class BetaValueParser {
+    private static final Logger logger = LogManager.getLogger();
+    // Largest amount of digits of which the value is exactly representable as a long and a double (< 2^53)
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    private BetaValueParser() {
+    }
+
+    /**
+     * Parses a beta value
+     *
+     * @param value String containing one value of the input file
+     * @return the beta value, NaN for missing values
+     * @throws IllegalArgumentException whenever the value is not a number or not in the range of [0-1]
+     */
+    public static double parse(String value) throws IllegalArgumentException {
+        return parse(value, 0, value.length());
+    }
+
+    /**
+     * Parses a beta value from a part of a String, e.g. one value of a whole line, without copying the characters
+     *
+     * @param line  String holding the value
+     * @param start index of the first character of the value
+     * @param end   index directly after the last character of the value
+     * @return the beta value, NaN for missing values
+     * @throws IllegalArgumentException whenever the value is not a number or not in the range of [0-1]
+     */
+    public static double parse(String line, int start, int end) throws IllegalArgumentException {
+        int length = end - start;
+        if (length == 0 || isMissing(line.charAt(start), length > 1 ? line.charAt(start + 1) : 0,
+                length > 2 ? line.charAt(start + 2) : 0, length)) {
+            return Double.NaN;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        for (int i = start; i < end; i++) {
+            char character = line.charAt(i);
+            if (character >= '0' && character <= '9') {
+                digits = digits * 10 + (character - '0');
+                if (++digitCount > MAX_FAST_DIGITS) {
+                    return parseFallback(line.substring(start, end));
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (character == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return parseFallback(line.substring(start, end));
+            }
+        }
+        if (digitCount == 0) {
+            return parseFallback(line.substring(start, end));
+        }
+        return toBetaValue(digits, fractionDigits);
+    }
+
+    /**
+     * Parses a beta value directly from a buffer, without copying the bytes
+     *
+     * @param buffer buffer holding the input file, or a part of it
+     * @param start  position of the first byte of the value
+     * @param end    position directly after the last byte of the value
+     * @return the beta value, NaN for missing values
+     * @throws IllegalArgumentException whenever the value is not a number or not in the range of [0-1]
+     */
+    public static double parse(ByteBuffer buffer, int start, int end) throws IllegalArgumentException {
+        int length = end - start;
+        if (length == 0 || isMissing((char) buffer.get(start), length > 1 ? (char) buffer.get(start + 1) : 0,
+                length > 2 ? (char) buffer.get(start + 2) : 0, length)) {
+            return Double.NaN;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        for (int i = start; i < end; i++) {
+            byte character = buffer.get(i);
+            if (character >= '0' && character <= '9') {
+                digits = digits * 10 + (character - '0');
+                if (++digitCount > MAX_FAST_DIGITS) {
+                    return parseFallback(decode(buffer, start, end));
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (character == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return parseFallback(decode(buffer, start, end));
+            }
+        }
+        if (digitCount == 0) {
+            return parseFallback(decode(buffer, start, end));
+        }
+        return toBetaValue(digits, fractionDigits);
+    }
+
+    /**
+     * Checks for the missing value markers NA and NaN
+     */
+    private static boolean isMissing(char first, char second, char third, int length) {
+        if (first != 'N') {
+            return false;
+        }
+        return (length == 2 && second == 'A') || (length == 3 && second == 'a' && third == 'N');
+    }
+
+    /**
+     * Builds the value from its digits. The digits form an exact long and the division by an exact power of ten is
+     * correctly rounded, giving the same double as Double.parseDouble.
+     */
+    private static double toBetaValue(long digits, int fractionDigits) throws IllegalArgumentException {
+        double betaVal = fractionDigits <= 0 ? digits : digits / POWERS_OF_TEN[fractionDigits];
+        return checkRange(betaVal);
+    }
+
+    private static double parseFallback(String value) throws IllegalArgumentException {
+        double betaVal;
+        try {
+            betaVal = Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            logger.error("Invalid beta value: '{}', could not parse to double. Check if correct sample " +
+                    "index [-si] was provided and make sure all beta values are either numbers in the range of [0-1] " +
+                    "or NaN.", value);
+            throw new IllegalArgumentException("Stopped run, due to invalid beta value: " + value);
+        }
+        return checkRange(betaVal);
+    }
+
+    private static double checkRange(double betaVal) throws IllegalArgumentException {
+        if (betaVal < 0 || betaVal > 1) {
+            logger.error("Beta value out of range: '{}', must be in range of [0-1].", betaVal);
+            throw new IllegalArgumentException();
+        }
+        return betaVal;
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
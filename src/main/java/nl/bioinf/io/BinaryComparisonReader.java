@@ -0,0 +1,92 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.ComparisonResults;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads a binary file of comparison results written by {@link BinaryComparisonSink}.
+ */
+public class BinaryComparisonReader {
+    private static final Logger logger = LogManager.getLogger();
+
+    private BinaryComparisonReader() {
+    }
+
+    /**
+     * Reads all complete records of the file, an incomplete last record (of a run that was stopped) is skipped
+     *
+     * @param filePath path of the binary file
+     * @return {@link ComparisonResults} holding every comparison of the file
+     * @throws IOException              for instances where reading the file failed
+     * @throws IllegalArgumentException whenever the file is not a binary comparison file
+     */
+    public static ComparisonResults readFile(Path filePath) throws IOException, IllegalArgumentException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(filePath)))) {
+            byte[] magic = new byte[BinaryComparisonSink.MAGIC.length];
+            input.readFully(magic);
+            int version = input.readInt();
+            if (!Arrays.equals(magic, BinaryComparisonSink.MAGIC) || version != BinaryComparisonSink.VERSION) {
+                logger.error("Provided file: '{}' is not a binary comparison file of version {}.", filePath,
+                        BinaryComparisonSink.VERSION);
+                throw new IllegalArgumentException();
+            }
+
+            String[] methods = new String[input.readInt()];
+            for (int method = 0; method < methods.length; method++) {
+                methods[method] = readString(input);
+            }
+
+            ComparisonResults results = new ComparisonResults(methods);
+            double[] record = new double[methods.length];
+            while (true) {
+                String variable1;
+                try {
+                    variable1 = readString(input);
+                } catch (EOFException ex) {
+                    break;
+                }
+                try {
+                    String variable2 = readString(input);
+                    for (int method = 0; method < methods.length; method++) {
+                        record[method] = input.readDouble();
+                    }
+                    results.accept(variable1, variable2, record);
+                } catch (EOFException ex) {
+                    logger.warn("Provided file: '{}' ends with an incomplete comparison, it is skipped.", filePath);
+                    break;
+                }
+            }
+            return results;
+
+        } catch (NoSuchFileException ex) {
+            logger.error("""
+                            Failed to find the provided file: '{}'.\s
+                            Exception occurred: '{}'.\s
+                            """,
+                    ex.getMessage(), ex);
+            throw new IOException();
+
+        } catch (EOFException ex) {
+            logger.error("Provided file: '{}' is not a binary comparison file, it ends before the methods.",
+                    filePath);
+            throw new IllegalArgumentException();
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
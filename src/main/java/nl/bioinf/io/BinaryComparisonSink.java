@@ -0,0 +1,75 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.ComparisonResultSink;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the results of comparisons to a binary file as soon as they are received, which can be read back by
+ * {@link BinaryComparisonReader}. The file consists of:
+ * <ul>
+ *     <li>the magic bytes "BVCR" and the format version</li>
+ *     <li>the amount of methods and the name of every method</li>
+ *     <li>one record per comparison: both variable names and the result of every method as 8 byte doubles</li>
+ * </ul>
+ * The amount of records is not stored, records are read until the end of the file, so a file of a run that was
+ * stopped can still be read up to its last complete record. All numbers are written big-endian, Strings as their
+ * amount of bytes followed by the UTF-8 bytes.
+ */
+public class BinaryComparisonSink implements ComparisonResultSink {
+    private static final Logger logger = LogManager.getLogger();
+    static final byte[] MAGIC = {'B', 'V', 'C', 'R'};
+    static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Path outputFilePath;
+    private final DataOutputStream output;
+
+    /**
+     *
+     * @param outputFilePath Path to write the resulting file to.
+     * @param methods        statistical methods, in the order of the results passed to {@link #accept}
+     * @throws IOException for instances where file writing failed
+     */
+    public BinaryComparisonSink(Path outputFilePath, String[] methods) throws IOException {
+        this.outputFilePath = outputFilePath;
+        logger.info("Writing data to file: {}.", outputFilePath);
+        try {
+            output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputFilePath),
+                    BUFFER_SIZE));
+            output.write(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(methods.length);
+            for (String method : methods) {
+                BvalFileWriter.writeString(output, method);
+            }
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void accept(String variable1, String variable2, double[] results) throws IOException {
+        BvalFileWriter.writeString(output, variable1);
+        BvalFileWriter.writeString(output, variable2);
+        for (double result : results) {
+            output.writeDouble(result);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+        logger.info("Output generated at: {}", outputFilePath);
+    }
+}
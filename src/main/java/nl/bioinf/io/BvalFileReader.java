@@ -0,0 +1,190 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.HeaderIndexLocation;
+import nl.bioinf.model.MethylationArray;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * Reads a binary .bval file written by {@link BvalFileWriter}. The file is read front to back in windows, the beta
+ * values of every window are decoded into their columns in bulk while the checksum is computed over the same bytes,
+ * so files larger than 2 GB are read like small ones.
+ */
+public class BvalFileReader {
+    private static final Logger logger = LogManager.getLogger();
+    // Bytes of beta values decoded at once, a multiple of the size of both encodings
+    private static final int WINDOW_SIZE = 1 << 16;
+    private MethylationArray methylationData;
+
+    public BvalFileReader() {
+        methylationData = new MethylationArray();
+    }
+
+    /**
+     * Checks whether a file starts with the magic bytes of a .bval file
+     *
+     * @param filePath path of the file to check
+     * @return true if the file is a .bval file, false if it is not or could not be read
+     */
+    public static boolean isBvalFile(Path filePath) {
+        if (!Files.isRegularFile(filePath)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(BvalFileWriter.MAGIC.length);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until the magic bytes are in the buffer
+            }
+            return Arrays.equals(magic.array(), BvalFileWriter.MAGIC);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Tries to read the .bval file at the user-provided file path and converts it to a MethylationArray datatype.
+     * Failures are logged here, callers only need to handle the exception.
+     *
+     * @param filePath which refers to the path for the input file
+     * @throws IOException for instances where reading the file failed, or the file is not a valid .bval file
+     */
+    public void readFile(Path filePath) throws IOException {
+        try (InputStream fileStream = new BufferedInputStream(Files.newInputStream(filePath), WINDOW_SIZE)) {
+            CRC32 checksum = new CRC32();
+            DataInputStream input = new DataInputStream(new CheckedInputStream(fileStream, checksum));
+            MethylationArray data = parse(input, Files.size(filePath));
+
+            // The checksum itself is read directly from the file, so it is not part of the checksum
+            int expectedChecksum = (int) checksum.getValue();
+            if (new DataInputStream(fileStream).readInt() != expectedChecksum || fileStream.read() != -1) {
+                throw new IOException("the checksum does not match, the file is corrupted. Please convert the " +
+                        "original file again");
+            }
+            methylationData = data;
+
+        } catch (NoSuchFileException ex) {
+            logger.error("Failed to find the provided file: '{}'.", filePath);
+            throw ex;
+
+        } catch (EOFException ex) {
+            logger.error("Provided file: '{}' is not a valid .bval file, it ends too early.", filePath);
+            throw ex;
+
+        } catch (IOException ex) {
+            logger.error("Could not read provided file: '{}' as .bval file: {}.", filePath, ex.getMessage());
+            throw ex;
+        }
+    }
+
+    public MethylationArray getData() {
+        return methylationData;
+    }
+
+    private static MethylationArray parse(DataInputStream input, long fileSize) throws IOException {
+        byte[] magic = new byte[BvalFileWriter.MAGIC.length];
+        input.readFully(magic);
+        int version = input.readInt();
+        if (!Arrays.equals(magic, BvalFileWriter.MAGIC) || version != BvalFileWriter.VERSION) {
+            throw new IOException("not a .bval file of version " + BvalFileWriter.VERSION + ", please convert the " +
+                    "original file again");
+        }
+
+        int sampleIndex = input.readInt();
+        String headerLine = readString(input, fileSize);
+        int rowCount = input.readInt();
+        int sampleCount = input.readInt();
+        if (rowCount < 0 || sampleCount < 0 || (long) rowCount * sampleCount > fileSize) {
+            throw new IOException("invalid amount of rows or samples");
+        }
+
+        MethylationArray data = new MethylationArray();
+        try {
+            data.setSampleIndex(sampleIndex);
+            data.setHeader(headerLine, sampleIndex);
+            data.setSamples(MethylationFileReader.getSamples(headerLine, sampleIndex));
+            data.setIndexInformation(new HeaderIndexLocation(headerLine));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("invalid header");
+        }
+
+        List<String> locations = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            locations.add(readString(input, fileSize));
+        }
+
+        byte encoding = input.readByte();
+        double[][] columns = new double[sampleCount][];
+        for (int sample = 0; sample < sampleCount; sample++) {
+            columns[sample] = readColumn(input, encoding, rowCount);
+        }
+        try {
+            data.addData(locations, BetaValueMatrix.fromColumns(columns, rowCount));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("the amount of samples does not match the header");
+        }
+        return data;
+    }
+
+    /**
+     * Decodes the beta values of one sample, one window of bytes at a time
+     */
+    private static double[] readColumn(DataInputStream input, byte encoding, int rowCount) throws IOException {
+        int valueSize;
+        if (encoding == BvalFileWriter.ENCODING_FIXED_POINT) {
+            valueSize = Short.BYTES;
+        } else if (encoding == BvalFileWriter.ENCODING_DOUBLE) {
+            valueSize = Double.BYTES;
+        } else {
+            throw new IOException("unknown encoding of the beta values: " + encoding);
+        }
+
+        double[] column = new double[rowCount];
+        byte[] window = new byte[(int) Math.min(WINDOW_SIZE, (long) rowCount * valueSize)];
+        for (int row = 0; row < rowCount; ) {
+            int count = Math.min(rowCount - row, window.length / valueSize);
+            input.readFully(window, 0, count * valueSize);
+            ByteBuffer values = ByteBuffer.wrap(window, 0, count * valueSize);
+            if (encoding == BvalFileWriter.ENCODING_DOUBLE) {
+                values.asDoubleBuffer().get(column, row, count);
+            } else {
+                for (int i = row; i < row + count; i++) {
+                    short value = values.getShort();
+                    column[i] = value == BvalFileWriter.FIXED_POINT_NA
+                            ? Double.NaN
+                            : value / BvalFileWriter.FIXED_POINT_SCALE;
+                }
+            }
+            row += count;
+        }
+        return column;
+    }
+
+    private static String readString(DataInputStream input, long fileSize) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > fileSize) {
+            throw new IOException("invalid length of a text field");
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
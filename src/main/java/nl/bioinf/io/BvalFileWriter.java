@@ -0,0 +1,129 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.MethylationArray;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes a {@link MethylationArray} to a binary .bval file, which can be read back by {@link BvalFileReader} without
+ * parsing any text. The file consists of:
+ * <ul>
+ *     <li>the magic bytes "BVAL" and the format version</li>
+ *     <li>the sample index and the full header line, including the samples</li>
+ *     <li>the amount of rows and samples</li>
+ *     <li>the genomic information (annotation columns) of every row</li>
+ *     <li>the encoding of the beta values, followed by the beta values sample by sample</li>
+ *     <li>a CRC32 checksum of everything before it</li>
+ * </ul>
+ * Beta values with up to four decimals, which is almost always the case, are packed as 2 byte multiples of
+ * 1 / {@link #FIXED_POINT_SCALE} with {@link #FIXED_POINT_NA} marking a missing value, so a file takes a quarter of
+ * the space of the values as doubles. Other data is written as 8 byte doubles (NaN marks a missing value), both
+ * encodings give back exactly the same doubles. All numbers are written big-endian, Strings as their amount of bytes
+ * followed by the UTF-8 bytes.
+ */
+public class BvalFileWriter {
+    private static final Logger logger = LogManager.getLogger();
+    static final byte[] MAGIC = {'B', 'V', 'A', 'L'};
+    static final int VERSION = 2;
+    static final byte ENCODING_FIXED_POINT = 0;
+    static final byte ENCODING_DOUBLE = 1;
+    static final double FIXED_POINT_SCALE = 10_000;
+    static final short FIXED_POINT_NA = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     *
+     * @param data           {@link MethylationArray}
+     * @param outputFilePath path to write the resulting file to.
+     * @throws IOException for instances where file writing failed
+     */
+    public static void writeFile(MethylationArray data, Path outputFilePath) throws IOException {
+        CRC32 checksum = new CRC32();
+
+        try (OutputStream fileStream = Files.newOutputStream(outputFilePath)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(fileStream, checksum), BUFFER_SIZE));
+
+            output.write(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(data.getSampleIndex());
+            writeString(output, data.getHeader());
+            output.writeInt(data.getRowCount());
+            output.writeInt(data.getSampleCount());
+
+            for (int row = 0; row < data.getRowCount(); row++) {
+                writeString(output, data.getLocation(row));
+            }
+
+            boolean fixedPoint = fitsFixedPoint(data);
+            output.writeByte(fixedPoint ? ENCODING_FIXED_POINT : ENCODING_DOUBLE);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            for (int sample = 0; sample < data.getSampleCount(); sample++) {
+                for (int row = 0; row < data.getRowCount(); row++) {
+                    if (!buffer.hasRemaining()) {
+                        output.write(buffer.array(), 0, buffer.position());
+                        buffer.clear();
+                    }
+                    double value = data.getBetaValue(row, sample);
+                    if (!fixedPoint) {
+                        buffer.putDouble(value);
+                    } else {
+                        buffer.putShort(Double.isNaN(value)
+                                ? FIXED_POINT_NA
+                                : (short) Math.round(value * FIXED_POINT_SCALE));
+                    }
+                }
+            }
+            output.write(buffer.array(), 0, buffer.position());
+            output.flush();
+
+            // The checksum itself is written directly to the file, so it is not part of the checksum
+            new DataOutputStream(fileStream).writeInt((int) checksum.getValue());
+
+            logger.debug("Output successfully written to: {}.", outputFilePath);
+            System.out.println("Output file generated at: '" + outputFilePath + "'");
+
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    outputFilePath, ex.getMessage());
+            throw ex;
+        }
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * @return whether every beta value is a multiple of 1 / FIXED_POINT_SCALE that is read back as exactly the same
+     * double, which holds for every value parsed from at most four decimals
+     */
+    private static boolean fitsFixedPoint(MethylationArray data) {
+        for (int sample = 0; sample < data.getSampleCount(); sample++) {
+            for (int row = 0; row < data.getRowCount(); row++) {
+                double value = data.getBetaValue(row, sample);
+                if (!Double.isNaN(value) && (value < 0 || value > 1
+                        || Math.round(value * FIXED_POINT_SCALE) / FIXED_POINT_SCALE != value)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -1,6 +1,8 @@
 package nl.bioinf.io;
 
 import nl.bioinf.model.ComparisonResults;
+import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PValueAdjustment;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -9,6 +11,7 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,12 +19,15 @@ import java.util.Map;
  * Writes a file containing the results of comparing the beta values of different samples / chromosomes / genes.
  * it does this using data ({@link nl.bioinf.comparing.MethylationArraySampleComparer})
  * generated by {@link nl.bioinf.comparing.MethylationArrayPosComparer}.
+ * When a {@link PValueAdjustment} is given, every method that results in a p-value gets a column with the adjusted
+ * p-values directly after its own column.
  */
 public class ComparisonFileWriter {
 
     private static final Logger logger = LogManager.getLogger();
     private final ComparisonResults data;
     private final Path pathFileOutput;
+    private final PValueAdjustment adjustment;
 
     /**
      *
@@ -29,8 +35,19 @@ public class ComparisonFileWriter {
      * @param filePathOutput Path to write the resulting file to.
      */
     public ComparisonFileWriter(ComparisonResults data, Path filePathOutput) {
+        this(data, filePathOutput, PValueAdjustment.NONE);
+    }
+
+    /**
+     *
+     * @param data           {@link ComparisonResults}
+     * @param filePathOutput Path to write the resulting file to.
+     * @param adjustment     {@link PValueAdjustment} applied to the p-values of every method
+     */
+    public ComparisonFileWriter(ComparisonResults data, Path filePathOutput, PValueAdjustment adjustment) {
         this.data = data;
         pathFileOutput = filePathOutput;
+        this.adjustment = adjustment;
     }
 
     /**
@@ -64,6 +81,9 @@ public class ComparisonFileWriter {
         header.append("Variable1,Variable2");
         for (String method : data.getStatisticMethods()) {
             header.append(",").append(method);
+            if (isAdjusted(method)) {
+                header.append(",").append(method).append("_").append(adjustment.getName());
+            }
         }
         header.append(String.format("%n"));
 
@@ -73,15 +93,44 @@ public class ComparisonFileWriter {
     private String createCompareFileBody() {
         int sampleIndex = 0;
         Map<String, List<Double>> statisticsResults = data.getStatisticsData();
+        Map<String, double[]> adjustedResults = adjustPValues(statisticsResults);
         StringBuilder newFileBody = new StringBuilder();
         for (String sample : data.getSampleVersusSampleNames()) {
             newFileBody.append(sample);
             for (String method : data.getStatisticMethods()) {
                 newFileBody.append(",").append(statisticsResults.get(method).get(sampleIndex));
+                if (isAdjusted(method)) {
+                    newFileBody.append(",").append(adjustedResults.get(method)[sampleIndex]);
+                }
             }
             newFileBody.append(String.format("%n"));
             sampleIndex++;
         }
         return newFileBody.toString();
     }
+
+    /**
+     * Adjusts the p-values of every method that is adjusted, all comparisons of a method form one family of tests
+     *
+     * @return Map with the method as key and the adjusted p-values of every comparison as value
+     */
+    private Map<String, double[]> adjustPValues(Map<String, List<Double>> statisticsResults) {
+        Map<String, double[]> adjustedResults = new HashMap<>();
+        for (String method : data.getStatisticMethods()) {
+            if (isAdjusted(method)) {
+                double[] pValues = statisticsResults.get(method).stream()
+                        .mapToDouble(Double::doubleValue)
+                        .toArray();
+                adjustedResults.put(method, adjustment.adjust(pValues));
+            }
+        }
+        return adjustedResults;
+    }
+
+    /**
+     * @return whether the method gets a column of adjusted p-values
+     */
+    private boolean isAdjusted(String method) {
+        return adjustment != PValueAdjustment.NONE && StatisticalMethods.resultsInPValue(method);
+    }
 }
@@ -0,0 +1,56 @@
+package nl.bioinf.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes a correlation matrix of samples to a file, with the sample names as header and as first column.
+ * it does this using data generated by {@link nl.bioinf.comparing.SpearmanCorrelationMatrix}.
+ */
+public class CorrelationMatrixWriter {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     *
+     * @param samples        names of the samples, in the order of the matrix
+     * @param correlations   symmetric matrix with the correlation of every pair of samples
+     * @param outputFilePath path to write the resulting file to.
+     * @throws IOException for instances where file writing failed
+     */
+    public static void writeFile(String[] samples, double[][] correlations, Path outputFilePath) throws IOException {
+        File filePath = new File(outputFilePath.toUri());
+        logger.info("Writing correlation matrix to file: {}.", filePath);
+
+        try (BufferedWriter newFile = new BufferedWriter(new FileWriter(filePath))) {
+            StringBuilder line = new StringBuilder("Sample");
+            for (String sample : samples) {
+                line.append(',').append(sample);
+            }
+            newFile.write(String.format("%s%n", line));
+
+            for (int i = 0; i < samples.length; i++) {
+                line.setLength(0);
+                line.append(samples[i]);
+                for (double correlation : correlations[i]) {
+                    line.append(',').append(correlation);
+                }
+                newFile.write(String.format("%s%n", line));
+            }
+
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+        logger.info("Output generated at: {}", filePath);
+    }
+}
@@ -0,0 +1,178 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.ComparisonResultSink;
+import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PValueAdjustment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+/**
+ * Writes the results of comparisons to a csv file as soon as they are received, in the same layout as
+ * {@link ComparisonFileWriter}. Rows go through a buffer of fixed size, so memory does not grow with the amount of
+ * comparisons and finished comparisons are on disk when the run is stopped.
+ * <p>
+ * When a {@link PValueAdjustment} is given the rows are first written to a {@link PValueSpillFile}, keeping only the
+ * p-values in memory. On {@link #close()} the p-values are adjusted and the rows are copied to the output file with
+ * the adjusted p-values next to the p-values of every method. After {@link #abort()} the rows are copied without
+ * the adjusted p-values, as p-values adjusted over part of the comparisons would be wrong.
+ */
+public class CsvComparisonSink implements ComparisonResultSink {
+    private static final Logger logger = LogManager.getLogger();
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Path outputFilePath;
+    private final String[] methods;
+    private final PValueAdjustment adjustment;
+    // Indexes of the methods whose p-values are adjusted
+    private final int[] adjustedMethods;
+    // Holds the rows until the p-values are adjusted, null when the rows are written to the output file directly
+    private final PValueSpillFile spillFile;
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder();
+    private final double[] rowPValues;
+    private boolean aborted;
+
+    /**
+     *
+     * @param outputFilePath Path to write the resulting file to.
+     * @param methods        statistical methods, in the order of the results passed to {@link #accept}
+     * @throws IOException for instances where file writing failed
+     */
+    public CsvComparisonSink(Path outputFilePath, String[] methods) throws IOException {
+        this(outputFilePath, methods, PValueAdjustment.NONE);
+    }
+
+    /**
+     *
+     * @param outputFilePath Path to write the resulting file to.
+     * @param methods        statistical methods, in the order of the results passed to {@link #accept}
+     * @param adjustment     {@link PValueAdjustment} applied to the p-values of every method
+     * @throws IOException for instances where file writing failed
+     */
+    public CsvComparisonSink(Path outputFilePath, String[] methods, PValueAdjustment adjustment) throws IOException {
+        this.outputFilePath = outputFilePath;
+        this.methods = methods.clone();
+        this.adjustment = adjustment;
+        adjustedMethods = IntStream.range(0, methods.length)
+                .filter(method -> isAdjusted(methods[method]))
+                .toArray();
+        rowPValues = new double[adjustedMethods.length];
+        logger.info("Writing data to file: {}.", outputFilePath);
+
+        try {
+            if (adjustedMethods.length == 0) {
+                spillFile = null;
+                writer = new BufferedWriter(new FileWriter(new File(outputFilePath.toUri())), BUFFER_SIZE);
+            } else {
+                spillFile = new PValueSpillFile(outputFilePath, "bval-comparisons", adjustment,
+                        adjustedMethods.length);
+                writer = spillFile.getWriter();
+            }
+            writer.write(createHeader(true) + System.lineSeparator());
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void accept(String variable1, String variable2, double[] results) throws IOException {
+        line.setLength(0);
+        line.append(variable1).append(',').append(variable2);
+        for (double result : results) {
+            line.append(',').append(result);
+        }
+        line.append(System.lineSeparator());
+        writer.write(line.toString());
+
+        if (spillFile != null) {
+            for (int i = 0; i < adjustedMethods.length; i++) {
+                rowPValues[i] = results[adjustedMethods[i]];
+            }
+            spillFile.addPValues(rowPValues);
+        }
+    }
+
+    /**
+     * Marks the comparisons as failed, {@link #close()} then writes the rows without adjusted p-values
+     */
+    @Override
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Closes the file, when adjusting p-values the rows are first copied to the output file with the adjusted
+     * p-values inserted
+     *
+     * @throws IOException for instances where file writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (spillFile == null) {
+            writer.close();
+            logger.info("Output generated at: {}", outputFilePath);
+            return;
+        }
+        try {
+            if (aborted) {
+                logger.warn("Comparisons did not finish, writing the results of {} comparisons without adjusted " +
+                        "p-values to: {}", spillFile.getRowCount(), outputFilePath);
+                spillFile.writeUnadjusted(createHeader(false));
+            } else {
+                spillFile.writeOutput(this::insertAdjustedPValues);
+            }
+            logger.info("Output generated at: {}", outputFilePath);
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @param withAdjusted whether to add the names of the columns with adjusted p-values
+     */
+    private String createHeader(boolean withAdjusted) {
+        StringBuilder header = new StringBuilder("Variable1,Variable2");
+        for (String method : methods) {
+            header.append(",").append(method);
+            if (withAdjusted && isAdjusted(method)) {
+                header.append(",").append(method).append("_").append(adjustment.getName());
+            }
+        }
+        return header.toString();
+    }
+
+    /**
+     * Inserts the adjusted p-value of every adjusted method after its p-value
+     */
+    private void insertAdjustedPValues(String row, double[] adjustedPValues, StringBuilder output) {
+        String[] fields = row.split(",", -1);
+        output.append(fields[0]).append(',').append(fields[1]);
+        int adjusted = 0;
+        for (int method = 0; method < methods.length; method++) {
+            output.append(',').append(fields[method + 2]);
+            if (adjusted < adjustedMethods.length && adjustedMethods[adjusted] == method) {
+                output.append(',').append(adjustedPValues[adjusted++]);
+            }
+        }
+    }
+
+    private boolean isAdjusted(String method) {
+        return adjustment != PValueAdjustment.NONE && StatisticalMethods.resultsInPValue(method);
+    }
+}
@@ -0,0 +1,116 @@
+package nl.bioinf.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes doubles with a fixed amount of decimals as ASCII digits into a byte array, giving the same text as
+ * {@code String.format(Locale.US, "%.2f", value)} (for a precision of 2) without creating any objects. Values are
+ * scaled and rounded directly, only values that are negative, very large or (almost) exactly halfway between two
+ * results are handed to {@link String#format}, as their rounding depends on the shortest decimal notation of the
+ * double.
+ */
+public class DecimalEncoder {
+    private static final Logger logger = LogManager.getLogger();
+    public static final int MAX_PRECISION = 9;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+    // Scaled values below this are rounded directly, their ulp (at most 1.2e-7) stays far below TIE_MARGIN
+    private static final double MAX_FAST_SCALED = 1e9;
+    // Scaled values whose fraction is this close to 0.5 are rounded by String.format
+    private static final double TIE_MARGIN = 1e-6;
+    // Longest text String.format can give: sign, 309 integer digits and the decimal point
+    private static final int MAX_FALLBACK_INTEGER_LENGTH = 311;
+    private static final byte[] NAN = "NaN".getBytes(StandardCharsets.US_ASCII);
+    private final int precision;
+    private final double scale;
+    private final String fallbackFormat;
+
+    /**
+     *
+     * @param precision amount of decimals to write, between 0 and {@link #MAX_PRECISION}
+     * @throws IllegalArgumentException whenever the precision is out of range
+     */
+    public DecimalEncoder(int precision) throws IllegalArgumentException {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            logger.error("Invalid amount of decimals: '{}', please provide a number between 0 and {}.",
+                    precision, MAX_PRECISION);
+            throw new IllegalArgumentException();
+        }
+        this.precision = precision;
+        scale = POWERS_OF_TEN[precision];
+        fallbackFormat = "%." + precision + "f";
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return the largest amount of bytes {@link #encode} writes for a single value
+     */
+    public int getMaxLength() {
+        return MAX_FALLBACK_INTEGER_LENGTH + precision;
+    }
+
+    /**
+     * Writes one value, NaN is written as "NaN"
+     *
+     * @param value  value to write
+     * @param buffer byte array to write to, needs at least {@link #getMaxLength()} bytes from offset
+     * @param offset index in buffer to write the first byte to
+     * @return index in buffer directly after the last written byte
+     */
+    public int encode(double value, byte[] buffer, int offset) {
+        if (Double.isNaN(value)) {
+            System.arraycopy(NAN, 0, buffer, offset, NAN.length);
+            return offset + NAN.length;
+        }
+
+        double scaled = value * scale;
+        // The sign bit also catches -0.0, which is written as "-0.00"
+        if (Double.doubleToRawLongBits(value) < 0 || !(scaled < MAX_FAST_SCALED)) {
+            return encodeFallback(value, buffer, offset);
+        }
+        long integer = (long) scaled;
+        double fraction = scaled - integer;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            return encodeFallback(value, buffer, offset);
+        }
+        long rounded = fraction > 0.5 ? integer + 1 : integer;
+
+        offset = writeDigits(rounded / POWERS_OF_TEN[precision], buffer, offset, 1);
+        if (precision > 0) {
+            buffer[offset++] = '.';
+            offset = writeDigits(rounded % POWERS_OF_TEN[precision], buffer, offset, precision);
+        }
+        return offset;
+    }
+
+    /**
+     * Writes a non-negative number, padded with leading zeros to at least minDigits digits
+     */
+    private static int writeDigits(long number, byte[] buffer, int offset, int minDigits) {
+        int digitCount = 1;
+        while (digitCount < POWERS_OF_TEN.length && number >= POWERS_OF_TEN[digitCount]) {
+            digitCount++;
+        }
+        digitCount = Math.max(digitCount, minDigits);
+        for (int i = offset + digitCount - 1; i >= offset; i--) {
+            buffer[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        return offset + digitCount;
+    }
+
+    private int encodeFallback(double value, byte[] buffer, int offset) {
+        String text = String.format(Locale.US, fallbackFormat, value);
+        for (int i = 0; i < text.length(); i++) {
+            buffer[offset + i] = (byte) text.charAt(i);
+        }
+        return offset + text.length();
+    }
+}
@@ -1,22 +1,26 @@
 package nl.bioinf.io;
 
 import nl.bioinf.model.MethylationArray;
-import nl.bioinf.model.MethylationData;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.util.Locale;
 
 /**
- * Writes the data {@link MethylationArray} after filtering to a file.
+ * Writes the data {@link MethylationArray} after filtering to a file. Rows are encoded into bytes one at a time, so
+ * the output is never held in memory as a whole.
  */
 public class FilterFileWriter {
     private static final Logger logger = LogManager.getLogger();
+    // Amount of decimals of every beta value, unless specified otherwise
+    public static final int DEFAULT_PRECISION = 2;
+    private static final int BUFFER_SIZE = 1 << 16;
 
     /**
      *
@@ -25,14 +29,26 @@ public class FilterFileWriter {
      * @throws IOException for instances where file writing failed
      */
     public static void writeFile(MethylationArray data, Path outputFilePath) throws IOException {
+        writeFile(data, outputFilePath, DEFAULT_PRECISION);
+    }
+
+    /**
+     *
+     * @param data           {@link MethylationArray}
+     * @param outputFilePath path to write the resulting file to.
+     * @param precision      amount of decimals of every beta value
+     * @throws IOException              for instances where file writing failed
+     * @throws IllegalArgumentException whenever the precision is out of range
+     */
+    public static void writeFile(MethylationArray data, Path outputFilePath, int precision)
+            throws IOException, IllegalArgumentException {
+        RowEncoder rowEncoder = new RowEncoder(precision);
         File filePath = new File(outputFilePath.toUri());
 
-        try (BufferedWriter newFile = new BufferedWriter(new FileWriter(filePath))) {
+        try (OutputStream newFile = new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE)) {
             String headerToWrite = data.getHeader();
-            newFile.write(String.format("%s%n", headerToWrite));
-            StringBuilder sb = writeData(data);
-
-            newFile.write(sb.toString());
+            newFile.write(String.format("%s%n", headerToWrite).getBytes(StandardCharsets.UTF_8));
+            writeData(data, rowEncoder, newFile);
 
             logger.debug("Output successfully written to: {}.", filePath);
             System.out.println("Output file generated at: '" + filePath + "'");
@@ -48,25 +64,15 @@ public class FilterFileWriter {
         }
     }
 
-    private static StringBuilder writeData(MethylationArray data) {
-        StringBuilder sb = new StringBuilder();
-
-        for (MethylationData lineData : data.getData()) {
-            sb.append(lineData.methylationLocation());
+    private static void writeData(MethylationArray data, RowEncoder rowEncoder, OutputStream output)
+            throws IOException {
+        double[] rowValues = new double[data.getSampleCount()];
 
-            for (Double val : lineData.betaValues()) {
-                if (val.isNaN()) {
-                    sb.append(Double.NaN);
-                } else {
-                    // Changes commas in numbers to periods,
-                    // to be able to distinguish from comma line separator (csv)
-                    sb.append(String.format(Locale.US, "%.2f", val));
-                }
-                sb.append(',');
+        for (int row = 0; row < data.getRowCount(); row++) {
+            for (int sample = 0; sample < rowValues.length; sample++) {
+                rowValues[sample] = data.getBetaValue(row, sample);
             }
-            sb.deleteCharAt(sb.length() - 1);
-            sb.append(System.lineSeparator());
+            rowEncoder.writeRow(output, data.getLocation(row), rowValues, rowValues.length);
         }
-        return sb;
     }
 }
@@ -0,0 +1,73 @@
+package nl.bioinf.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Writes filtered rows to a file as soon as they are produced, in the same format as {@link FilterFileWriter}.
+ */
+public class FilterRowWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final OutputStream writer;
+    private final RowEncoder rowEncoder;
+
+    /**
+     *
+     * @param outputFilePath path to write the resulting file to.
+     * @param header         full header line, including the samples
+     * @throws IOException for instances where file writing failed
+     */
+    public FilterRowWriter(Path outputFilePath, String header) throws IOException {
+        this(outputFilePath, header, FilterFileWriter.DEFAULT_PRECISION);
+    }
+
+    /**
+     *
+     * @param outputFilePath path to write the resulting file to.
+     * @param header         full header line, including the samples
+     * @param precision      amount of decimals of every beta value
+     * @throws IOException              for instances where file writing failed
+     * @throws IllegalArgumentException whenever the precision is out of range
+     */
+    public FilterRowWriter(Path outputFilePath, String header, int precision)
+            throws IOException, IllegalArgumentException {
+        rowEncoder = new RowEncoder(precision);
+        File filePath = new File(outputFilePath.toUri());
+        try {
+            writer = new BufferedOutputStream(new FileOutputStream(filePath), BUFFER_SIZE);
+            writer.write(String.format("%s%n", header).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes one row of data.
+     *
+     * @param methylationLocation String that contains the genomic information of the row
+     * @param betaValues          beta values of the row, one per sample
+     * @throws IOException for instances where file writing failed
+     */
+    public void writeRow(String methylationLocation, double[] betaValues) throws IOException {
+        rowEncoder.writeRow(writer, methylationLocation, betaValues, betaValues.length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
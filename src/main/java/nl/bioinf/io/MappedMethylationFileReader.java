@@ -0,0 +1,221 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.HeaderIndexLocation;
+import nl.bioinf.model.MethylationArray;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the input file containing the beta values by mapping it into memory. Delimiters are scanned and beta values
+ * are parsed directly from the mapped bytes using {@link BetaValueParser}, only the genomic information of a row is
+ * decoded to a String. The resulting {@link MethylationArray} is the same as the one of {@link MethylationFileReader}.
+ */
+public class MappedMethylationFileReader {
+    private static final Logger logger = LogManager.getLogger();
+    // A single mapping cannot exceed Integer.MAX_VALUE bytes, larger files are mapped in line-aligned windows
+    private static final long MAX_WINDOW_BYTES = 1L << 30;
+    private MethylationArray methylationData;
+
+    public MappedMethylationFileReader() {
+        methylationData = new MethylationArray();
+    }
+
+    /**
+     * Tries to read the file at the user-provided file path and converts it to a MethylationArray datatype.
+     *
+     * @param filePath    which refers to the path for the input file
+     * @param sampleIndex index of first sample column (int), passed by user
+     * @throws IOException              for instances where reading the file failed
+     * @throws IllegalArgumentException whenever the file contains an invalid header or invalid beta values
+     */
+    public void readCSV(Path filePath, int sampleIndex) throws IOException, IllegalArgumentException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long headerEnd = findLineEnd(channel, 0, fileSize);
+            methylationData = readHeader(channel, headerEnd, filePath, sampleIndex);
+
+            List<String> locations = new ArrayList<>();
+            BetaValueMatrix betaValues = new BetaValueMatrix(methylationData.getSampleCount());
+            long start = Math.min(headerEnd + 1, fileSize);
+
+            while (start < fileSize) {
+                long end = start + MAX_WINDOW_BYTES >= fileSize ? fileSize
+                        : findLineEnd(channel, start + MAX_WINDOW_BYTES, fileSize) + 1;
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(end, fileSize) - start);
+                parseRows(window, sampleIndex, methylationData.getSampleCount(), locations, betaValues);
+                start = end;
+            }
+            methylationData.addData(locations, betaValues);
+
+        } catch (NoSuchFileException ex) {
+            logger.error("""
+                            Failed to find the provided file: '{}'.\s
+                            Exception occurred: '{}'.\s
+                            """,
+                    ex.getMessage(), ex);
+            throw new IOException();
+
+        } catch (IOException ex) {
+            logger.error("Unexpected IO error for provided file: {}. Provided file path might be a directory " +
+                            "or might not have proper permissions, file path: {}.",
+                    ex.getMessage(), filePath);
+            throw ex;
+        }
+    }
+
+    public MethylationArray getData() {
+        return methylationData;
+    }
+
+    /**
+     * Reads the header line and builds a {@link MethylationArray} holding the header information, without rows
+     *
+     * @param channel     channel of the input file
+     * @param headerEnd   position of the line feed after the header
+     * @param filePath    path of the input file, used for logging
+     * @param sampleIndex index of first sample column (int), passed by user
+     * @return {@link MethylationArray} holding the header, samples and index information
+     * @throws IOException whenever the file is empty
+     */
+    static MethylationArray readHeader(FileChannel channel, long headerEnd, Path filePath, int sampleIndex)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) headerEnd);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // Keep reading until the whole header is in the buffer
+        }
+        String headerLine = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+        if (headerLine.endsWith("\r")) {
+            headerLine = headerLine.substring(0, headerLine.length() - 1);
+        }
+
+        if (headerLine.isBlank()) {
+            logger.error("""
+                    Provided file: '{}' is empty, please provide a file with beta values, gene/chr regions and samples.
+                    """, filePath);
+            throw new IOException();
+        }
+
+        MethylationArray headerData = new MethylationArray();
+        headerData.setSampleIndex(sampleIndex);
+        headerData.setHeader(headerLine, sampleIndex);
+        headerData.setSamples(MethylationFileReader.getSamples(headerLine, sampleIndex));
+        headerData.setIndexInformation(new HeaderIndexLocation(headerLine));
+        return headerData;
+    }
+
+    /**
+     * Finds the position of the first line feed at or after a position
+     *
+     * @param channel  channel of the input file
+     * @param position position to start searching from
+     * @param fileSize size of the file in bytes
+     * @return position of the line feed, or the file size if there is none
+     * @throws IOException for instances where reading the file failed
+     */
+    static long findLineEnd(FileChannel channel, long position, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Parses all lines between the position and limit of the buffer
+     *
+     * @param buffer      buffer holding whole lines of the input file
+     * @param sampleIndex index of first sample column (int), passed by user
+     * @param sampleCount amount of samples in the header
+     * @param locations   list to add the genomic information of every row to
+     * @param betaValues  {@link BetaValueMatrix} to add the beta values of every row to
+     * @throws IllegalArgumentException whenever a row contains invalid beta values
+     */
+    static void parseRows(ByteBuffer buffer, int sampleIndex, int sampleCount, List<String> locations,
+                          BetaValueMatrix betaValues) throws IllegalArgumentException {
+        double[] rowValues = new double[sampleCount];
+        int position = buffer.position();
+        int limit = buffer.limit();
+
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int nextLine = lineEnd + 1;
+            if (lineEnd > position && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+
+            locations.add(parseLine(buffer, position, lineEnd, sampleIndex, rowValues));
+            betaValues.addRow(rowValues);
+            position = nextLine;
+        }
+    }
+
+    /**
+     * Parses one line, storing its beta values in rowValues
+     *
+     * @return String containing all data of the line, excluding the beta values
+     */
+    private static String parseLine(ByteBuffer buffer, int lineStart, int lineEnd, int sampleIndex,
+                                    double[] rowValues) throws IllegalArgumentException {
+        // Find the end of the genomic information, directly after the comma in front of the first sample
+        int locationEnd = lineStart;
+        for (int column = 0; column < sampleIndex && locationEnd <= lineEnd; column++) {
+            while (locationEnd < lineEnd && buffer.get(locationEnd) != ',') {
+                locationEnd++;
+            }
+            locationEnd++;
+        }
+
+        // Every comma starts a value, so an empty value at the end of the line is missing like one in the middle
+        int valueCount = 0;
+        int cellStart = locationEnd;
+        while (cellStart <= lineEnd) {
+            int cellEnd = cellStart;
+            while (cellEnd < lineEnd && buffer.get(cellEnd) != ',') {
+                cellEnd++;
+            }
+            if (valueCount < rowValues.length) {
+                rowValues[valueCount] = BetaValueParser.parse(buffer, cellStart, cellEnd);
+            }
+            valueCount++;
+            cellStart = cellEnd + 1;
+        }
+
+        if (valueCount != rowValues.length) {
+            logger.error("""
+                    Unmatched argument lengths, n. of beta values: '{}', n. of samples '{}'.
+                    """, valueCount, rowValues.length);
+            throw new IllegalArgumentException();
+        }
+        return decode(buffer, lineStart, Math.min(locationEnd, lineEnd + 1));
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -33,7 +33,7 @@ public class MethylationFileReader {
      * @param sampleIndex: index of first sample column (int), passed by user
      * @return samples: ArrayList with samples, represented as strings
      */
-    private static ArrayList<String> getSamples(String header, int sampleIndex) {
+    static ArrayList<String> getSamples(String header, int sampleIndex) {
 
         ArrayList<String> samples = new ArrayList<>();
         String[] headerSplit = header.split(",");
@@ -52,34 +52,13 @@ public class MethylationFileReader {
      *
      * @param lineSplit:   contains the individual lines of the input file
      * @param sampleIndex: index of first sample column (int), passed by user
-     * @return betaValues: Arraylist containing the beta values per line, containing one beta value per sample
+     * @return betaValues: array containing the beta values per line, containing one beta value per sample
      */
-    private static ArrayList<Double> getBValues(String[] lineSplit, int sampleIndex) throws IllegalArgumentException {
-        ArrayList<Double> betaValues = new ArrayList<>();
-        String naValue = "NA";
-
-        double betaVal;
+    static double[] getBValues(String[] lineSplit, int sampleIndex) throws IllegalArgumentException {
+        double[] betaValues = new double[Math.max(lineSplit.length - sampleIndex, 0)];
 
         for (int i = sampleIndex; i < lineSplit.length; i++) {
-            if (lineSplit[i].equals(naValue)) {
-                betaValues.add(Double.NaN);
-                continue;
-            }
-            try {
-                betaVal = Double.parseDouble(lineSplit[i]);
-            } catch (NumberFormatException ex) {
-                logger.error("Invalid beta value: '{}', could not parse to double. Check if correct sample " +
-                        "index [-si] was provided and make sure all beta values are either numbers in the range of [0-1] " +
-                        "or NaN.", lineSplit[i]);
-                throw new IllegalArgumentException("Stopped run, due to invalid beta value: " + lineSplit[i]);
-            }
-
-            if (betaVal < 0 || betaVal > 1) {
-                logger.error("Beta value out of range: '{}', must be in range of [0-1].", betaVal);
-                throw new IllegalArgumentException();
-            }
-
-            betaValues.add(betaVal);
+            betaValues[i - sampleIndex] = BetaValueParser.parse(lineSplit[i]);
         }
         return betaValues;
     }
@@ -111,8 +90,8 @@ public class MethylationFileReader {
             methylationData.setIndexInformation(indexLocation);
 
             while ((line = br.readLine()) != null) {
-                String[] lineSplit = line.split(",");
-                ArrayList<Double> bValues;
+                String[] lineSplit = line.split(",", -1);
+                double[] bValues;
 
                 try {
                     bValues = getBValues(lineSplit, sampleIndex);
@@ -153,7 +132,7 @@ public class MethylationFileReader {
      * @param sampleIndex: index of first sample column (int), passed by user
      * @return String containing all data of one row, excluding the beta values
      */
-    private String buildMethylationLocation(String[] lineSplit, int sampleIndex) {
+    static String buildMethylationLocation(String[] lineSplit, int sampleIndex) {
         StringBuilder methylationLocation = new StringBuilder();
         for (int i = 0; i < sampleIndex; i++) {
             methylationLocation.append(lineSplit[i]);
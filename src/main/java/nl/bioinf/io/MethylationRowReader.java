@@ -0,0 +1,180 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.HeaderIndexLocation;
+import nl.bioinf.model.MethylationArray;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Reads the input file containing the beta values one row at a time, without building a {@link MethylationArray}
+ * of the whole file. Used for processing files that are too large to keep in memory.
+ */
+public class MethylationRowReader implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+    private final BufferedReader reader;
+    private final int sampleIndex;
+    private final MethylationArray headerData;
+    private String location;
+    private double[] betaValues;
+
+    /**
+     * Opens the file and parses the header line.
+     *
+     * @param filePath    path to the input file
+     * @param sampleIndex index of first sample column (int), passed by user
+     * @throws IOException whenever the file could not be opened or is empty
+     */
+    public MethylationRowReader(Path filePath, int sampleIndex) throws IOException {
+        this.sampleIndex = sampleIndex;
+
+        try {
+            reader = Files.newBufferedReader(filePath);
+        } catch (NoSuchFileException ex) {
+            logger.error("""
+                            Failed to find the provided file: '{}'.\s
+                            Exception occurred: '{}'.\s
+                            """,
+                    ex.getMessage(), ex);
+            throw new IOException();
+        }
+
+        try {
+            String headerLine = reader.readLine();
+
+            if (headerLine == null || headerLine.isBlank()) {
+                logger.error("""
+                        Provided file: '{}' is empty, please provide a file with beta values, gene/chr regions and samples.
+                        """, filePath);
+                throw new IOException();
+            }
+
+            headerData = new MethylationArray();
+            headerData.setSampleIndex(sampleIndex);
+            headerData.setHeader(headerLine, sampleIndex);
+            headerData.setSamples(MethylationFileReader.getSamples(headerLine, sampleIndex));
+            headerData.setIndexInformation(new HeaderIndexLocation(headerLine));
+        } catch (IOException | IllegalArgumentException ex) {
+            reader.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Gives the information of the header, the returned {@link MethylationArray} does not contain any rows.
+     *
+     * @return {@link MethylationArray} holding the header, samples and index information of the file
+     */
+    public MethylationArray getHeaderData() {
+        return headerData;
+    }
+
+    /**
+     * Reads the next row of the file.
+     *
+     * @return true if a row was read, false when the end of the file was reached
+     * @throws IOException              for instances where reading the file failed
+     * @throws IllegalArgumentException whenever the row contains invalid beta values
+     */
+    public boolean next() throws IOException, IllegalArgumentException {
+        String line = reader.readLine();
+        if (line == null) {
+            return false;
+        }
+
+        String[] lineSplit = line.split(",", -1);
+        betaValues = MethylationFileReader.getBValues(lineSplit, sampleIndex);
+
+        if (betaValues.length != headerData.getSampleCount()) {
+            logger.error("""
+                    Unmatched argument lengths, n. of beta values: '{}', n. of samples '{}'.
+                    """, betaValues.length, headerData.getSampleCount());
+            throw new IllegalArgumentException();
+        }
+        location = MethylationFileReader.buildMethylationLocation(lineSplit, sampleIndex);
+        return true;
+    }
+
+    /**
+     * Reads the next lines of the file without parsing them, so they can be parsed on other threads using
+     * {@link #parseRow(String, double[])}.
+     *
+     * @param lines array to store the lines in, at most lines.length lines are read
+     * @return amount of lines read, 0 when the end of the file was reached
+     * @throws IOException for instances where reading the file failed
+     */
+    public int readLines(String[] lines) throws IOException {
+        int count = 0;
+        String line;
+        while (count < lines.length && (line = reader.readLine()) != null) {
+            lines[count++] = line;
+        }
+        return count;
+    }
+
+    /**
+     * Parses the beta values of a line read with {@link #readLines(String[])}, without splitting the line. Safe to
+     * call from multiple threads at once.
+     *
+     * @param line       one line of the file
+     * @param betaValues array to store the beta values in, one per sample
+     * @return index in line directly after the comma in front of the first sample, the part in front of it is the
+     * genomic information of the row
+     * @throws IllegalArgumentException whenever the row contains invalid beta values
+     */
+    public int parseRow(String line, double[] betaValues) throws IllegalArgumentException {
+        // Find the end of the genomic information, directly after the comma in front of the first sample
+        int locationEnd = 0;
+        for (int column = 0; column < sampleIndex && locationEnd <= line.length(); column++) {
+            int comma = line.indexOf(',', locationEnd);
+            locationEnd = comma < 0 ? line.length() + 1 : comma + 1;
+        }
+
+        // Every comma starts a value, so an empty value at the end of the line is missing like one in the middle
+        int valueCount = 0;
+        int cellStart = locationEnd;
+        while (cellStart <= line.length()) {
+            int cellEnd = line.indexOf(',', cellStart);
+            if (cellEnd < 0) {
+                cellEnd = line.length();
+            }
+            if (valueCount < betaValues.length) {
+                betaValues[valueCount] = BetaValueParser.parse(line, cellStart, cellEnd);
+            }
+            valueCount++;
+            cellStart = cellEnd + 1;
+        }
+
+        if (valueCount != betaValues.length) {
+            logger.error("""
+                    Unmatched argument lengths, n. of beta values: '{}', n. of samples '{}'.
+                    """, valueCount, betaValues.length);
+            throw new IllegalArgumentException();
+        }
+        return Math.min(locationEnd, line.length());
+    }
+
+    /**
+     * @return String that contains the genomic information of the current row
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return beta values of the current row, one per sample
+     */
+    public double[] getBetaValues() {
+        return betaValues;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,156 @@
+package nl.bioinf.io;
+
+import nl.bioinf.statistics.PValueAdjustment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Temporary file next to an output file that holds the rows of a result file until the p-values of all rows are
+ * known, shared by the writers that adjust p-values while results are streamed to disk. Only the p-values are kept in
+ * memory (8 bytes per p-value); {@link #writeOutput(RowFormatter)} adjusts them and copies every row to the output
+ * file together with its adjusted p-values. When not all rows were written, {@link #writeUnadjusted(String)} copies
+ * the rows without them.
+ */
+class PValueSpillFile {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final Path outputFilePath;
+    private final PValueAdjustment adjustment;
+    private final Path spillFilePath;
+    private final BufferedWriter writer;
+    // p-values of every adjusted column, in the order the rows were written
+    private final double[][] pValues;
+    private int rowCount;
+
+    /**
+     *
+     * @param outputFilePath path the adjusted file is written to, the temporary file is created in the same directory
+     * @param prefix         prefix of the name of the temporary file
+     * @param adjustment     {@link PValueAdjustment} applied to every column of p-values
+     * @param columnCount    amount of p-values per row that are adjusted
+     * @throws IOException for instances where the temporary file could not be created
+     */
+    PValueSpillFile(Path outputFilePath, String prefix, PValueAdjustment adjustment, int columnCount)
+            throws IOException {
+        this.outputFilePath = outputFilePath;
+        this.adjustment = adjustment;
+        spillFilePath = Files.createTempFile(outputFilePath.toAbsolutePath().getParent(), prefix, ".tmp");
+        writer = Files.newBufferedWriter(spillFilePath, StandardCharsets.UTF_8);
+        pValues = new double[columnCount][1024];
+    }
+
+    /**
+     * @return writer of the temporary file, every line after the header is a row that gets adjusted p-values
+     */
+    BufferedWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Keeps the p-values of the row that was just written
+     *
+     * @param rowPValues one p-value per adjusted column
+     */
+    void addPValues(double[] rowPValues) {
+        if (rowCount == pValues[0].length) {
+            for (int column = 0; column < pValues.length; column++) {
+                pValues[column] = Arrays.copyOf(pValues[column], rowCount * 2);
+            }
+        }
+        for (int column = 0; column < pValues.length; column++) {
+            pValues[column][rowCount] = rowPValues[column];
+        }
+        rowCount++;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Adjusts the p-values and copies the rows of the temporary file to the output file, the header is copied as is.
+     * The temporary file is removed afterwards, also when writing failed.
+     *
+     * @param formatter adds the adjusted p-values to every row
+     * @throws IOException for instances where reading or writing failed
+     */
+    void writeOutput(RowFormatter formatter) throws IOException {
+        try {
+            writer.close();
+            double[][] adjustedPValues = new double[pValues.length][];
+            for (int column = 0; column < pValues.length; column++) {
+                adjustedPValues[column] = adjustment.adjust(Arrays.copyOf(pValues[column], rowCount));
+            }
+
+            double[] rowPValues = new double[pValues.length];
+            StringBuilder line = new StringBuilder();
+            try (BufferedReader reader = Files.newBufferedReader(spillFilePath, StandardCharsets.UTF_8);
+                 BufferedWriter output = openOutput()) {
+                // The header already holds the names of the adjusted columns
+                output.write(reader.readLine() + System.lineSeparator());
+                for (int row = 0; row < rowCount; row++) {
+                    for (int column = 0; column < pValues.length; column++) {
+                        rowPValues[column] = adjustedPValues[column][row];
+                    }
+                    line.setLength(0);
+                    formatter.format(reader.readLine(), rowPValues, line);
+                    line.append(System.lineSeparator());
+                    output.write(line.toString());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(spillFilePath);
+        }
+    }
+
+    /**
+     * Copies the rows of the temporary file to the output file as they are, without adjusted p-values, e.g. when not
+     * all rows were written and p-values adjusted over part of the rows would be wrong. The temporary file is removed
+     * afterwards, also when writing failed.
+     *
+     * @param header header of the output file, without the names of the adjusted columns
+     * @throws IOException for instances where reading or writing failed
+     */
+    void writeUnadjusted(String header) throws IOException {
+        try {
+            writer.close();
+            try (BufferedReader reader = Files.newBufferedReader(spillFilePath, StandardCharsets.UTF_8);
+                 BufferedWriter output = openOutput()) {
+                // The header of the temporary file holds the names of the adjusted columns
+                reader.readLine();
+                output.write(header + System.lineSeparator());
+                String row;
+                while ((row = reader.readLine()) != null) {
+                    output.write(row);
+                    output.write(System.lineSeparator());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(spillFilePath);
+        }
+    }
+
+    private BufferedWriter openOutput() throws IOException {
+        return new BufferedWriter(new FileWriter(new File(outputFilePath.toUri())), BUFFER_SIZE);
+    }
+
+    /**
+     * Builds a row of the output file from a row of the temporary file and its adjusted p-values
+     */
+    @FunctionalInterface
+    interface RowFormatter {
+        /**
+         * @param row             row as it was written to the temporary file, without line separator
+         * @param adjustedPValues adjusted p-value of every column of the row
+         * @param line            to append the output row to, without line separator
+         */
+        void format(String row, double[] adjustedPValues, StringBuilder line);
+    }
+}
@@ -0,0 +1,169 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.HeaderIndexLocation;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.ProbeAnnotations;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the input file containing the beta values using multiple threads. The file is split into byte ranges that
+ * start and end on a line boundary, every range is mapped and parsed on its own thread (see
+ * {@link MappedMethylationFileReader}) and the parsed ranges are joined in file order, so the resulting
+ * {@link MethylationArray} is the same as the one of {@link MethylationFileReader}.
+ */
+public class ParallelMethylationFileReader {
+    private static final Logger logger = LogManager.getLogger();
+    // Upper bound for the size of one range, keeps the memory mapped by one thread small
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+    // Amount of ranges per thread, more ranges than threads evens out differences in parsing time between ranges
+    private static final int CHUNKS_PER_THREAD = 4;
+    private final int threads;
+    private MethylationArray methylationData;
+
+    /**
+     *
+     * @param threads amount of threads used for parsing
+     */
+    public ParallelMethylationFileReader(int threads) {
+        this.threads = Math.max(threads, 1);
+        methylationData = new MethylationArray();
+    }
+
+    /**
+     * Tries to read the file at the user-provided file path and converts it to a MethylationArray datatype.
+     *
+     * @param filePath    which refers to the path for the input file
+     * @param sampleIndex index of first sample column (int), passed by user
+     * @throws IOException              for instances where reading the file failed
+     * @throws IllegalArgumentException whenever the file contains an invalid header or invalid beta values
+     */
+    public void readCSV(Path filePath, int sampleIndex) throws IOException, IllegalArgumentException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long headerEnd = MappedMethylationFileReader.findLineEnd(channel, 0, fileSize);
+            methylationData = MappedMethylationFileReader.readHeader(channel, headerEnd, filePath, sampleIndex);
+
+            int sampleCount = methylationData.getSampleCount();
+            HeaderIndexLocation indexInformation = methylationData.getIndexInformation();
+            List<Future<ParsedChunk>> chunks = new ArrayList<>();
+            for (long[] range : splitIntoRanges(channel, Math.min(headerEnd + 1, fileSize), fileSize)) {
+                chunks.add(executor.submit(() -> parseChunk(channel, range[0], range[1], sampleIndex, sampleCount,
+                        indexInformation)));
+            }
+            logger.debug("Parsing {} in {} ranges on {} threads", filePath, chunks.size(), threads);
+
+            for (Future<ParsedChunk> chunk : chunks) {
+                ParsedChunk parsedChunk = chunk.get();
+                methylationData.addData(parsedChunk.locations(), parsedChunk.betaValues(), parsedChunk.annotations());
+            }
+
+        } catch (NoSuchFileException ex) {
+            logger.error("""
+                            Failed to find the provided file: '{}'.\s
+                            Exception occurred: '{}'.\s
+                            """,
+                    ex.getMessage(), ex);
+            throw new IOException();
+
+        } catch (IOException ex) {
+            logger.error("Unexpected IO error for provided file: {}. Provided file path might be a directory " +
+                            "or might not have proper permissions, file path: {}.",
+                    ex.getMessage(), filePath);
+            throw ex;
+
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IllegalArgumentException cause) {
+                throw new IllegalArgumentException(cause.getMessage());
+            }
+            throw new IOException(ex.getCause());
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public MethylationArray getData() {
+        return methylationData;
+    }
+
+    /**
+     * Splits the data part of the file in ranges that each end directly after a line separator
+     *
+     * @param channel   channel of the input file
+     * @param dataStart position of the first byte after the header
+     * @param fileSize  size of the file in bytes
+     * @return list of [start, end) byte positions
+     * @throws IOException for instances where reading the file failed
+     */
+    private List<long[]> splitIntoRanges(FileChannel channel, long dataStart, long fileSize) throws IOException {
+        long dataSize = fileSize - dataStart;
+        long chunkCount = Math.max((long) threads * CHUNKS_PER_THREAD, (dataSize + MAX_CHUNK_BYTES - 1) / MAX_CHUNK_BYTES);
+        long chunkSize = Math.max(dataSize / chunkCount, 1);
+
+        List<long[]> ranges = new ArrayList<>();
+        long start = dataStart;
+        while (start < fileSize) {
+            long end = start + chunkSize >= fileSize ? fileSize
+                    : MappedMethylationFileReader.findLineEnd(channel, start + chunkSize, fileSize) + 1;
+            ranges.add(new long[]{start, Math.min(end, fileSize)});
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * Parses all lines in a range of the file, directly from a mapping of the range
+     *
+     * @param channel          channel of the input file
+     * @param start            position of the first byte of the range
+     * @param end              position directly after the last byte of the range
+     * @param sampleIndex      index of first sample column (int), passed by user
+     * @param sampleCount      amount of samples in the header
+     * @param indexInformation {@link HeaderIndexLocation} used to parse the annotation columns
+     * @return {@link ParsedChunk} holding the rows of the range
+     * @throws IOException for instances where reading the file failed
+     */
+    private static ParsedChunk parseChunk(FileChannel channel, long start, long end, int sampleIndex,
+                                          int sampleCount, HeaderIndexLocation indexInformation) throws IOException {
+        List<String> locations = new ArrayList<>();
+        BetaValueMatrix betaValues = new BetaValueMatrix(sampleCount);
+        MappedMethylationFileReader.parseRows(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start),
+                sampleIndex, sampleCount, locations, betaValues);
+
+        ProbeAnnotations annotations = new ProbeAnnotations(indexInformation);
+        for (String location : locations) {
+            annotations.add(location);
+        }
+        return new ParsedChunk(locations, betaValues, annotations);
+    }
+
+    /**
+     * Rows parsed from one range of the file
+     *
+     * @param locations   Strings that contain the genomic information of every row
+     * @param betaValues  beta values of the rows
+     * @param annotations typed annotation columns of the rows
+     */
+    private record ParsedChunk(List<String> locations, BetaValueMatrix betaValues, ProbeAnnotations annotations) {
+    }
+}
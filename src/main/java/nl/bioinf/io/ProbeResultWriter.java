@@ -0,0 +1,154 @@
+package nl.bioinf.io;
+
+import nl.bioinf.statistics.PValueAdjustment;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the result of a per-probe comparison of two groups as soon as it is produced. Every line holds the
+ * annotation columns of the probe, followed by the amount of values and the mean of both groups, the test statistic
+ * and the p-value.
+ * <p>
+ * When a {@link PValueAdjustment} is given the adjusted p-values are only known after the last probe, so the rows
+ * are first written to a {@link PValueSpillFile}. Only the p-values are kept in memory (8 bytes per probe); on
+ * {@link #close()} they are adjusted and the rows are copied to the output file with the adjusted p-value appended.
+ * After {@link #abort()} the rows are copied without the adjusted p-value.
+ */
+public class ProbeResultWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+    private final Path outputFilePath;
+    private final PValueAdjustment adjustment;
+    // Header without the adjusted p-value column
+    private final String header;
+    // Holds the rows until the p-values are adjusted, null when the rows are written to the output file directly
+    private final PValueSpillFile spillFile;
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder();
+    private final double[] rowPValue = new double[1];
+    private boolean aborted;
+
+    /**
+     *
+     * @param outputFilePath   path to write the resulting file to.
+     * @param annotationHeader header of the annotation columns, including the trailing comma
+     * @param group1           name of the first group
+     * @param group2           name of the second group
+     * @throws IOException for instances where file writing failed
+     */
+    public ProbeResultWriter(Path outputFilePath, String annotationHeader, String group1, String group2)
+            throws IOException {
+        this(outputFilePath, annotationHeader, group1, group2, PValueAdjustment.NONE);
+    }
+
+    /**
+     *
+     * @param outputFilePath   path to write the resulting file to.
+     * @param annotationHeader header of the annotation columns, including the trailing comma
+     * @param group1           name of the first group
+     * @param group2           name of the second group
+     * @param adjustment       {@link PValueAdjustment} applied to the p-values of all probes
+     * @throws IOException for instances where file writing failed
+     */
+    public ProbeResultWriter(Path outputFilePath, String annotationHeader, String group1, String group2,
+                             PValueAdjustment adjustment) throws IOException {
+        this.outputFilePath = outputFilePath;
+        this.adjustment = adjustment;
+        header = String.format("%sn_%s,n_%s,mean_%s,mean_%s,statistic,p-value",
+                annotationHeader, group1, group2, group1, group2);
+        try {
+            if (adjustment == PValueAdjustment.NONE) {
+                spillFile = null;
+                writer = new BufferedWriter(new FileWriter(new File(outputFilePath.toUri())));
+                writer.write(header + System.lineSeparator());
+            } else {
+                spillFile = new PValueSpillFile(outputFilePath, "bval-probes", adjustment, 1);
+                writer = spillFile.getWriter();
+                writer.write(header + ",p-value_" + adjustment.getName() + System.lineSeparator());
+            }
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes the result of one probe.
+     *
+     * @param methylationLocation String that contains the genomic information of the probe
+     * @param count1              amount of values of the first group
+     * @param count2              amount of values of the second group
+     * @param mean1               mean of the first group
+     * @param mean2               mean of the second group
+     * @param statistic           test statistic
+     * @param pValue              p-value of the test
+     * @throws IOException for instances where file writing failed
+     */
+    public void writeRow(String methylationLocation, int count1, int count2, double mean1, double mean2,
+                         double statistic, double pValue) throws IOException {
+        line.setLength(0);
+        line.append(methylationLocation)
+                .append(count1).append(',')
+                .append(count2).append(',')
+                .append(mean1).append(',')
+                .append(mean2).append(',')
+                .append(statistic).append(',')
+                .append(pValue)
+                .append(System.lineSeparator());
+        writer.write(line.toString());
+
+        if (spillFile != null) {
+            rowPValue[0] = pValue;
+            spillFile.addPValues(rowPValue);
+        }
+    }
+
+    /**
+     * Marks the comparison as failed, {@link #close()} then writes the rows without adjusted p-values
+     */
+    public void abort() {
+        aborted = true;
+    }
+
+    /**
+     * Closes the file, when adjusting p-values the rows are first copied to the output file with the adjusted
+     * p-value appended
+     *
+     * @throws IOException for instances where file writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (spillFile == null) {
+            writer.close();
+            return;
+        }
+        try {
+            if (aborted) {
+                logger.warn("Comparison did not finish, writing the results of {} probes without adjusted " +
+                        "p-values to: {}", spillFile.getRowCount(), outputFilePath);
+                spillFile.writeUnadjusted(header);
+                return;
+            }
+            logger.info("Adjusting the p-values of {} probes using {}", spillFile.getRowCount(),
+                    adjustment.getName());
+            spillFile.writeOutput((row, adjustedPValues, output) ->
+                    output.append(row).append(',').append(adjustedPValues[0]));
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package nl.bioinf.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes the summary of every probe as soon as it is produced. Every line holds the annotation columns of the probe,
+ * followed by the amount of values, the fraction of missing values, the mean, variance, minimum, median and maximum.
+ */
+public class ProbeSummaryWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger();
+    private final BufferedWriter writer;
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     *
+     * @param outputFilePath   path to write the resulting file to.
+     * @param annotationHeader header of the annotation columns, including the trailing comma
+     * @throws IOException for instances where file writing failed
+     */
+    public ProbeSummaryWriter(Path outputFilePath, String annotationHeader) throws IOException {
+        try {
+            writer = new BufferedWriter(new FileWriter(new File(outputFilePath.toUri())));
+            writer.write(annotationHeader + "n,na_rate,mean,variance,min,median,max" + System.lineSeparator());
+        } catch (IOException ex) {
+            logger.error("""
+                            Unexpected IO error when writing to file: '{}'.\s
+                            Exception occurred: '{}'.
+                            """,
+                    ex.getMessage(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes the summary of one probe
+     *
+     * @param methylationLocation String that contains the genomic information of the probe
+     * @param count               amount of values that are not missing
+     * @param naRate              fraction of the values that is missing
+     * @param mean                mean of the values
+     * @param variance            sample variance of the values
+     * @param min                 smallest value
+     * @param median              median of the values
+     * @param max                 largest value
+     * @throws IOException for instances where file writing failed
+     */
+    public void writeRow(String methylationLocation, int count, double naRate, double mean, double variance,
+                         double min, double median, double max) throws IOException {
+        line.setLength(0);
+        line.append(methylationLocation)
+                .append(count).append(',')
+                .append(naRate).append(',')
+                .append(mean).append(',')
+                .append(variance).append(',')
+                .append(min).append(',')
+                .append(median).append(',')
+                .append(max)
+                .append(System.lineSeparator());
+        writer.write(line.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,76 @@
+package nl.bioinf.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes rows of filtered data into a reusable byte array, used by {@link FilterFileWriter} and
+ * {@link FilterRowWriter} so both write the same format. Beta values are written by a {@link DecimalEncoder}.
+ */
+class RowEncoder {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private final DecimalEncoder encoder;
+    private byte[] buffer = new byte[8192];
+
+    /**
+     *
+     * @param precision amount of decimals of every beta value
+     * @throws IllegalArgumentException whenever the precision is out of range
+     */
+    RowEncoder(int precision) throws IllegalArgumentException {
+        encoder = new DecimalEncoder(precision);
+    }
+
+    /**
+     * Writes one row of data, including the line separator
+     *
+     * @param output              stream to write the row to
+     * @param methylationLocation String that contains the genomic information of the row
+     * @param betaValues          beta values of the row
+     * @param count               amount of beta values to write
+     * @throws IOException for instances where writing failed
+     */
+    void writeRow(OutputStream output, String methylationLocation, double[] betaValues, int count)
+            throws IOException {
+        // Every character of the location takes at most 3 bytes in UTF-8
+        ensureCapacity(methylationLocation.length() * 3 + count * (encoder.getMaxLength() + 1)
+                + LINE_SEPARATOR.length);
+        int length = writeLocation(methylationLocation);
+
+        for (int i = 0; i < count; i++) {
+            length = encoder.encode(betaValues[i], buffer, length);
+            buffer[length++] = ',';
+        }
+        if (count > 0) {
+            length--;
+        }
+        System.arraycopy(LINE_SEPARATOR, 0, buffer, length, LINE_SEPARATOR.length);
+        output.write(buffer, 0, length + LINE_SEPARATOR.length);
+    }
+
+    /**
+     * Copies the location to the start of the buffer, ASCII characters are copied directly
+     *
+     * @return amount of bytes written
+     */
+    private int writeLocation(String methylationLocation) {
+        for (int i = 0; i < methylationLocation.length(); i++) {
+            char character = methylationLocation.charAt(i);
+            if (character >= 0x80) {
+                byte[] bytes = methylationLocation.getBytes(StandardCharsets.UTF_8);
+                System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+                return bytes.length;
+            }
+            buffer[i] = (byte) character;
+        }
+        return methylationLocation.length();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
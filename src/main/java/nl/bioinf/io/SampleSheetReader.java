@@ -0,0 +1,62 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.SampleSheet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Reads a sample sheet: a csv file with a header line, followed by one line per sample containing the name of the
+ * sample and the name of its group, e.g. "Sample1,case".
+ */
+public class SampleSheetReader {
+    private static final Logger logger = LogManager.getLogger();
+
+    /**
+     *
+     * @param filePath path of the sample sheet
+     * @return {@link SampleSheet} holding the group of every sample
+     * @throws IOException              for instances where reading the file failed
+     * @throws IllegalArgumentException whenever a line does not contain a sample and a group
+     */
+    public static SampleSheet readFile(Path filePath) throws IOException, IllegalArgumentException {
+        SampleSheet sampleSheet = new SampleSheet();
+
+        try (BufferedReader reader = Files.newBufferedReader(filePath)) {
+            // Skip header
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] lineSplit = line.split(",");
+                if (lineSplit.length < 2 || lineSplit[0].isBlank() || lineSplit[1].isBlank()) {
+                    logger.error("Invalid line in sample sheet: '{}', every line should contain a sample and " +
+                            "its group, separated by a comma.", line);
+                    throw new IllegalArgumentException();
+                }
+                sampleSheet.addSample(lineSplit[0].trim(), lineSplit[1].trim());
+            }
+
+        } catch (NoSuchFileException ex) {
+            logger.error("""
+                            Failed to find the provided file: '{}'.\s
+                            Exception occurred: '{}'.\s
+                            """,
+                    ex.getMessage(), ex);
+            throw new IOException();
+
+        } catch (IOException ex) {
+            logger.error("Unexpected IO error for provided file: {}. Provided file path might be a directory " +
+                            "or might not have proper permissions, file path: {}.",
+                    ex.getMessage(), filePath);
+            throw ex;
+        }
+        return sampleSheet;
+    }
+}
@@ -0,0 +1,147 @@
+package nl.bioinf.io;
+
+import nl.bioinf.summarizing.BetaValueSketch;
+import nl.bioinf.summarizing.CohortSummary;
+import nl.bioinf.summarizing.RunningStatistics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Writes a {@link CohortSummary} to a csv or json file, with the statistics of every sample and of the whole cohort.
+ * The json file also holds a histogram of the beta values of the cohort and of every sample.
+ */
+public class SummaryFileWriter {
+    private static final Logger logger = LogManager.getLogger();
+    // Amount of bins of the histograms, 20 bins of width 0.05
+    public static final int HISTOGRAM_BINS = 20;
+    private static final String COHORT = "cohort";
+    private static final String CSV_HEADER = "sample,n,na_count,na_rate,mean,variance,min,q1,median,q3,max";
+
+    /**
+     * Writes one line per sample, followed by a line with the statistics of all samples together
+     *
+     * @param summary        {@link CohortSummary} to write
+     * @param outputFilePath path to write the resulting file to.
+     * @throws IOException for instances where file writing failed
+     */
+    public static void writeCsv(CohortSummary summary, Path outputFilePath) throws IOException {
+        File filePath = new File(outputFilePath.toUri());
+
+        try (BufferedWriter newFile = new BufferedWriter(new FileWriter(filePath))) {
+            newFile.write(String.format("%s%n", CSV_HEADER));
+            StringBuilder line = new StringBuilder();
+            for (int sample = 0; sample < summary.getSamples().size(); sample++) {
+                appendCsvLine(line, summary.getSamples().get(sample), summary.getSampleStatistics(sample),
+                        summary.getSampleSketch(sample));
+            }
+            appendCsvLine(line, COHORT, summary.getCohortStatistics(), summary.getCohortSketch());
+            newFile.write(line.toString());
+
+        } catch (IOException ex) {
+            logError(ex);
+            throw ex;
+        }
+        logger.info("Summary generated at: {}", filePath);
+    }
+
+    /**
+     * Writes the statistics and histogram of the cohort and of every sample, missing statistics are written as null
+     *
+     * @param summary        {@link CohortSummary} to write
+     * @param outputFilePath path to write the resulting file to.
+     * @throws IOException for instances where file writing failed
+     */
+    public static void writeJson(CohortSummary summary, Path outputFilePath) throws IOException {
+        File filePath = new File(outputFilePath.toUri());
+
+        try (BufferedWriter newFile = new BufferedWriter(new FileWriter(filePath))) {
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"probes\":").append(summary.getRowCount())
+                    .append(",\"samples\":").append(summary.getSamples().size())
+                    .append(",\"histogram_bin_width\":").append(1.0 / HISTOGRAM_BINS)
+                    .append(",\"cohort\":");
+            appendJsonObject(json, COHORT, summary.getCohortStatistics(), summary.getCohortSketch());
+            json.append(",\"per_sample\":[");
+            for (int sample = 0; sample < summary.getSamples().size(); sample++) {
+                if (sample > 0) {
+                    json.append(',');
+                }
+                appendJsonObject(json, summary.getSamples().get(sample), summary.getSampleStatistics(sample),
+                        summary.getSampleSketch(sample));
+            }
+            json.append("]}").append(System.lineSeparator());
+            newFile.write(json.toString());
+
+        } catch (IOException ex) {
+            logError(ex);
+            throw ex;
+        }
+        logger.info("Summary generated at: {}", filePath);
+    }
+
+    private static void appendCsvLine(StringBuilder line, String name, RunningStatistics statistics,
+                                      BetaValueSketch sketch) {
+        line.append(name).append(',')
+                .append(statistics.getCount()).append(',')
+                .append(statistics.getNaCount()).append(',')
+                .append(statistics.getNaRate()).append(',')
+                .append(statistics.getMean()).append(',')
+                .append(statistics.getVariance()).append(',')
+                .append(statistics.getMin()).append(',')
+                .append(sketch.getQuantile(0.25)).append(',')
+                .append(sketch.getQuantile(0.5)).append(',')
+                .append(sketch.getQuantile(0.75)).append(',')
+                .append(statistics.getMax())
+                .append(System.lineSeparator());
+    }
+
+    private static void appendJsonObject(StringBuilder json, String name, RunningStatistics statistics,
+                                         BetaValueSketch sketch) {
+        json.append("{\"name\":\"").append(name.replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                .append(",\"n\":").append(statistics.getCount())
+                .append(",\"na_count\":").append(statistics.getNaCount());
+        appendJsonNumber(json, "na_rate", statistics.getNaRate());
+        appendJsonNumber(json, "mean", statistics.getMean());
+        appendJsonNumber(json, "variance", statistics.getVariance());
+        appendJsonNumber(json, "min", statistics.getMin());
+        appendJsonNumber(json, "q1", sketch.getQuantile(0.25));
+        appendJsonNumber(json, "median", sketch.getQuantile(0.5));
+        appendJsonNumber(json, "q3", sketch.getQuantile(0.75));
+        appendJsonNumber(json, "max", statistics.getMax());
+        json.append(",\"histogram\":[");
+        long[] histogram = sketch.getHistogram(HISTOGRAM_BINS);
+        for (int bin = 0; bin < histogram.length; bin++) {
+            if (bin > 0) {
+                json.append(',');
+            }
+            json.append(histogram[bin]);
+        }
+        json.append("]}");
+    }
+
+    /**
+     * Json has no NaN, missing statistics are written as null
+     */
+    private static void appendJsonNumber(StringBuilder json, String key, double value) {
+        json.append(",\"").append(key).append("\":");
+        if (Double.isNaN(value)) {
+            json.append("null");
+        } else {
+            json.append(value);
+        }
+    }
+
+    private static void logError(IOException ex) {
+        logger.error("""
+                        Unexpected IO error when writing to file: '{}'.\s
+                        Exception occurred: '{}'.
+                        """,
+                ex.getMessage(), ex);
+    }
+}
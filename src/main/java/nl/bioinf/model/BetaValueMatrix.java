@@ -0,0 +1,323 @@
+package nl.bioinf.model;
+
+import java.util.Arrays;
+
+/**
+ * Dense columnar storage for beta values. Values are stored sample-major: every sample (column) owns one
+ * contiguous primitive array, next to a bitmap that marks which of its values are missing (NaN). Projections of the
+ * samples share these arrays with the matrix they were taken from, shared arrays are copied before they are changed.
+ */
+public class BetaValueMatrix {
+    private static final int INITIAL_CAPACITY = 1024;
+    private final int sampleCount;
+    private double[][] columns;
+    private long[][] naBitmap;
+    private int rowCount;
+    private int capacity;
+    // Whether the column arrays may be referenced by another matrix, see projectColumns
+    private boolean shared = false;
+
+    /**
+     *
+     * @param sampleCount amount of samples (columns) the matrix holds
+     */
+    public BetaValueMatrix(int sampleCount) {
+        this(sampleCount, INITIAL_CAPACITY);
+    }
+
+    /**
+     *
+     * @param sampleCount      amount of samples (columns) the matrix holds
+     * @param expectedRowCount amount of rows to reserve space for, the matrix grows when more rows are added
+     */
+    public BetaValueMatrix(int sampleCount, int expectedRowCount) {
+        this.sampleCount = sampleCount;
+        this.capacity = Math.max(expectedRowCount, 1);
+        columns = new double[sampleCount][capacity];
+        naBitmap = new long[sampleCount][bitmapLength(capacity)];
+    }
+
+    /**
+     * Builds a matrix around existing columns, without copying them. The matrix takes ownership of the arrays.
+     *
+     * @param columns  beta values per sample (column), every array holds exactly rowCount values
+     * @param rowCount amount of rows in the columns
+     * @return new {@link BetaValueMatrix}
+     * @throws IllegalArgumentException whenever one of the columns does not hold rowCount values
+     */
+    public static BetaValueMatrix fromColumns(double[][] columns, int rowCount) throws IllegalArgumentException {
+        for (int sample = 0; sample < columns.length; sample++) {
+            if (columns[sample].length != rowCount) {
+                throw new IllegalArgumentException("Expected " + rowCount + " beta values in column " + sample
+                        + ", got " + columns[sample].length);
+            }
+        }
+        BetaValueMatrix matrix = new BetaValueMatrix(columns.length, 0);
+        matrix.columns = columns;
+        matrix.capacity = rowCount;
+        matrix.rowCount = rowCount;
+        for (int sample = 0; sample < columns.length; sample++) {
+            long[] bitmap = new long[bitmapLength(rowCount)];
+            double[] column = columns[sample];
+            for (int row = 0; row < rowCount; row++) {
+                if (Double.isNaN(column[row])) {
+                    bitmap[row >>> 6] |= 1L << row;
+                }
+            }
+            matrix.naBitmap[sample] = bitmap;
+        }
+        return matrix;
+    }
+
+    /**
+     * Appends a row of beta values, one value per sample
+     *
+     * @param betaValues beta values of one row, NaN marks a missing value
+     * @throws IllegalArgumentException whenever the amount of values does not match the amount of samples
+     */
+    public void addRow(double[] betaValues) throws IllegalArgumentException {
+        if (betaValues.length != sampleCount) {
+            throw new IllegalArgumentException("Expected " + sampleCount + " beta values, got " + betaValues.length);
+        }
+        ensureCapacity(rowCount + 1);
+        unshare();
+        for (int sample = 0; sample < sampleCount; sample++) {
+            columns[sample][rowCount] = betaValues[sample];
+            if (Double.isNaN(betaValues[sample])) {
+                naBitmap[sample][rowCount >>> 6] |= 1L << rowCount;
+            }
+        }
+        rowCount++;
+    }
+
+    /**
+     * Appends all rows of another matrix with the same amount of samples, in order
+     *
+     * @param other {@link BetaValueMatrix} to copy the rows from
+     * @throws IllegalArgumentException whenever the amount of samples of both matrices differs
+     */
+    public void addRows(BetaValueMatrix other) throws IllegalArgumentException {
+        if (other.sampleCount != sampleCount) {
+            throw new IllegalArgumentException("Expected " + sampleCount + " samples, got " + other.sampleCount);
+        }
+        ensureCapacity(rowCount + other.rowCount);
+        unshare();
+        for (int sample = 0; sample < sampleCount; sample++) {
+            System.arraycopy(other.columns[sample], 0, columns[sample], rowCount, other.rowCount);
+            long[] otherBitmap = other.naBitmap[sample];
+            for (int word = 0; word < bitmapLength(other.rowCount); word++) {
+                long bits = otherBitmap[word];
+                while (bits != 0) {
+                    int row = rowCount + (word << 6) + Long.numberOfTrailingZeros(bits);
+                    naBitmap[sample][row >>> 6] |= 1L << row;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        rowCount += other.rowCount;
+    }
+
+    public double get(int row, int sample) {
+        return columns[sample][row];
+    }
+
+    /**
+     * Overwrites a single beta value, keeping the NA bitmap up to date
+     *
+     * @param row    index of the row
+     * @param sample index of the sample (column)
+     * @param value  new beta value, NaN marks a missing value
+     */
+    public void set(int row, int sample, double value) {
+        unshare();
+        columns[sample][row] = value;
+        if (Double.isNaN(value)) {
+            naBitmap[sample][row >>> 6] |= 1L << row;
+        } else {
+            naBitmap[sample][row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    public boolean isNA(int row, int sample) {
+        return (naBitmap[sample][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     *
+     * @param row index of the row
+     * @return true if one or more samples have a missing value in this row
+     */
+    public boolean rowHasNA(int row) {
+        long mask = 1L << row;
+        int word = row >>> 6;
+        for (int sample = 0; sample < sampleCount; sample++) {
+            if ((naBitmap[sample][word] & mask) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @param sample index of the sample (column)
+     * @return true if the sample has one or more missing values
+     */
+    public boolean columnHasNA(int sample) {
+        for (long word : naBitmap[sample]) {
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     *
+     * @param sample index of the sample (column)
+     * @return copy of all beta values of the sample
+     */
+    public double[] getColumn(int sample) {
+        return Arrays.copyOf(columns[sample], rowCount);
+    }
+
+    /**
+     * Gives the beta values of a sample without copying them. The first call trims the columns to the amount of
+     * rows when the matrix reserved space for more rows, so the array holds exactly the values of the sample. Not
+     * thread safe while trimming: call it from one thread before sharing the arrays between threads.
+     *
+     * @param sample index of the sample (column)
+     * @return all beta values of the sample, must not be changed and only valid until the matrix is changed
+     */
+    public double[] getColumnView(int sample) {
+        trimToSize();
+        return columns[sample];
+    }
+
+    /**
+     * Copies the beta values of one row into target, one value per sample
+     *
+     * @param row    index of the row
+     * @param target array with a length of at least the amount of samples
+     */
+    public void copyRow(int row, double[] target) {
+        for (int sample = 0; sample < sampleCount; sample++) {
+            target[sample] = columns[sample][row];
+        }
+    }
+
+    /**
+     * Builds a new matrix that only holds the given samples, in the given order
+     *
+     * @param sampleIndexes indexes of the samples (columns) to keep
+     * @return new {@link BetaValueMatrix}
+     */
+    public BetaValueMatrix selectColumns(int[] sampleIndexes) {
+        BetaValueMatrix selection = new BetaValueMatrix(sampleIndexes.length, rowCount);
+        for (int i = 0; i < sampleIndexes.length; i++) {
+            System.arraycopy(columns[sampleIndexes[i]], 0, selection.columns[i], 0, rowCount);
+            System.arraycopy(naBitmap[sampleIndexes[i]], 0, selection.naBitmap[i], 0, bitmapLength(rowCount));
+        }
+        selection.rowCount = rowCount;
+        return selection;
+    }
+
+    /**
+     * Builds a view that only holds the given samples, in the given order, without copying any beta values. The
+     * view references the columns of this matrix, whichever of both matrices is changed first copies its columns, so
+     * changes never show up in the other one.
+     *
+     * @param sampleIndexes indexes of the samples (columns) to keep, a sample may be selected more than once
+     * @return new {@link BetaValueMatrix} sharing the columns of this matrix
+     */
+    public BetaValueMatrix projectColumns(int[] sampleIndexes) {
+        BetaValueMatrix projection = new BetaValueMatrix(sampleIndexes.length, 0);
+        for (int i = 0; i < sampleIndexes.length; i++) {
+            projection.columns[i] = columns[sampleIndexes[i]];
+            projection.naBitmap[i] = naBitmap[sampleIndexes[i]];
+        }
+        projection.rowCount = rowCount;
+        projection.capacity = capacity;
+        projection.shared = true;
+        shared = true;
+        return projection;
+    }
+
+    /**
+     * Builds a new matrix that only holds the given rows, in the given order
+     *
+     * @param rowIndexes indexes of the rows to keep
+     * @return new {@link BetaValueMatrix}
+     */
+    public BetaValueMatrix selectRows(int[] rowIndexes) {
+        BetaValueMatrix selection = new BetaValueMatrix(sampleCount, rowIndexes.length);
+        for (int sample = 0; sample < sampleCount; sample++) {
+            double[] source = columns[sample];
+            double[] target = selection.columns[sample];
+            for (int i = 0; i < rowIndexes.length; i++) {
+                target[i] = source[rowIndexes[i]];
+                if (isNA(rowIndexes[i], sample)) {
+                    selection.naBitmap[sample][i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        selection.rowCount = rowIndexes.length;
+        return selection;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    private void ensureCapacity(int requiredRows) {
+        if (requiredRows <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(requiredRows, capacity + (capacity >> 1));
+        for (int sample = 0; sample < sampleCount; sample++) {
+            columns[sample] = Arrays.copyOf(columns[sample], newCapacity);
+            naBitmap[sample] = Arrays.copyOf(naBitmap[sample], bitmapLength(newCapacity));
+        }
+        capacity = newCapacity;
+        // Growing copies every column, so they are no longer referenced by another matrix
+        shared = false;
+    }
+
+    /**
+     * Shrinks the columns to the amount of rows, so they can be handed out as they are
+     */
+    private void trimToSize() {
+        if (capacity == rowCount) {
+            return;
+        }
+        for (int sample = 0; sample < sampleCount; sample++) {
+            columns[sample] = Arrays.copyOf(columns[sample], rowCount);
+            naBitmap[sample] = Arrays.copyOf(naBitmap[sample], bitmapLength(rowCount));
+        }
+        capacity = rowCount;
+        // Trimming copies every column, so they are no longer referenced by another matrix
+        shared = false;
+    }
+
+    /**
+     * Copies the columns before they are changed whenever they may be referenced by another matrix
+     */
+    private void unshare() {
+        if (!shared) {
+            return;
+        }
+        for (int sample = 0; sample < sampleCount; sample++) {
+            columns[sample] = Arrays.copyOf(columns[sample], capacity);
+            naBitmap[sample] = Arrays.copyOf(naBitmap[sample], bitmapLength(capacity));
+        }
+        shared = false;
+    }
+
+    private static int bitmapLength(int rows) {
+        return (rows + 63) >>> 6;
+    }
+}
@@ -0,0 +1,35 @@
+package nl.bioinf.model;
+
+import java.io.IOException;
+
+/**
+ * Receives the results of comparisons as soon as they are finished, in the order of the comparisons. Implementations
+ * either keep the results in memory ({@link ComparisonResults}) or write them to a file directly.
+ */
+public interface ComparisonResultSink extends AutoCloseable {
+    /**
+     * Receives the results of one comparison.
+     *
+     * @param variable1 name of the first sample / chromosome / gene that was compared
+     * @param variable2 name of the second sample / chromosome / gene that was compared
+     * @param results   result of every statistical method, in the order of the methods of the sink
+     * @throws IOException for instances where writing the results failed
+     */
+    void accept(String variable1, String variable2, double[] results) throws IOException;
+
+    /**
+     * Marks the comparisons as failed before the sink is closed, so output that depends on all comparisons, like
+     * adjusted p-values, is left out. The results that were accepted so far are kept.
+     */
+    default void abort() {
+    }
+
+    /**
+     * Writes everything that is still buffered, no results can be accepted afterwards.
+     *
+     * @throws IOException for instances where writing the results failed
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
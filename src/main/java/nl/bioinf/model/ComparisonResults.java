@@ -3,9 +3,10 @@ package nl.bioinf.model;
 import java.util.*;
 
 /**
- * Model that holds the results of statistics tests
+ * Model that holds the results of statistics tests, as a {@link ComparisonResultSink} that keeps all results in memory
  */
-public class ComparisonResults {
+public class ComparisonResults implements ComparisonResultSink {
+    private final String[] methods;
     private final List<String> sampleVersusSampleNames = new ArrayList<>();
 
     // Key: name of statistical test
@@ -13,6 +14,7 @@ public class ComparisonResults {
     private final Map<String, List<Double>> statisticsData = new HashMap<>();
 
     public ComparisonResults(String[] methods) {
+        this.methods = methods.clone();
         for (String method : methods) {
             statisticsData.put(method, new ArrayList<>());
         }
@@ -54,6 +56,21 @@ public class ComparisonResults {
         statisticsData.get(method).add(dataPoint);
     }
 
+    /**
+     * Adds the results of one comparison.
+     *
+     * @param variable1 name of the first variable that was compared
+     * @param variable2 name of the second variable that was compared
+     * @param results   result of every statistical method, in the order of the methods passed to the constructor
+     */
+    @Override
+    public void accept(String variable1, String variable2, double[] results) {
+        addNewSampleVsSample(String.format("%s,%s", variable1, variable2));
+        for (int method = 0; method < methods.length; method++) {
+            addToData(methods[method], results[method]);
+        }
+    }
+
     /**
      * Gets the statistical data
      *
@@ -32,10 +32,12 @@ public class HeaderIndexLocation {
     }
 
     /**
-     * Finds the indexes of "chr" and "gene" in the header and stores the index in a hashmap.
+     * Finds the indexes of "chr" and "gene" in the header and stores the index in a hashmap. The optional columns
+     * "id", "fpos", "tpos" and "strand" are stored as well, with an index of -1 when they are not present.
      */
     private void findIndexes() {
         String[] indexesToFind = new String[]{"chr", "gene"};
+        String[] optionalIndexesToFind = new String[]{"id", "fpos", "tpos", "strand"};
         List<String> listHeader = Arrays.asList(header.split(","));
         for (String indexToFind : indexesToFind) {
             int index = listHeader.indexOf(indexToFind);
@@ -46,6 +48,9 @@ public class HeaderIndexLocation {
             }
             indexes.put(indexToFind, index);
         }
+        for (String indexToFind : optionalIndexesToFind) {
+            indexes.put(indexToFind, listHeader.indexOf(indexToFind));
+        }
     }
 
     public int getChrIndex() {
@@ -56,6 +61,34 @@ public class HeaderIndexLocation {
         return indexes.get("gene");
     }
 
+    /**
+     * @return index of the probe id column, or -1 when not present
+     */
+    public int getIdIndex() {
+        return indexes.get("id");
+    }
+
+    /**
+     * @return index of the start position (fpos) column, or -1 when not present
+     */
+    public int getStartIndex() {
+        return indexes.get("fpos");
+    }
+
+    /**
+     * @return index of the end position (tpos) column, or -1 when not present
+     */
+    public int getEndIndex() {
+        return indexes.get("tpos");
+    }
+
+    /**
+     * @return index of the strand column, or -1 when not present
+     */
+    public int getStrandIndex() {
+        return indexes.get("strand");
+    }
+
     @Override
     public String toString() {
         return "DataIndexLocation{" +
@@ -12,9 +12,15 @@ import java.util.*;
 public class MethylationArray {
     private static final Logger logger = LogManager.getLogger();
     private List<String> samples = new ArrayList<>();
-    private List<MethylationData> data = new ArrayList<>();
+    // Genomic information of every row, beta values of the rows are stored in betaValues, using the same row index
+    private List<String> locations = new ArrayList<>();
+    private BetaValueMatrix betaValues = null;
     private String header;
     private HeaderIndexLocation indexInformation = null;
+    // Typed annotation columns of every row, parsed when rows are added once the index information is known
+    private ProbeAnnotations annotations = null;
+    // Built on first use and dropped whenever the rows change
+    private PositionIndex positionIndex = null;
     private int sampleIndex;
 
     public List<String> getSamples() {
@@ -34,6 +40,15 @@ public class MethylationArray {
         return this.header + String.format("%s", String.join(",", this.samples));
     }
 
+    /**
+     * Returns the part of the header in front of the samples, including the trailing comma
+     *
+     * @return header line of the annotation columns
+     */
+    public String getAnnotationHeader() {
+        return this.header;
+    }
+
     /**
      * Stores the file's header, without samples, in this class
      *
@@ -57,49 +72,348 @@ public class MethylationArray {
      * @throws IllegalArgumentException whenever the size of the samples and beta values are not the same
      */
     public void addData(String methylationLocation, ArrayList<Double> betaValues) throws IllegalArgumentException {
-        if (betaValues.size() != samples.size()) {
+        addData(methylationLocation, betaValues.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    /**
+     * Adds the beta values location in the genome and beta values.
+     *
+     * @param methylationLocation String that contains the position in the genome of the beta values
+     * @param betaValues          array of doubles that contain all the beta values of that specific location
+     * @throws IllegalArgumentException whenever the size of the samples and beta values are not the same
+     */
+    public void addData(String methylationLocation, double[] betaValues) throws IllegalArgumentException {
+        if (betaValues.length != samples.size()) {
             logger.error("""
                     Unmatched argument lengths, n. of beta values: '{}', n. of samples '{}'.
-                    """, betaValues.size(), samples.size());
+                    """, betaValues.length, samples.size());
             throw new IllegalArgumentException();
-        } else {
-            data.add(new MethylationData(methylationLocation, betaValues));
         }
+        if (this.betaValues == null) {
+            this.betaValues = new BetaValueMatrix(samples.size());
+        }
+        this.betaValues.addRow(betaValues);
+        locations.add(methylationLocation);
+        if (annotations != null) {
+            annotations.add(methylationLocation);
+        }
+        positionIndex = null;
     }
 
     /**
-     * Gets the beta values that belong to a specific genomic region (chr / gene)
+     * Adds multiple rows at once, e.g. rows that were parsed in parallel. When no rows were added yet the matrix is
+     * used as is instead of being copied, so it should not be modified afterwards.
      *
-     * @param posArg String that either contains a gene or a chromosome, used to extract beta values
-     * @return array of doubles that contain the beta values
+     * @param methylationLocations Strings that contain the position in the genome of every row
+     * @param betaValues           {@link BetaValueMatrix} holding the beta values of the rows, in the same order
+     * @throws IllegalArgumentException whenever the amount of samples or rows does not match
      */
-    public double[] getPosBetaValues(String posArg) {
-        List<Double> betaValues = new ArrayList<>();
-
-        for (MethylationData row : data) {
-            if (row.methylationLocation().toUpperCase().contains(posArg.toUpperCase())) {
-                betaValues.addAll(row.betaValues());
+    public void addData(List<String> methylationLocations, BetaValueMatrix betaValues)
+            throws IllegalArgumentException {
+        ProbeAnnotations addedAnnotations = null;
+        if (indexInformation != null) {
+            addedAnnotations = new ProbeAnnotations(indexInformation);
+            for (String methylationLocation : methylationLocations) {
+                addedAnnotations.add(methylationLocation);
             }
         }
-        if (betaValues.isEmpty()) {
+        addData(methylationLocations, betaValues, addedAnnotations);
+    }
+
+    /**
+     * Adds multiple rows at once, together with their already parsed annotation columns.
+     *
+     * @param methylationLocations Strings that contain the position in the genome of every row
+     * @param betaValues           {@link BetaValueMatrix} holding the beta values of the rows, in the same order
+     * @param addedAnnotations     {@link ProbeAnnotations} of the rows, in the same order
+     * @throws IllegalArgumentException whenever the amount of samples or rows does not match
+     */
+    public void addData(List<String> methylationLocations, BetaValueMatrix betaValues,
+                        ProbeAnnotations addedAnnotations) throws IllegalArgumentException {
+        if (betaValues.getSampleCount() != samples.size() || betaValues.getRowCount() != methylationLocations.size()) {
+            logger.error("""
+                    Unmatched argument lengths, n. of beta values: '{}', n. of samples '{}'.
+                    """, betaValues.getSampleCount(), samples.size());
+            throw new IllegalArgumentException();
+        }
+        if (this.betaValues == null || this.betaValues.getRowCount() == 0) {
+            this.betaValues = betaValues;
+        } else {
+            this.betaValues.addRows(betaValues);
+        }
+        locations.addAll(methylationLocations);
+        if (annotations != null && addedAnnotations != null) {
+            annotations.addAll(addedAnnotations);
+        } else if (annotations != null) {
+            parseAnnotations();
+        }
+        positionIndex = null;
+    }
+
+    /**
+     * Gets the beta values of all rows of a gene, the gene name has to match exactly (ignoring case)
+     *
+     * @param gene name of the gene
+     * @return array of doubles that contain the beta values, row by row
+     * @throws IllegalArgumentException whenever the gene is not present in the data
+     */
+    public double[] getGeneBetaValues(String gene) throws IllegalArgumentException {
+        return getIndexedBetaValues(getPositionIndex().getGeneRows(gene), gene);
+    }
+
+    /**
+     * Gets the beta values of all rows of a chromosome, the chromosome name has to match exactly (ignoring case)
+     *
+     * @param chromosome name of the chromosome
+     * @return array of doubles that contain the beta values, row by row
+     * @throws IllegalArgumentException whenever the chromosome is not present in the data
+     */
+    public double[] getChromosomeBetaValues(String chromosome) throws IllegalArgumentException {
+        return getIndexedBetaValues(getPositionIndex().getChromosomeRows(chromosome), chromosome);
+    }
+
+    private double[] getIndexedBetaValues(int[] rows, String posArg) throws IllegalArgumentException {
+        if (rows.length == 0) {
             logger.error("Variable not found in data: {}", posArg);
             throw new IllegalArgumentException();
         }
-        return betaValues.stream().mapToDouble(Double::doubleValue).toArray();
+        return collectBetaValues(rows, rows.length);
+    }
+
+    /**
+     * @return {@link PositionIndex} of the current rows, built once and reused until the rows change
+     */
+    public PositionIndex getPositionIndex() {
+        if (positionIndex == null) {
+            positionIndex = new PositionIndex(annotations);
+        }
+        return positionIndex;
     }
 
     /**
+     * Collects the beta values of all samples of the given rows, row by row
+     *
+     * @param rows  indexes of the rows to collect
+     * @param count amount of indexes in rows to use
+     * @return array of doubles that contain the beta values
+     */
+    private double[] collectBetaValues(int[] rows, int count) {
+        int sampleCount = getSampleCount();
+        double[] collected = new double[count * sampleCount];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            for (int sample = 0; sample < sampleCount; sample++) {
+                collected[index++] = betaValues.get(rows[i], sample);
+            }
+        }
+        return collected;
+    }
+
+    /**
+     * Builds a row based copy of the data, prefer the primitive accessors for large arrays
+     *
      * @return List containing {@link MethylationData}
      */
     public List<MethylationData> getData() {
-        return new ArrayList<>(data);
+        ArrayList<MethylationData> data = new ArrayList<>(getRowCount());
+        double[] rowValues = new double[getSampleCount()];
+        for (int row = 0; row < getRowCount(); row++) {
+            betaValues.copyRow(row, rowValues);
+            ArrayList<Double> rowBetaValues = new ArrayList<>(rowValues.length);
+            for (double value : rowValues) {
+                rowBetaValues.add(value);
+            }
+            data.add(new MethylationData(locations.get(row), rowBetaValues));
+        }
+        return data;
     }
 
     /**
      * @param data List of {@link MethylationData}
      */
     public void setData(List<MethylationData> data) {
-        this.data = data;
+        int sampleCount = data.isEmpty() ? getSampleCount() : data.get(0).betaValues().size();
+        locations = new ArrayList<>(data.size());
+        betaValues = new BetaValueMatrix(sampleCount, data.size());
+        for (MethylationData row : data) {
+            locations.add(row.methylationLocation());
+            betaValues.addRow(row.betaValues().stream().mapToDouble(Double::doubleValue).toArray());
+        }
+        parseAnnotations();
+    }
+
+    /**
+     * @return amount of rows (genomic locations) in the data
+     */
+    public int getRowCount() {
+        return locations.size();
+    }
+
+    /**
+     * @return amount of samples (columns) in the data
+     */
+    public int getSampleCount() {
+        return betaValues == null ? samples.size() : betaValues.getSampleCount();
+    }
+
+    /**
+     * @param row index of the row
+     * @return String that contains the genomic information of the row
+     */
+    public String getLocation(int row) {
+        return locations.get(row);
+    }
+
+    public double getBetaValue(int row, int sample) {
+        return betaValues.get(row, sample);
+    }
+
+    /**
+     * Overwrites a single beta value, e.g. to mask values that did not pass a filter
+     *
+     * @param row    index of the row
+     * @param sample index of the sample
+     * @param value  new beta value, NaN marks a missing value
+     */
+    public void setBetaValue(int row, int sample, double value) {
+        betaValues.set(row, sample, value);
+    }
+
+    /**
+     * @param sample index of the sample
+     * @return array of doubles that contains all beta values of the sample
+     */
+    public double[] getSampleBetaValues(int sample) {
+        if (betaValues == null) {
+            return new double[0];
+        }
+        return betaValues.getColumn(sample);
+    }
+
+    /**
+     * @param sample index of the sample
+     * @return all beta values of the sample without copying them, see {@link BetaValueMatrix#getColumnView(int)}
+     */
+    public double[] getSampleBetaValuesView(int sample) {
+        if (betaValues == null) {
+            return new double[0];
+        }
+        return betaValues.getColumnView(sample);
+    }
+
+    /**
+     * @param row index of the row
+     * @return array of doubles that contains the beta values of all samples in the row
+     */
+    public double[] getRowBetaValues(int row) {
+        double[] rowValues = new double[getSampleCount()];
+        betaValues.copyRow(row, rowValues);
+        return rowValues;
+    }
+
+    /**
+     * @param row index of the row
+     * @return true if one or more samples have a missing value (NaN) in the row
+     */
+    public boolean rowHasNA(int row) {
+        return betaValues.rowHasNA(row);
+    }
+
+    /**
+     * @param sample index of the sample
+     * @return true if the sample has one or more missing values (NaN)
+     */
+    public boolean sampleHasNA(int sample) {
+        return betaValues != null && betaValues.columnHasNA(sample);
+    }
+
+    /**
+     * Keeps only the given rows, in the given order
+     *
+     * @param rowIndexes indexes of the rows to keep
+     */
+    public void keepRows(int[] rowIndexes) {
+        List<String> keptLocations = new ArrayList<>(rowIndexes.length);
+        for (int row : rowIndexes) {
+            keptLocations.add(locations.get(row));
+        }
+        locations = keptLocations;
+        if (annotations != null) {
+            annotations = annotations.selectRows(rowIndexes);
+        }
+        positionIndex = null;
+        if (betaValues != null) {
+            betaValues = betaValues.selectRows(rowIndexes);
+        }
+    }
+
+    /**
+     * Keeps only the given samples, in the given order. The beta values are not copied, the kept samples keep
+     * referring to the columns they were read into.
+     *
+     * @param sampleIndexes indexes of the samples to keep
+     */
+    public void keepSamples(int[] sampleIndexes) {
+        List<String> keptSamples = new ArrayList<>(sampleIndexes.length);
+        for (int sample : sampleIndexes) {
+            keptSamples.add(samples.get(sample));
+        }
+        samples = keptSamples;
+        if (betaValues != null) {
+            betaValues = betaValues.projectColumns(sampleIndexes);
+        }
+    }
+
+    /**
+     * Keeps only the given rows and samples, in the given order, using beta values that were already selected by the
+     * caller. Used by filters that select the rows and samples and change the values in a single pass.
+     *
+     * @param rowIndexes     indexes of the rows to keep
+     * @param sampleIndexes  indexes of the samples to keep
+     * @param keptBetaValues {@link BetaValueMatrix} holding the beta values of the kept rows and samples
+     * @throws IllegalArgumentException whenever the size of the matrix does not match the kept rows and samples
+     */
+    public void keepRowsAndSamples(int[] rowIndexes, int[] sampleIndexes, BetaValueMatrix keptBetaValues)
+            throws IllegalArgumentException {
+        if (keptBetaValues.getRowCount() != rowIndexes.length
+                || keptBetaValues.getSampleCount() != sampleIndexes.length) {
+            logger.error("""
+                    Unmatched argument lengths, n. of beta values: '{}', n. of samples '{}'.
+                    """, keptBetaValues.getSampleCount(), sampleIndexes.length);
+            throw new IllegalArgumentException();
+        }
+        List<String> keptLocations = new ArrayList<>(rowIndexes.length);
+        for (int row : rowIndexes) {
+            keptLocations.add(locations.get(row));
+        }
+        locations = keptLocations;
+        if (annotations != null) {
+            annotations = annotations.selectRows(rowIndexes);
+        }
+        positionIndex = null;
+
+        List<String> keptSamples = new ArrayList<>(sampleIndexes.length);
+        for (int sample : sampleIndexes) {
+            keptSamples.add(samples.get(sample));
+        }
+        samples = keptSamples;
+        betaValues = keptBetaValues;
+    }
+
+    /**
+     * @param row index of the row
+     * @return String that contains the name of the gene
+     */
+    public String getGene(int row) {
+        return annotations.getGene(row);
+    }
+
+    /**
+     * @param row index of the row
+     * @return String that contains the name of the chromosome
+     */
+    public String getChromosome(int row) {
+        return annotations.getChromosome(row);
     }
 
     /**
@@ -108,11 +422,7 @@ public class MethylationArray {
      * @return Set of all genes present in data
      */
     public Set<String> getGenes() {
-        Set<String> genes = new HashSet<>();
-        for (MethylationData d : data) {
-            genes.add(d.getGene(indexInformation).toUpperCase());
-        }
-        return Collections.unmodifiableSet(genes);
+        return getPositionIndex().getGenes();
     }
 
     /**
@@ -121,11 +431,7 @@ public class MethylationArray {
      * @return Set of all chromosomes found in data
      */
     public Set<String> getChromosomes() {
-        Set<String> chromosomes = new HashSet<>();
-        for (MethylationData d : data) {
-            chromosomes.add(d.getChromosome(indexInformation).toUpperCase());
-        }
-        return Collections.unmodifiableSet(chromosomes);
+        return getPositionIndex().getChromosomes();
     }
 
     /**
@@ -142,6 +448,31 @@ public class MethylationArray {
      */
     public void setIndexInformation(HeaderIndexLocation indexInformation) {
         this.indexInformation = indexInformation;
+        parseAnnotations();
+    }
+
+    /**
+     *
+     * @return {@link ProbeAnnotations} holding the typed annotation columns of every row, null when no
+     * {@link HeaderIndexLocation} was set
+     */
+    public ProbeAnnotations getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Parses the annotation columns of all current rows again, e.g. after the index information changed
+     */
+    private void parseAnnotations() {
+        positionIndex = null;
+        if (indexInformation == null) {
+            annotations = null;
+            return;
+        }
+        annotations = new ProbeAnnotations(indexInformation);
+        for (String methylationLocation : locations) {
+            annotations.add(methylationLocation);
+        }
     }
 
     public int getSampleIndex() {
@@ -156,7 +487,7 @@ public class MethylationArray {
     public String toString() {
         return "MethylationArray{" +
                 "samples=" + samples +
-                ", data=" + data +
+                ", data=" + getData() +
                 '}';
     }
 }
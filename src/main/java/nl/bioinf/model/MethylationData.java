@@ -17,8 +17,7 @@ public record MethylationData(String methylationLocation, ArrayList<Double> beta
      * @return String that contains the name of the gene
      */
     public String getGene(HeaderIndexLocation location) {
-        String[] split = methylationLocation.split(",");
-        return split[location.getGeneIndex()].trim();
+        return ProbeAnnotations.getField(methylationLocation, location.getGeneIndex());
     }
 
     /**
@@ -28,8 +27,7 @@ public record MethylationData(String methylationLocation, ArrayList<Double> beta
      * @return String that contains the name of the chromosome
      */
     public String getChromosome(HeaderIndexLocation location) {
-        String[] split = methylationLocation.split(",");
-        return split[location.getChrIndex()].trim();
+        return ProbeAnnotations.getField(methylationLocation, location.getChrIndex());
     }
 
     @Override
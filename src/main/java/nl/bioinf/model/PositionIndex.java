@@ -0,0 +1,117 @@
+package nl.bioinf.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Index that maps every gene and chromosome to the rows it occurs in. Names are stored in uppercase, so lookups are
+ * case-insensitive but otherwise exact: TP5 does not match TP53.
+ */
+public class PositionIndex {
+    private static final int[] NO_ROWS = new int[0];
+    // Key: gene or chromosome name in uppercase
+    // Value: indexes of the rows containing the gene or chromosome, in ascending order
+    private final Map<String, int[]> geneRows;
+    private final Map<String, int[]> chromosomeRows;
+
+    /**
+     *
+     * @param annotations {@link ProbeAnnotations} of every row
+     */
+    public PositionIndex(ProbeAnnotations annotations) {
+        int[] geneCodes = new int[annotations.getRowCount()];
+        int[] chromosomeCodes = new int[annotations.getRowCount()];
+        for (int row = 0; row < annotations.getRowCount(); row++) {
+            geneCodes[row] = annotations.getGeneCode(row);
+            chromosomeCodes[row] = annotations.getChromosomeCode(row);
+        }
+        geneRows = groupRows(geneCodes, annotations.getGeneCount(), annotations::getGeneName);
+        chromosomeRows = groupRows(chromosomeCodes, annotations.getChromosomeCount(),
+                annotations::getChromosomeName);
+    }
+
+    /**
+     * @param gene name of the gene, in any case
+     * @return indexes of the rows containing the gene in ascending order, empty if the gene is not present
+     */
+    public int[] getGeneRows(String gene) {
+        return geneRows.getOrDefault(gene.toUpperCase(), NO_ROWS);
+    }
+
+    /**
+     * @param chromosome name of the chromosome, in any case
+     * @return indexes of the rows on the chromosome in ascending order, empty if the chromosome is not present
+     */
+    public int[] getChromosomeRows(String chromosome) {
+        return chromosomeRows.getOrDefault(chromosome.toUpperCase(), NO_ROWS);
+    }
+
+    /**
+     * @return Set of all genes present in the data, in uppercase
+     */
+    public Set<String> getGenes() {
+        return Collections.unmodifiableSet(geneRows.keySet());
+    }
+
+    /**
+     * @return Set of all chromosomes present in the data, in uppercase
+     */
+    public Set<String> getChromosomes() {
+        return Collections.unmodifiableSet(chromosomeRows.keySet());
+    }
+
+    /**
+     * Groups the rows by the uppercase name belonging to their code
+     *
+     * @param codes     dictionary code of every row
+     * @param codeCount amount of distinct codes
+     * @param names     gives the name belonging to a code
+     * @return Map with the rows of every name, in ascending order
+     */
+    private static Map<String, int[]> groupRows(int[] codes, int codeCount, IntFunction<String> names) {
+        RowList[] rowsPerCode = new RowList[codeCount];
+        for (int row = 0; row < codes.length; row++) {
+            if (rowsPerCode[codes[row]] == null) {
+                rowsPerCode[codes[row]] = new RowList();
+            }
+            rowsPerCode[codes[row]].add(row);
+        }
+
+        Map<String, int[]> rows = new HashMap<>(codeCount * 2);
+        for (int code = 0; code < codeCount; code++) {
+            RowList rowList = rowsPerCode[code];
+            if (rowList == null) {
+                // Code of a name that is no longer present after filtering rows
+                continue;
+            }
+            int[] codeRows = Arrays.copyOf(rowList.rows, rowList.size);
+            // Names that only differ in case share one entry
+            rows.merge(names.apply(code).toUpperCase(), codeRows, (existing, added) -> {
+                int[] merged = Arrays.copyOf(existing, existing.length + added.length);
+                System.arraycopy(added, 0, merged, existing.length, added.length);
+                Arrays.sort(merged);
+                return merged;
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * Growable list of row indexes, avoids boxing every index
+     */
+    private static class RowList {
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package nl.bioinf.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typed annotation columns of every row (probe), parsed once when the rows are added. Genes and chromosomes are
+ * dictionary encoded: every distinct name is stored once and rows only hold its int code. Columns that are not
+ * present in the header are stored as null (probe id), {@link #MISSING_POSITION} (fpos/tpos) or
+ * {@link #MISSING_STRAND} (strand).
+ */
+public class ProbeAnnotations {
+    public static final int MISSING_POSITION = -1;
+    public static final byte MISSING_STRAND = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+    private final HeaderIndexLocation indexInformation;
+    private final Dictionary genes;
+    private final Dictionary chromosomes;
+    private String[] probeIds;
+    private int[] geneCodes;
+    private int[] chromosomeCodes;
+    private int[] startPositions;
+    private int[] endPositions;
+    private byte[] strands;
+    private int rowCount;
+
+    /**
+     *
+     * @param indexInformation {@link HeaderIndexLocation} containing the index of every annotation column
+     */
+    public ProbeAnnotations(HeaderIndexLocation indexInformation) {
+        this(indexInformation, new Dictionary(), new Dictionary(), INITIAL_CAPACITY);
+    }
+
+    private ProbeAnnotations(HeaderIndexLocation indexInformation, Dictionary genes, Dictionary chromosomes,
+                             int capacity) {
+        this.indexInformation = indexInformation;
+        this.genes = genes;
+        this.chromosomes = chromosomes;
+        capacity = Math.max(capacity, 1);
+        probeIds = new String[capacity];
+        geneCodes = new int[capacity];
+        chromosomeCodes = new int[capacity];
+        startPositions = new int[capacity];
+        endPositions = new int[capacity];
+        strands = new byte[capacity];
+    }
+
+    /**
+     * Parses the annotation columns of one row and appends them
+     *
+     * @param location String that contains the genomic information of the row
+     */
+    public void add(String location) {
+        ensureCapacity(rowCount + 1);
+        // Split once into the fields before the samples, every typed column is read from this array
+        String[] fields = location.split(",", -1);
+        probeIds[rowCount] = indexInformation.getIdIndex() < 0 ? null : getField(fields, indexInformation.getIdIndex());
+        geneCodes[rowCount] = genes.encode(getField(fields, indexInformation.getGeneIndex()));
+        chromosomeCodes[rowCount] = chromosomes.encode(getField(fields, indexInformation.getChrIndex()));
+        startPositions[rowCount] = parsePosition(fields, indexInformation.getStartIndex());
+        endPositions[rowCount] = parsePosition(fields, indexInformation.getEndIndex());
+        strands[rowCount] = parseStrand(fields, indexInformation.getStrandIndex());
+        rowCount++;
+    }
+
+    /**
+     * Appends all rows of other, translating its gene and chromosome codes to the codes of this object
+     *
+     * @param other {@link ProbeAnnotations} to copy the rows from
+     */
+    public void addAll(ProbeAnnotations other) {
+        ensureCapacity(rowCount + other.rowCount);
+        int[] geneMapping = genes.encodeAll(other.genes);
+        int[] chromosomeMapping = chromosomes.encodeAll(other.chromosomes);
+
+        for (int row = 0; row < other.rowCount; row++) {
+            geneCodes[rowCount + row] = geneMapping[other.geneCodes[row]];
+            chromosomeCodes[rowCount + row] = chromosomeMapping[other.chromosomeCodes[row]];
+        }
+        System.arraycopy(other.probeIds, 0, probeIds, rowCount, other.rowCount);
+        System.arraycopy(other.startPositions, 0, startPositions, rowCount, other.rowCount);
+        System.arraycopy(other.endPositions, 0, endPositions, rowCount, other.rowCount);
+        System.arraycopy(other.strands, 0, strands, rowCount, other.rowCount);
+        rowCount += other.rowCount;
+    }
+
+    /**
+     * Builds new annotations that only hold the given rows, in the given order. The dictionaries are shared.
+     *
+     * @param rowIndexes indexes of the rows to keep
+     * @return new {@link ProbeAnnotations}
+     */
+    public ProbeAnnotations selectRows(int[] rowIndexes) {
+        ProbeAnnotations selection = new ProbeAnnotations(indexInformation, genes, chromosomes, rowIndexes.length);
+        for (int i = 0; i < rowIndexes.length; i++) {
+            int row = rowIndexes[i];
+            selection.probeIds[i] = probeIds[row];
+            selection.geneCodes[i] = geneCodes[row];
+            selection.chromosomeCodes[i] = chromosomeCodes[row];
+            selection.startPositions[i] = startPositions[row];
+            selection.endPositions[i] = endPositions[row];
+            selection.strands[i] = strands[row];
+        }
+        selection.rowCount = rowIndexes.length;
+        return selection;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @param row index of the row
+     * @return probe id of the row, or null when the header has no id column
+     */
+    public String getProbeId(int row) {
+        return probeIds[row];
+    }
+
+    public String getGene(int row) {
+        return genes.decode(geneCodes[row]);
+    }
+
+    public int getGeneCode(int row) {
+        return geneCodes[row];
+    }
+
+    public String getChromosome(int row) {
+        return chromosomes.decode(chromosomeCodes[row]);
+    }
+
+    public int getChromosomeCode(int row) {
+        return chromosomeCodes[row];
+    }
+
+    /**
+     * @return amount of distinct gene names, codes range from 0 to this value (exclusive)
+     */
+    public int getGeneCount() {
+        return genes.size();
+    }
+
+    /**
+     * @return amount of distinct chromosome names, codes range from 0 to this value (exclusive)
+     */
+    public int getChromosomeCount() {
+        return chromosomes.size();
+    }
+
+    /**
+     * Marks the codes of the given genes, so rows can be matched on their gene code in constant time regardless of
+     * the amount of genes
+     *
+     * @param names gene names in uppercase, names are matched ignoring case
+     * @return BitSet with the bit of every matching gene code set
+     */
+    public BitSet getGeneCodes(Set<String> names) {
+        return genes.matchCodes(names);
+    }
+
+    /**
+     * Marks the codes of the given chromosomes, so rows can be matched on their chromosome code in constant time
+     *
+     * @param names chromosome names in uppercase, names are matched ignoring case
+     * @return BitSet with the bit of every matching chromosome code set
+     */
+    public BitSet getChromosomeCodes(Set<String> names) {
+        return chromosomes.matchCodes(names);
+    }
+
+    public String getGeneName(int code) {
+        return genes.decode(code);
+    }
+
+    public String getChromosomeName(int code) {
+        return chromosomes.decode(code);
+    }
+
+    /**
+     * @param row index of the row
+     * @return start position (fpos) of the row, or {@link #MISSING_POSITION}
+     */
+    public int getStartPosition(int row) {
+        return startPositions[row];
+    }
+
+    /**
+     * @param row index of the row
+     * @return end position (tpos) of the row, or {@link #MISSING_POSITION}
+     */
+    public int getEndPosition(int row) {
+        return endPositions[row];
+    }
+
+    /**
+     * @param row index of the row
+     * @return '+' or '-', or {@link #MISSING_STRAND}
+     */
+    public byte getStrand(int row) {
+        return strands[row];
+    }
+
+    /**
+     * Gets one comma separated field of a location, without splitting the whole String
+     *
+     * @param location String that contains the genomic information of a row
+     * @param index    index of the field
+     * @return the trimmed field, empty if the location has fewer fields
+     */
+    public static String getField(String location, int index) {
+        int start = 0;
+        for (int field = 0; field < index; field++) {
+            start = location.indexOf(',', start) + 1;
+            if (start == 0) {
+                return "";
+            }
+        }
+        int end = location.indexOf(',', start);
+        return location.substring(start, end < 0 ? location.length() : end).trim();
+    }
+
+    private static String getField(String[] fields, int index) {
+        return index < fields.length ? fields[index].trim() : "";
+    }
+
+    private static int parsePosition(String[] fields, int index) {
+        if (index < 0) {
+            return MISSING_POSITION;
+        }
+        try {
+            return Integer.parseInt(getField(fields, index));
+        } catch (NumberFormatException ex) {
+            return MISSING_POSITION;
+        }
+    }
+
+    private static byte parseStrand(String[] fields, int index) {
+        if (index < 0) {
+            return MISSING_STRAND;
+        }
+        String strand = getField(fields, index);
+        return strand.equals("+") || strand.equals("-") ? (byte) strand.charAt(0) : MISSING_STRAND;
+    }
+
+    private void ensureCapacity(int requiredRows) {
+        if (requiredRows <= geneCodes.length) {
+            return;
+        }
+        int newCapacity = Math.max(requiredRows, geneCodes.length + (geneCodes.length >> 1));
+        probeIds = Arrays.copyOf(probeIds, newCapacity);
+        geneCodes = Arrays.copyOf(geneCodes, newCapacity);
+        chromosomeCodes = Arrays.copyOf(chromosomeCodes, newCapacity);
+        startPositions = Arrays.copyOf(startPositions, newCapacity);
+        endPositions = Arrays.copyOf(endPositions, newCapacity);
+        strands = Arrays.copyOf(strands, newCapacity);
+    }
+
+    /**
+     * Stores every distinct String once and assigns it a code, in order of first occurrence
+     */
+    private static class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        /**
+         * @return for every code of other, the code of the same value in this dictionary
+         */
+        int[] encodeAll(Dictionary other) {
+            if (other == this) {
+                int[] identity = new int[values.size()];
+                Arrays.setAll(identity, code -> code);
+                return identity;
+            }
+            int[] mapping = new int[other.values.size()];
+            for (int code = 0; code < mapping.length; code++) {
+                mapping[code] = encode(other.values.get(code));
+            }
+            return mapping;
+        }
+
+        /**
+         * @return BitSet with the bit set of every code whose value, in uppercase, is in names
+         */
+        BitSet matchCodes(Set<String> names) {
+            BitSet matches = new BitSet(values.size());
+            for (int code = 0; code < values.size(); code++) {
+                if (names.contains(values.get(code).toUpperCase())) {
+                    matches.set(code);
+                }
+            }
+            return matches;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
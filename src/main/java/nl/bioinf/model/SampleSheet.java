@@ -0,0 +1,54 @@
+package nl.bioinf.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Model that holds the group (e.g. case/control) of every sample, as read from a sample sheet
+ */
+public class SampleSheet {
+    // Key: name of the sample
+    // Value: name of the group the sample belongs to
+    private final Map<String, String> sampleGroups = new LinkedHashMap<>();
+
+    /**
+     * @param sample name of the sample
+     * @param group  name of the group the sample belongs to
+     */
+    public void addSample(String sample, String group) {
+        sampleGroups.put(sample, group);
+    }
+
+    /**
+     * @return all groups, in order of first occurrence in the sample sheet
+     */
+    public Set<String> getGroups() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(sampleGroups.values()));
+    }
+
+    /**
+     * @param group name of the group
+     * @return names of all samples in the group, in order of the sample sheet
+     */
+    public List<String> getSamples(String group) {
+        List<String> samples = new ArrayList<>();
+        sampleGroups.forEach((sample, sampleGroup) -> {
+            if (sampleGroup.equals(group)) {
+                samples.add(sample);
+            }
+        });
+        return samples;
+    }
+
+    @Override
+    public String toString() {
+        return "SampleSheet{" +
+                "sampleGroups=" + sampleGroups +
+                '}';
+    }
+}
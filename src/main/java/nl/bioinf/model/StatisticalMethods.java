@@ -1,28 +1,39 @@
 package nl.bioinf.model;
 
-import org.apache.commons.math3.stat.correlation.SpearmansCorrelation;
-import org.apache.commons.math3.stat.inference.TTest;
-import org.apache.commons.math3.stat.inference.WilcoxonSignedRankTest;
+import nl.bioinf.statistics.PairContext;
+import nl.bioinf.statistics.StatisticalMethod;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.function.BiFunction;
 
 /**
- * Model that holds the different statistic tests, and provides a way to run said tests
+ * Model that holds the different statistic tests, and provides a way to run said tests. The tests are
+ * {@link StatisticalMethod} providers found on the class path through {@link ServiceLoader}, every thread reuses its
+ * own {@link PairContext} when running them.
  */
 public class StatisticalMethods {
+    private static final Logger logger = LogManager.getLogger();
+    private static final ThreadLocal<PairContext> PAIR_CONTEXT = ThreadLocal.withInitial(PairContext::new);
+
     // Key: name of statistical tests
     // Value: Bifunction that can be used to run the statistical test
-    private final Map<String, BiFunction<double[], double[], Double>> statisticalMethods = new HashMap<>();
+    private final Map<String, BiFunction<double[], double[], Double>> statisticalMethods = new LinkedHashMap<>();
 
     public StatisticalMethods() {
-        statisticalMethods.put("spearman", RunStatisticalMethods.SPEARMAN::run);
-        statisticalMethods.put("t-test", RunStatisticalMethods.TTEST::run);
-        statisticalMethods.put("wilcoxon-test", RunStatisticalMethods.WILCOXONTEST::run);
-        statisticalMethods.put("welch-test", RunStatisticalMethods.WELCH::run);
-
+        for (StatisticalMethod method : Registry.METHODS.values()) {
+            statisticalMethods.put(method.getName(), (sample1, sample2) -> {
+                PairContext pair = PAIR_CONTEXT.get();
+                pair.reset(sample1, sample2);
+                return method.compute(pair);
+            });
+        }
     }
 
     /**
@@ -34,44 +45,91 @@ public class StatisticalMethods {
     }
 
     /**
-     * A way to store and run the different statistical tests
+     * @param method name of the statistical test
+     * @return the {@link StatisticalMethod} with this name
+     * @throws IllegalArgumentException whenever no method has this name
      */
-    enum RunStatisticalMethods {
-        TTEST {
-            @Override
-            public double run(double[] sample1, double[] sample2) {
-                return new TTest().pairedTTest(sample1, sample2);
-            }
+    public static StatisticalMethod get(String method) throws IllegalArgumentException {
+        StatisticalMethod statisticalMethod = Registry.METHODS.get(method);
+        if (statisticalMethod == null) {
+            throw new IllegalArgumentException("Unknown statistical method: " + method);
+        }
+        return statisticalMethod;
+    }
 
-        },
-        SPEARMAN {
-            @Override
-            public double run(double[] sample1, double[] sample2) {
-                return new SpearmansCorrelation().correlation(sample1, sample2);
-            }
-        },
+    /**
+     * @param methods names of the statistical tests
+     * @return the {@link StatisticalMethod} of every name, in the same order
+     * @throws IllegalArgumentException whenever one of the names does not belong to a method
+     */
+    public static StatisticalMethod[] get(String[] methods) throws IllegalArgumentException {
+        StatisticalMethod[] statisticalMethods = new StatisticalMethod[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            statisticalMethods[i] = get(methods[i]);
+        }
+        return statisticalMethods;
+    }
 
-        WELCH {
-            @Override
-            public double run(double[] sample1, double[] sample2) {
-                return new TTest().tTest(sample1, sample2);
-            }
-        },
+    /**
+     * @param method name of the statistical test
+     * @return whether a method with this name is available
+     */
+    public static boolean isValid(String method) {
+        return Registry.METHODS.containsKey(method);
+    }
 
-        WILCOXONTEST {
-            @Override
-            public double run(double[] sample1, double[] sample2) {
-                return new WilcoxonSignedRankTest().wilcoxonSignedRank(sample1, sample2);
-            }
-        };
+    /**
+     * @return names of all available methods, the built-in methods first
+     */
+    public static List<String> validNames() {
+        return new ArrayList<>(Registry.METHODS.keySet());
+    }
 
-        /**
-         * Runs the specified statistical test
-         *
-         * @param sample1 double array of beta values that belong to sample 1
-         * @param sample2 double array of beta values that belong to sample 2
-         * @return double that is the resulting number of the statistical test.
-         */
-        public abstract double run(double[] sample1, double[] sample2);
+    /**
+     * @return names of all available methods that do not need samples of the same length
+     */
+    public static List<String> unpairableNames() {
+        return Registry.METHODS.values().stream()
+                .filter(method -> !method.isPairable())
+                .map(StatisticalMethod::getName)
+                .toList();
+    }
+
+    /**
+     * @param method name of the statistical test
+     * @return whether the test results in a p-value, spearman results in a correlation
+     */
+    public static boolean resultsInPValue(String method) {
+        StatisticalMethod statisticalMethod = Registry.METHODS.get(method);
+        return statisticalMethod != null && statisticalMethod.resultsInPValue();
+    }
+
+    /**
+     * @return {@link PairContext} of the calling thread, reset it with the next pair before passing it to
+     * {@link StatisticalMethod#compute}
+     */
+    public static PairContext localPairContext() {
+        return PAIR_CONTEXT.get();
+    }
+
+    /**
+     * Loads the providers once, on first use
+     */
+    private static class Registry {
+        // Key: name of the method, value: its provider, in the order the providers were found
+        private static final Map<String, StatisticalMethod> METHODS = load();
+
+        private static Map<String, StatisticalMethod> load() {
+            Map<String, StatisticalMethod> methods = new LinkedHashMap<>();
+            for (StatisticalMethod method : ServiceLoader.load(StatisticalMethod.class)) {
+                StatisticalMethod existing = methods.putIfAbsent(method.getName(), method);
+                if (existing != null) {
+                    logger.warn("Statistical method '{}' of {} is already provided by {}, ignoring it.",
+                            method.getName(), method.getClass().getName(), existing.getClass().getName());
+                }
+            }
+            logger.debug("Loaded statistical methods: {}", methods.keySet());
+            return Collections.unmodifiableMap(methods);
+        }
     }
 }
@@ -0,0 +1,96 @@
+package nl.bioinf.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Corrections of p-values for multiple testing. Missing p-values (NaN) stay missing and are not counted as tests.
+ * The Benjamini-Hochberg correction gives the same values as p.adjust(method = "BH") of R.
+ */
+public enum PValueAdjustment {
+    NONE("none") {
+        @Override
+        public double[] adjust(double[] pValues) {
+            return pValues.clone();
+        }
+    },
+    BONFERRONI("bonferroni") {
+        @Override
+        public double[] adjust(double[] pValues) {
+            int testCount = countTests(pValues);
+            double[] adjusted = new double[pValues.length];
+            for (int i = 0; i < pValues.length; i++) {
+                adjusted[i] = Math.min(1, pValues[i] * testCount);
+            }
+            return adjusted;
+        }
+    },
+    BENJAMINI_HOCHBERG("fdr") {
+        @Override
+        public double[] adjust(double[] pValues) {
+            // Primitive sort of a copy, NaN is sorted to the end so the tests are at the front
+            double[] sorted = pValues.clone();
+            Arrays.sort(sorted);
+            int testCount = countTests(pValues);
+
+            // Adjusted value of every rank: the smallest p * m / rank of that rank and all higher ranks
+            double[] sortedAdjusted = new double[testCount];
+            double minimum = 1;
+            for (int rank = testCount; rank >= 1; rank--) {
+                minimum = Math.min(minimum, sorted[rank - 1] * testCount / rank);
+                sortedAdjusted[rank - 1] = minimum;
+            }
+
+            double[] adjusted = new double[pValues.length];
+            for (int i = 0; i < pValues.length; i++) {
+                if (Double.isNaN(pValues[i])) {
+                    adjusted[i] = Double.NaN;
+                } else {
+                    // Ties share the adjusted value of their highest rank
+                    int lastTie = Ranks.firstIndexOf(sorted, testCount, Math.nextUp(pValues[i])) - 1;
+                    adjusted[i] = sortedAdjusted[lastTie];
+                }
+            }
+            return adjusted;
+        }
+    };
+
+    private final String name;
+
+    PValueAdjustment(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adjusts all p-values, using the amount of p-values that are not NaN as amount of tests
+     *
+     * @param pValues p-values to adjust, between 0 and 1 or NaN
+     * @return adjusted p-values, in the same order as pValues
+     */
+    public abstract double[] adjust(double[] pValues);
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param name name of the correction, as passed by the user
+     * @return the matching {@link PValueAdjustment}
+     * @throws IllegalArgumentException whenever no correction has this name
+     */
+    public static PValueAdjustment fromName(String name) throws IllegalArgumentException {
+        return Arrays.stream(values())
+                .filter(adjustment -> adjustment.name.equals(name))
+                .findFirst()
+                .orElseThrow(IllegalArgumentException::new);
+    }
+
+    private static int countTests(double[] pValues) {
+        int count = 0;
+        for (double pValue : pValues) {
+            if (!Double.isNaN(pValue)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
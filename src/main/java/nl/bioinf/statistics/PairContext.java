@@ -0,0 +1,253 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+
+/**
+ * Two samples that are compared by one or more {@link StatisticalMethod}s, together with the preprocessing the methods
+ * share: the paired differences with their mean and variance, the mean and variance of both samples, the ranks of
+ * both samples and the ranks of both samples ranked together. Everything is computed on first use and kept until the
+ * next {@link #reset(double[], double[])}, so running several methods on the same pair costs little more than running
+ * one. Samples that were prepared on their own (see {@link PreparedSample}) bring their mean, variance and ranks
+ * along. Not thread safe: every thread should use its own instance, which is reused for every pair.
+ */
+public class PairContext {
+    private final StatisticsScratch scratch = new StatisticsScratch();
+    private double[] sample1 = new double[0];
+    private double[] sample2 = new double[0];
+    private double[] differences = new double[0];
+    // Ranks of the current pair, either the buffers below or the ranks of prepared samples
+    private double[] ranks1;
+    private double[] ranks2;
+    private double[] rankBuffer1 = new double[0];
+    private double[] rankBuffer2 = new double[0];
+    private double[] pooledRanks = new double[0];
+    private double differenceMean;
+    private double differenceVariance;
+    private double mean1;
+    private double variance1;
+    private double mean2;
+    private double variance2;
+    private double pooledTieSum;
+    private boolean hasDifferences;
+    private boolean hasDifferenceSummary;
+    private boolean hasSummaries;
+    private boolean hasRanks;
+    private boolean hasPooledRanks;
+
+    /**
+     * Starts a new pair, forgetting everything computed for the previous one. The arrays are not copied.
+     *
+     * @param sample1 beta values of the first sample, without NaN
+     * @param sample2 beta values of the second sample, without NaN
+     */
+    public void reset(double[] sample1, double[] sample2) {
+        this.sample1 = sample1;
+        this.sample2 = sample2;
+        hasDifferences = false;
+        hasDifferenceSummary = false;
+        hasSummaries = false;
+        hasRanks = false;
+        hasPooledRanks = false;
+    }
+
+    /**
+     * Starts a new pair of prepared samples, their mean, variance and (when prepared) ranks are used instead of
+     * computing them again
+     *
+     * @param sample1 the first sample
+     * @param sample2 the second sample
+     */
+    public void reset(PreparedSample sample1, PreparedSample sample2) {
+        reset(sample1.getValues(), sample2.getValues());
+        mean1 = sample1.getMean();
+        variance1 = sample1.getVariance();
+        mean2 = sample2.getMean();
+        variance2 = sample2.getVariance();
+        hasSummaries = true;
+        if (sample1.getRanks() != null && sample2.getRanks() != null) {
+            ranks1 = sample1.getRanks();
+            ranks2 = sample2.getRanks();
+            hasRanks = true;
+        }
+    }
+
+    public double[] getSample1() {
+        return sample1;
+    }
+
+    public double[] getSample2() {
+        return sample2;
+    }
+
+    /**
+     * @return buffers of the calling thread, for computations that are not shared between methods
+     */
+    public StatisticsScratch getScratch() {
+        return scratch;
+    }
+
+    /**
+     * @return differences sample1 - sample2, the array may be longer than the samples
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public double[] getDifferences() throws DimensionMismatchException {
+        if (!hasDifferences) {
+            if (sample1.length != sample2.length) {
+                throw new DimensionMismatchException(sample1.length, sample2.length);
+            }
+            if (differences.length < sample1.length) {
+                differences = new double[Math.max(sample1.length, differences.length + (differences.length >> 1))];
+            }
+            for (int i = 0; i < sample1.length; i++) {
+                differences[i] = sample1[i] - sample2[i];
+            }
+            hasDifferences = true;
+        }
+        return differences;
+    }
+
+    /**
+     * @return mean of the differences sample1 - sample2
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public double getDifferenceMean() throws DimensionMismatchException {
+        summarizeDifferences();
+        return differenceMean;
+    }
+
+    /**
+     * @return sample variance of the differences sample1 - sample2
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public double getDifferenceVariance() throws DimensionMismatchException {
+        summarizeDifferences();
+        return differenceVariance;
+    }
+
+    public double getMean1() {
+        summarizeSamples();
+        return mean1;
+    }
+
+    public double getVariance1() {
+        summarizeSamples();
+        return variance1;
+    }
+
+    public double getMean2() {
+        summarizeSamples();
+        return mean2;
+    }
+
+    public double getVariance2() {
+        summarizeSamples();
+        return variance2;
+    }
+
+    /**
+     * @return average ranks of the first sample, starting at 1, the array may be longer than the sample
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public double[] getRanks1() throws DimensionMismatchException {
+        rankSamples();
+        return ranks1;
+    }
+
+    /**
+     * @return average ranks of the second sample, starting at 1, the array may be longer than the sample
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public double[] getRanks2() throws DimensionMismatchException {
+        rankSamples();
+        return ranks2;
+    }
+
+    /**
+     * @return average ranks of both samples ranked together, the first sample followed by the second sample, the
+     * array may be longer than both samples
+     */
+    public double[] getPooledRanks() {
+        rankPooled();
+        return pooledRanks;
+    }
+
+    /**
+     * @return sum of t^3 - t over the sizes t of all groups of ties in both samples together
+     */
+    public double getPooledTieSum() {
+        rankPooled();
+        return pooledTieSum;
+    }
+
+    private void summarizeDifferences() {
+        if (hasDifferenceSummary) {
+            return;
+        }
+        double[] values = getDifferences();
+        int count = sample1.length;
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        differenceMean = sum / count;
+
+        double sumOfSquares = 0;
+        double sumOfDeviations = 0;
+        for (int i = 0; i < count; i++) {
+            double deviation = values[i] - differenceMean;
+            sumOfSquares += deviation * deviation;
+            sumOfDeviations += deviation;
+        }
+        differenceVariance = (sumOfSquares - sumOfDeviations * sumOfDeviations / count) / (count - 1);
+        hasDifferenceSummary = true;
+    }
+
+    private void summarizeSamples() {
+        if (hasSummaries) {
+            return;
+        }
+        mean1 = PairedTTest.mean(sample1);
+        variance1 = PairedTTest.variance(sample1, mean1);
+        mean2 = PairedTTest.mean(sample2);
+        variance2 = PairedTTest.variance(sample2, mean2);
+        hasSummaries = true;
+    }
+
+    private void rankSamples() {
+        if (sample1.length != sample2.length) {
+            throw new DimensionMismatchException(sample1.length, sample2.length);
+        }
+        if (hasRanks) {
+            return;
+        }
+        int count = sample1.length;
+        scratch.ensureCapacity(count);
+        if (rankBuffer1.length < count) {
+            int capacity = Math.max(count, rankBuffer1.length + (rankBuffer1.length >> 1));
+            rankBuffer1 = new double[capacity];
+            rankBuffer2 = new double[capacity];
+        }
+        ranks1 = rankBuffer1;
+        ranks2 = rankBuffer2;
+        Ranks.averageRanks(sample1, count, scratch.sorted(), ranks1);
+        Ranks.averageRanks(sample2, count, scratch.sorted(), ranks2);
+        hasRanks = true;
+    }
+
+    private void rankPooled() {
+        if (hasPooledRanks) {
+            return;
+        }
+        int count = sample1.length + sample2.length;
+        scratch.ensureCapacity(count);
+        if (pooledRanks.length < count) {
+            pooledRanks = new double[Math.max(count, pooledRanks.length + (pooledRanks.length >> 1))];
+        }
+        double[] pooled = scratch.values();
+        System.arraycopy(sample1, 0, pooled, 0, sample1.length);
+        System.arraycopy(sample2, 0, pooled, sample1.length, sample2.length);
+        Ranks.averageRanks(pooled, count, scratch.sorted(), pooledRanks);
+        pooledTieSum = Ranks.tieSum(scratch.sorted(), count);
+        hasPooledRanks = true;
+    }
+}
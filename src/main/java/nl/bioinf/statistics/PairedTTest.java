@@ -0,0 +1,129 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
+
+/**
+ * Paired t-test on two arrays of values of the same length, without allocating. Gives the same p-values as
+ * {@link org.apache.commons.math3.stat.inference.TTest#pairedTTest(double[], double[])}.
+ */
+public class PairedTTest {
+
+    private PairedTTest() {
+    }
+
+    /**
+     * Computes the t statistic of the differences values1 - values2
+     *
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample, in the same order
+     * @return t statistic, NaN when all differences are 0
+     * @throws NumberIsTooSmallException  whenever the samples have fewer than 2 values
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public static double statistic(double[] values1, double[] values2)
+            throws NumberIsTooSmallException, DimensionMismatchException {
+        checkSamples(values1, values2);
+        int count = values1.length;
+        double meanDifference = 0;
+        for (int i = 0; i < count; i++) {
+            meanDifference += values1[i] - values2[i];
+        }
+        meanDifference /= count;
+
+        double sumOfSquares = 0;
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            double deviation = values1[i] - values2[i] - meanDifference;
+            sumOfSquares += deviation * deviation;
+            sum += deviation;
+        }
+        return statistic(meanDifference, (sumOfSquares - sum * sum / count) / (count - 1), count);
+    }
+
+    /**
+     * Computes the t statistic of differences that were already summarized, e.g. by a {@link PairContext}
+     *
+     * @param meanDifference     mean of the differences
+     * @param varianceDifference sample variance of the differences
+     * @param count              amount of differences
+     * @return t statistic, NaN when all differences are 0
+     */
+    public static double statistic(double meanDifference, double varianceDifference, int count) {
+        return meanDifference / Math.sqrt(varianceDifference / count);
+    }
+
+    /**
+     * Computes the two-sided p-value of the differences values1 - values2
+     *
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample, in the same order
+     * @return p-value, NaN when all differences are 0
+     * @throws NumberIsTooSmallException  whenever the samples have fewer than 2 values
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public static double pValue(double[] values1, double[] values2)
+            throws NumberIsTooSmallException, DimensionMismatchException {
+        return StudentT.twoSidedPValue(statistic(values1, values2), values1.length - 1);
+    }
+
+    /**
+     * Computes the two-sided p-value of differences that were already summarized, e.g. by a {@link PairContext}
+     *
+     * @param meanDifference     mean of the differences
+     * @param varianceDifference sample variance of the differences
+     * @param count              amount of differences, at least 2
+     * @return p-value, NaN when all differences are 0
+     */
+    public static double pValue(double meanDifference, double varianceDifference, int count) {
+        return StudentT.twoSidedPValue(statistic(meanDifference, varianceDifference, count), count - 1);
+    }
+
+    /**
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample
+     * @throws NumberIsTooSmallException  whenever the samples have fewer than 2 values
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public static void checkSamples(double[] values1, double[] values2)
+            throws NumberIsTooSmallException, DimensionMismatchException {
+        if (values1.length < 2 || values2.length < 2) {
+            throw new NumberIsTooSmallException(LocalizedFormats.INSUFFICIENT_DATA_FOR_T_STATISTIC,
+                    Math.min(values1.length, values2.length), 2, true);
+        }
+        if (values1.length != values2.length) {
+            throw new DimensionMismatchException(values1.length, values2.length);
+        }
+    }
+
+    /**
+     * @return mean of the values, with the same rounding correction as commons-math
+     */
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        double mean = sum / values.length;
+        double correction = 0;
+        for (double value : values) {
+            correction += value - mean;
+        }
+        return mean + correction / values.length;
+    }
+
+    /**
+     * @return sample variance of the values around the given mean, with the same rounding correction as commons-math
+     */
+    static double variance(double[] values, double mean) {
+        double sumOfSquares = 0;
+        double sum = 0;
+        for (double value : values) {
+            double deviation = value - mean;
+            sumOfSquares += deviation * deviation;
+            sum += deviation;
+        }
+        return (sumOfSquares - sum * sum / values.length) / (values.length - 1);
+    }
+}
@@ -0,0 +1,28 @@
+package nl.bioinf.statistics;
+
+/**
+ * Provides the paired t-test as the t-test method
+ */
+public class PairedTTestMethod implements StatisticalMethod {
+
+    @Override
+    public String getName() {
+        return "t-test";
+    }
+
+    @Override
+    public double compute(PairContext pair) {
+        PairedTTest.checkSamples(pair.getSample1(), pair.getSample2());
+        return PairedTTest.pValue(pair.getDifferenceMean(), pair.getDifferenceVariance(), pair.getSample1().length);
+    }
+
+    @Override
+    public boolean isPairable() {
+        return true;
+    }
+
+    @Override
+    public boolean needsRanks() {
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package nl.bioinf.statistics;
+
+/**
+ * Preprocessing of one sample on its own: its mean, variance and optionally its ranks. Comparers prepare every sample
+ * once for the methods that are {@link StatisticalMethod#isVectorizable() vectorizable}, instead of once for every
+ * pair the sample is in, and pass it to {@link PairContext#reset(PreparedSample, PreparedSample)}.
+ */
+public class PreparedSample {
+    private final double[] values;
+    private final double mean;
+    private final double variance;
+    // Null when the sample was prepared without ranks
+    private final double[] ranks;
+
+    private PreparedSample(double[] values, double mean, double variance, double[] ranks) {
+        this.values = values;
+        this.mean = mean;
+        this.variance = variance;
+        this.ranks = ranks;
+    }
+
+    /**
+     * @param values beta values of the sample, without NaN, not copied
+     * @param rank   whether to rank the values as well, for methods that {@link StatisticalMethod#needsRanks()}
+     * @return the prepared sample
+     */
+    public static PreparedSample prepare(double[] values, boolean rank) {
+        double mean = PairedTTest.mean(values);
+        double[] ranks = null;
+        if (rank) {
+            ranks = new double[values.length];
+            Ranks.averageRanks(values, values.length, new double[values.length], ranks);
+        }
+        return new PreparedSample(values, mean, PairedTTest.variance(values, mean), ranks);
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    /**
+     * @return average ranks of the values, starting at 1, null when the sample was prepared without ranks
+     */
+    public double[] getRanks() {
+        return ranks;
+    }
+}
@@ -0,0 +1,35 @@
+package nl.bioinf.statistics;
+
+/**
+ * Provides the Wilcoxon rank-sum (Mann-Whitney U) test as the mann-whitney-test method, for independent groups
+ */
+public class RankSumTestMethod implements StatisticalMethod {
+
+    @Override
+    public String getName() {
+        return "mann-whitney-test";
+    }
+
+    @Override
+    public double compute(PairContext pair) {
+        return RankSumTest.pValue(statistic(pair), pair.getSample1().length, pair.getSample2().length,
+                pair.getPooledTieSum());
+    }
+
+    @Override
+    public double statistic(PairContext pair) {
+        RankSumTest.checkSamples(pair.getSample1(), pair.getSample2());
+        return RankSumTest.statistic(pair.getPooledRanks(), pair.getSample1().length);
+    }
+
+    @Override
+    public boolean isPairable() {
+        return false;
+    }
+
+    @Override
+    public boolean needsRanks() {
+        // Uses the pooled ranks of both samples together
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+package nl.bioinf.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Ranking of values without allocating, ties get the average of their ranks (like the default ranking of
+ * {@link org.apache.commons.math3.stat.ranking.NaturalRanking}).
+ */
+public class Ranks {
+
+    private Ranks() {
+    }
+
+    /**
+     * Ranks the first count values. Uses a primitive sort of a copy of the values, the rank of every value is found
+     * by binary searching its first and last occurrence in the copy.
+     *
+     * @param values values to rank, without NaN
+     * @param count  amount of values to rank
+     * @param sorted array with a length of at least count, overwritten
+     * @param ranks  array with a length of at least count to store the rank of every value in, starting at 1
+     */
+    public static void averageRanks(double[] values, int count, double[] sorted, double[] ranks) {
+        System.arraycopy(values, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            ranks[i] = averageRank(sorted, count, values[i]);
+        }
+    }
+
+    /**
+     * @param sorted first count values sorted ascending, without NaN
+     * @param count  amount of sorted values
+     * @param value  one of the sorted values
+     * @return average rank of the value among the sorted values, starting at 1
+     */
+    public static double averageRank(double[] sorted, int count, double value) {
+        int first = firstIndexOf(sorted, count, value);
+        int last = firstIndexOf(sorted, count, Math.nextUp(value));
+        // Positions first..last-1 share the average of ranks first+1..last
+        return (first + 1 + last) / 2.0;
+    }
+
+    /**
+     * @param sorted first count values sorted ascending, NaN is sorted to the end
+     * @param count  amount of values to search
+     * @param value  value to look up
+     * @return index of the first of count sorted values that is equal to or larger than value
+     */
+    public static int firstIndexOf(double[] sorted, int count, double value) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param sorted first count values sorted ascending
+     * @param count  amount of sorted values
+     * @return sum of t^3 - t over the sizes t of all groups of ties
+     */
+    public static double tieSum(double[] sorted, int count) {
+        double tieSum = 0;
+        int start = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || sorted[i] != sorted[start]) {
+                double ties = i - start;
+                tieSum += ties * ties * ties - ties;
+                start = i;
+            }
+        }
+        return tieSum;
+    }
+}
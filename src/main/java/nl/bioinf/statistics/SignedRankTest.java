@@ -0,0 +1,259 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NoDataException;
+
+/**
+ * Wilcoxon signed-rank test of two paired samples, without allocating once the {@link StatisticsScratch} is large
+ * enough. The statistic gives the same values as
+ * {@link org.apache.commons.math3.stat.inference.WilcoxonSignedRankTest#wilcoxonSignedRank(double[], double[])}, the
+ * p-value the same values as wilcox.test(paired = TRUE) of R: the exact distribution is used for fewer than
+ * {@link #EXACT_LIMIT} differences without ties and without differences of 0, otherwise the normal approximation with
+ * tie and continuity correction. Differences of 0 are left out of the p-value.
+ */
+public class SignedRankTest {
+    public static final int EXACT_LIMIT = 50;
+    // Differences are ranked by counting when they are multiples of 1 / RESOLUTION, e.g. beta values with up to
+    // four decimals, and there are enough of them to make counting cheaper than sorting
+    private static final int RESOLUTION = 10_000;
+    private static final int COUNTING_THRESHOLD = RESOLUTION / 8;
+    private static final NormalDistribution STANDARD_NORMAL = new NormalDistribution(null, 0, 1);
+    // P(W+ <= w) of n differences without ties, for every n below EXACT_LIMIT
+    private static final double[][] EXACT_CDF = exactDistributions();
+
+    private SignedRankTest() {
+    }
+
+    /**
+     * Computes the larger of the positive and negative rank sums of the differences values2 - values1
+     *
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample, in the same order
+     * @param scratch buffers of the calling thread
+     * @return the signed-rank statistic W
+     * @throws NoDataException            whenever the samples are empty
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public static double statistic(double[] values1, double[] values2, StatisticsScratch scratch)
+            throws NoDataException, DimensionMismatchException {
+        checkSamples(values1, values2);
+        int count = values1.length;
+        scratch.ensureCapacity(count);
+        double[] absoluteDifferences = scratch.values();
+        for (int i = 0; i < count; i++) {
+            absoluteDifferences[i] = Math.abs(values2[i] - values1[i]);
+        }
+        double[] ranks = scratch.ranks1();
+        Ranks.averageRanks(absoluteDifferences, count, scratch.sorted(), ranks);
+
+        double positiveRankSum = 0;
+        for (int i = 0; i < count; i++) {
+            if (values2[i] - values1[i] > 0) {
+                positiveRankSum += ranks[i];
+            }
+        }
+        // Differences of 0 count towards the negative rank sum, like commons-math
+        double negativeRankSum = count * (count + 1.0) / 2.0 - positiveRankSum;
+        return Math.max(positiveRankSum, negativeRankSum);
+    }
+
+    /**
+     * Computes the two-sided p-value of the differences values1 - values2
+     *
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample, in the same order
+     * @param scratch buffers of the calling thread
+     * @return p-value, NaN when all differences are 0
+     * @throws NoDataException            whenever the samples are empty
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public static double pValue(double[] values1, double[] values2, StatisticsScratch scratch)
+            throws NoDataException, DimensionMismatchException {
+        return pValue(values1, values2, scratch, COUNTING_THRESHOLD);
+    }
+
+    /**
+     * @param countingThreshold least amount of differences that are ranked by counting instead of by sorting
+     */
+    static double pValue(double[] values1, double[] values2, StatisticsScratch scratch, int countingThreshold)
+            throws NoDataException, DimensionMismatchException {
+        checkSamples(values1, values2);
+        scratch.ensureCapacity(values1.length);
+        double[] differences = scratch.values();
+        for (int i = 0; i < values1.length; i++) {
+            differences[i] = values1[i] - values2[i];
+        }
+        return pValue(differences, values1.length, scratch, countingThreshold);
+    }
+
+    /**
+     * Computes the two-sided p-value of differences that were already computed, e.g. by a {@link PairContext}
+     *
+     * @param differences differences between the paired values, may be {@link StatisticsScratch} values of scratch
+     * @param length      amount of differences
+     * @param scratch     buffers of the calling thread
+     * @return p-value, NaN when all differences are 0
+     */
+    public static double pValue(double[] differences, int length, StatisticsScratch scratch) {
+        return pValue(differences, length, scratch, COUNTING_THRESHOLD);
+    }
+
+    private static double pValue(double[] allDifferences, int length, StatisticsScratch scratch,
+                                 int countingThreshold) {
+        scratch.ensureCapacity(length);
+        // Leaves out the differences of 0, moving the others to the front (in place when both arrays are the same)
+        double[] differences = scratch.values();
+        double[] absoluteDifferences = scratch.ranks2();
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            double difference = allDifferences[i];
+            if (difference != 0) {
+                differences[count] = difference;
+                absoluteDifferences[count] = Math.abs(difference);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        double[] ranks = scratch.ranks1();
+        double tieSum = toKeys(absoluteDifferences, count, scratch.keys())
+                ? rankByCounting(count, scratch, countingThreshold)
+                : rankBySorting(absoluteDifferences, count, scratch);
+
+        double positiveRankSum = 0;
+        for (int i = 0; i < count; i++) {
+            if (differences[i] > 0) {
+                positiveRankSum += ranks[i];
+            }
+        }
+
+        // Like R, differences of 0 rule out the exact distribution even though they are left out of the rank sum
+        if (count == length && count < EXACT_LIMIT && tieSum == 0) {
+            // Without ties the ranks, and so the rank sum, are whole numbers
+            int w = (int) Math.min(positiveRankSum, count * (count + 1) / 2.0 - positiveRankSum);
+            return Math.min(1.0, 2 * EXACT_CDF[count][w]);
+        }
+        double n = count;
+        double z = positiveRankSum - n * (n + 1) / 4.0;
+        double variance = n * (n + 1) * (2 * n + 1) / 24.0 - tieSum / 48.0;
+        z = (z - 0.5 * Math.signum(z)) / Math.sqrt(variance);
+        return Math.min(1.0, 2 * STANDARD_NORMAL.cumulativeProbability(-Math.abs(z)));
+    }
+
+    /**
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample, in the same order
+     * @throws NoDataException            whenever the samples are empty
+     * @throws DimensionMismatchException whenever the samples differ in length
+     */
+    public static void checkSamples(double[] values1, double[] values2)
+            throws NoDataException, DimensionMismatchException {
+        if (values1.length == 0 || values2.length == 0) {
+            throw new NoDataException();
+        }
+        if (values1.length != values2.length) {
+            throw new DimensionMismatchException(values2.length, values1.length);
+        }
+    }
+
+    /**
+     * Converts the absolute differences to whole multiples of 1 / RESOLUTION, so differences that only differ by
+     * rounding (e.g. 0.3 - 0.1 and 0.5 - 0.3) are ties whichever way they are ranked
+     *
+     * @return false if one of the differences is not a multiple of 1 / RESOLUTION, the differences are kept as is
+     */
+    private static boolean toKeys(double[] absoluteDifferences, int count, int[] keys) {
+        for (int i = 0; i < count; i++) {
+            double scaled = absoluteDifferences[i] * RESOLUTION;
+            long key = Math.round(scaled);
+            if (key > RESOLUTION || Math.abs(scaled - key) > 1e-6) {
+                return false;
+            }
+            keys[i] = (int) key;
+        }
+        for (int i = 0; i < count; i++) {
+            absoluteDifferences[i] = keys[i];
+        }
+        return true;
+    }
+
+    /**
+     * Ranks the keys of the differences in a single pass over the keys and one over the possible values, falls back
+     * to sorting when there are too few differences for counting to pay off
+     *
+     * @return sum of t^3 - t over the sizes t of all groups of ties
+     */
+    private static double rankByCounting(int count, StatisticsScratch scratch, int countingThreshold) {
+        if (count < countingThreshold) {
+            return rankBySorting(scratch.ranks2(), count, scratch);
+        }
+        int[] keys = scratch.keys();
+        int[] bucketCounts = scratch.bucketCounts(RESOLUTION + 1);
+        double[] bucketRanks = scratch.bucketRanks();
+        for (int i = 0; i < count; i++) {
+            bucketCounts[keys[i]]++;
+        }
+
+        double tieSum = 0;
+        int ranked = 0;
+        for (int key = 0; key <= RESOLUTION; key++) {
+            double ties = bucketCounts[key];
+            if (ties == 0) {
+                continue;
+            }
+            // The values of this key share the average of ranks ranked+1..ranked+ties
+            bucketRanks[key] = ranked + (ties + 1) / 2.0;
+            tieSum += ties * ties * ties - ties;
+            ranked += (int) ties;
+        }
+
+        double[] ranks = scratch.ranks1();
+        for (int i = 0; i < count; i++) {
+            ranks[i] = bucketRanks[keys[i]];
+        }
+        return tieSum;
+    }
+
+    /**
+     * Ranks the absolute differences by sorting a copy
+     *
+     * @return sum of t^3 - t over the sizes t of all groups of ties
+     */
+    private static double rankBySorting(double[] absoluteDifferences, int count, StatisticsScratch scratch) {
+        double[] sorted = scratch.sorted();
+        Ranks.averageRanks(absoluteDifferences, count, sorted, scratch.ranks1());
+        return Ranks.tieSum(sorted, count);
+    }
+
+    /**
+     * Counts, for every amount of differences n, the subsets of the ranks 1..n per rank sum, adding one rank at a time
+     *
+     * @return cumulative distribution of the rank sum for every n below EXACT_LIMIT
+     */
+    private static double[][] exactDistributions() {
+        double[][] distributions = new double[EXACT_LIMIT][];
+        int maxSum = (EXACT_LIMIT - 1) * EXACT_LIMIT / 2;
+        double[] subsets = new double[maxSum + 1];
+        subsets[0] = 1;
+        for (int n = 0; n < EXACT_LIMIT; n++) {
+            if (n > 0) {
+                for (int sum = n * (n + 1) / 2; sum >= n; sum--) {
+                    subsets[sum] += subsets[sum - n];
+                }
+            }
+            int nSum = n * (n + 1) / 2;
+            double total = Math.pow(2, n);
+            double[] cumulative = new double[nSum + 1];
+            double running = 0;
+            for (int sum = 0; sum <= nSum; sum++) {
+                running += subsets[sum];
+                cumulative[sum] = running / total;
+            }
+            distributions[n] = cumulative;
+        }
+        return distributions;
+    }
+}
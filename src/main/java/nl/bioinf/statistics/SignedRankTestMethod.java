@@ -0,0 +1,29 @@
+package nl.bioinf.statistics;
+
+/**
+ * Provides the Wilcoxon signed-rank test as the wilcoxon-test method
+ */
+public class SignedRankTestMethod implements StatisticalMethod {
+
+    @Override
+    public String getName() {
+        return "wilcoxon-test";
+    }
+
+    @Override
+    public double compute(PairContext pair) {
+        SignedRankTest.checkSamples(pair.getSample1(), pair.getSample2());
+        return SignedRankTest.pValue(pair.getDifferences(), pair.getSample1().length, pair.getScratch());
+    }
+
+    @Override
+    public boolean isPairable() {
+        return true;
+    }
+
+    @Override
+    public boolean needsRanks() {
+        // Ranks the absolute differences itself, not the samples
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
+
+/**
+ * Spearman's rank correlation of two samples, without allocating once the {@link StatisticsScratch} is large enough.
+ * Gives the same values as
+ * {@link org.apache.commons.math3.stat.correlation.SpearmansCorrelation#correlation(double[], double[])}.
+ */
+public class SpearmanCorrelation {
+
+    private SpearmanCorrelation() {
+    }
+
+    /**
+     * @param values1 values of the first sample, without NaN
+     * @param values2 values of the second sample, in the same order
+     * @param scratch buffers of the calling thread
+     * @return correlation between -1 and 1, NaN when all values of a sample are equal
+     * @throws DimensionMismatchException   whenever the samples differ in length
+     * @throws MathIllegalArgumentException whenever the samples have fewer than 2 values
+     */
+    public static double correlation(double[] values1, double[] values2, StatisticsScratch scratch)
+            throws DimensionMismatchException, MathIllegalArgumentException {
+        checkSamples(values1, values2);
+        int count = values1.length;
+        scratch.ensureCapacity(count);
+        double[] ranks1 = scratch.ranks1();
+        double[] ranks2 = scratch.ranks2();
+        Ranks.averageRanks(values1, count, scratch.sorted(), ranks1);
+        Ranks.averageRanks(values2, count, scratch.sorted(), ranks2);
+        return correlation(ranks1, ranks2, count);
+    }
+
+    /**
+     * Computes the correlation of ranks that were already computed, e.g. by a {@link PairContext}
+     *
+     * @param ranks1 average ranks of the first sample, starting at 1
+     * @param ranks2 average ranks of the second sample, in the same order
+     * @param count  amount of ranks of both samples
+     * @return correlation between -1 and 1, NaN when all values of a sample are equal
+     */
+    public static double correlation(double[] ranks1, double[] ranks2, int count) {
+        // Both rankings hold the ranks 1..count, so both have the same mean
+        double meanRank = (count + 1) / 2.0;
+        double sumOfProducts = 0;
+        double sumOfSquares1 = 0;
+        double sumOfSquares2 = 0;
+        for (int i = 0; i < count; i++) {
+            double deviation1 = ranks1[i] - meanRank;
+            double deviation2 = ranks2[i] - meanRank;
+            sumOfProducts += deviation1 * deviation2;
+            sumOfSquares1 += deviation1 * deviation1;
+            sumOfSquares2 += deviation2 * deviation2;
+        }
+        double correlation = sumOfProducts / Math.sqrt(sumOfSquares1 * sumOfSquares2);
+        // Rounding can push the correlation of identical samples just above 1
+        return Math.max(-1, Math.min(1, correlation));
+    }
+
+    /**
+     * @param values1 values of the first sample
+     * @param values2 values of the second sample
+     * @throws DimensionMismatchException   whenever the samples differ in length
+     * @throws MathIllegalArgumentException whenever the samples have fewer than 2 values
+     */
+    public static void checkSamples(double[] values1, double[] values2)
+            throws DimensionMismatchException, MathIllegalArgumentException {
+        if (values1.length != values2.length) {
+            throw new DimensionMismatchException(values1.length, values2.length);
+        }
+        if (values1.length < 2) {
+            throw new MathIllegalArgumentException(LocalizedFormats.INSUFFICIENT_DIMENSION, values1.length, 2);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package nl.bioinf.statistics;
+
+/**
+ * Provides Spearman's rank correlation as the spearman method, which results in a correlation instead of a p-value
+ */
+public class SpearmanCorrelationMethod implements StatisticalMethod {
+
+    @Override
+    public String getName() {
+        return "spearman";
+    }
+
+    @Override
+    public double compute(PairContext pair) {
+        SpearmanCorrelation.checkSamples(pair.getSample1(), pair.getSample2());
+        return SpearmanCorrelation.correlation(pair.getRanks1(), pair.getRanks2(), pair.getSample1().length);
+    }
+
+    @Override
+    public boolean resultsInPValue() {
+        return false;
+    }
+
+    @Override
+    public boolean isPairable() {
+        return true;
+    }
+
+    @Override
+    public boolean needsRanks() {
+        return true;
+    }
+
+    @Override
+    public boolean isVectorizable() {
+        // Every sample can be ranked once, see SpearmanCorrelationMatrix
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package nl.bioinf.statistics;
+
+/**
+ * Service provider interface of a statistical method that compares two samples, loaded by
+ * {@link nl.bioinf.model.StatisticalMethods} through {@link java.util.ServiceLoader}. Providers are registered in
+ * META-INF/services/nl.bioinf.statistics.StatisticalMethod, so methods from other jars on the class path can be used
+ * with compare -m without changing this application. Preprocessing that several methods need is shared through
+ * the {@link PairContext} of the pair. Next to the computation, a provider declares what it needs from the samples,
+ * so the comparers can prepare every sample once instead of once for every pair.
+ */
+public interface StatisticalMethod {
+
+    /**
+     * @return name of the method as passed to compare -m, e.g. t-test
+     */
+    String getName();
+
+    /**
+     * Compares the two samples of a pair. Preprocessing that other methods may need as well, like the differences or
+     * the ranks, should be read from the pair so it is computed once for all methods.
+     *
+     * @param pair the samples, without NaN, with their shared preprocessing and the buffers of the calling thread
+     * @return result of the method, a p-value when {@link #resultsInPValue()}
+     * @throws IllegalArgumentException whenever the samples do not suit the method, e.g. when they are too small
+     */
+    double compute(PairContext pair) throws IllegalArgumentException;
+
+    /**
+     * Test statistic the result of {@link #compute} is based on. Written next to the p-value when two groups are
+     * compared for every probe, see {@link nl.bioinf.comparing.MethylationArrayProbeComparer}.
+     *
+     * @param pair the samples, without NaN, with their shared preprocessing and the buffers of the calling thread
+     * @return test statistic, NaN when the method has none
+     * @throws IllegalArgumentException whenever the samples do not suit the method, e.g. when they are too small
+     */
+    default double statistic(PairContext pair) throws IllegalArgumentException {
+        return Double.NaN;
+    }
+
+    /**
+     * @return whether the result is a p-value, which can be adjusted for multiple testing
+     */
+    default boolean resultsInPValue() {
+        return true;
+    }
+
+    /**
+     * @return whether the values of both samples belong together in pairs, so both samples need the same length.
+     * Methods that are not pairable compare two independent groups, and can also compare two groups of samples for
+     * every probe.
+     */
+    boolean isPairable();
+
+    /**
+     * @return whether the method reads the ranks of both samples, each ranked on its own, from
+     * {@link PairContext#getRanks1()} and {@link PairContext#getRanks2()}. The comparers then rank every sample once
+     * when preparing it, see {@link #isVectorizable()}.
+     */
+    boolean needsRanks();
+
+    /**
+     * @return whether the result only depends on the preprocessing of both samples on their own (their mean, variance
+     * or ranks), not on the values of both samples together like the differences or the pooled ranks. The comparers
+     * then prepare every sample once as a {@link PreparedSample}, instead of once for every pair the sample is in.
+     */
+    default boolean isVectorizable() {
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package nl.bioinf.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Caller-owned buffers used by the statistical kernels, so comparing a pair does not allocate once the buffers are
+ * large enough. Not thread safe: every thread should use its own instance.
+ */
+public class StatisticsScratch {
+    private double[] values = new double[0];
+    private double[] sorted = new double[0];
+    private double[] ranks1 = new double[0];
+    private double[] ranks2 = new double[0];
+    private int[] keys = new int[0];
+    // Used to rank values with a known resolution by counting, allocated on first use
+    private int[] bucketCounts = null;
+    private double[] bucketRanks = null;
+
+    /**
+     * Grows the buffers whenever they are smaller than count, the contents are not kept
+     *
+     * @param count amount of values per sample that will be compared
+     */
+    public void ensureCapacity(int count) {
+        if (values.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, values.length + (values.length >> 1));
+        values = new double[capacity];
+        sorted = new double[capacity];
+        ranks1 = new double[capacity];
+        ranks2 = new double[capacity];
+        keys = new int[capacity];
+    }
+
+    double[] values() {
+        return values;
+    }
+
+    double[] sorted() {
+        return sorted;
+    }
+
+    double[] ranks1() {
+        return ranks1;
+    }
+
+    double[] ranks2() {
+        return ranks2;
+    }
+
+    int[] keys() {
+        return keys;
+    }
+
+    /**
+     * @param bucketCount amount of distinct values that can be ranked by counting
+     * @return array of at least bucketCount counts, filled with 0
+     */
+    int[] bucketCounts(int bucketCount) {
+        if (bucketCounts == null || bucketCounts.length < bucketCount) {
+            bucketCounts = new int[bucketCount];
+            bucketRanks = new double[bucketCount];
+        } else {
+            Arrays.fill(bucketCounts, 0, bucketCount, 0);
+        }
+        return bucketCounts;
+    }
+
+    /**
+     * @return array with the same length as the last {@link #bucketCounts(int)}, to store the rank of every bucket in
+     */
+    double[] bucketRanks() {
+        return bucketRanks;
+    }
+}
@@ -0,0 +1,25 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.special.Beta;
+
+/**
+ * Two-sided p-values of Student's t distribution, computed directly from the regularized incomplete beta function
+ * instead of through a new {@link org.apache.commons.math3.distribution.TDistribution} for every test.
+ */
+final class StudentT {
+
+    private StudentT() {
+    }
+
+    /**
+     * @param t                t statistic
+     * @param degreesOfFreedom degrees of freedom, larger than 0
+     * @return two-sided p-value, NaN when t is NaN
+     */
+    static double twoSidedPValue(double t, double degreesOfFreedom) {
+        if (t == 0) {
+            return 1.0;
+        }
+        return Beta.regularizedBeta(degreesOfFreedom / (degreesOfFreedom + t * t), 0.5 * degreesOfFreedom, 0.5);
+    }
+}
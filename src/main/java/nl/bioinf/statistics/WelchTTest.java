@@ -0,0 +1,87 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
+
+/**
+ * Welch's t-test (two samples, unequal variances) on values that are already summarized into mean, variance and
+ * count, or on two arrays of values. Gives the same p-values as
+ * {@link org.apache.commons.math3.stat.inference.TTest#tTest(double[], double[])}.
+ */
+public class WelchTTest {
+
+    private WelchTTest() {
+    }
+
+    /**
+     * Computes the t statistic
+     *
+     * @param mean1     mean of the first group
+     * @param variance1 sample variance of the first group
+     * @param count1    amount of values in the first group
+     * @param mean2     mean of the second group
+     * @param variance2 sample variance of the second group
+     * @param count2    amount of values in the second group
+     * @return t statistic, NaN when both variances are 0
+     */
+    public static double statistic(double mean1, double variance1, int count1,
+                                   double mean2, double variance2, int count2) {
+        return (mean1 - mean2) / Math.sqrt(variance1 / count1 + variance2 / count2);
+    }
+
+    /**
+     * Computes the two-sided p-value, using the Welch-Satterthwaite degrees of freedom
+     *
+     * @param mean1     mean of the first group
+     * @param variance1 sample variance of the first group
+     * @param count1    amount of values in the first group, at least 2
+     * @param mean2     mean of the second group
+     * @param variance2 sample variance of the second group
+     * @param count2    amount of values in the second group, at least 2
+     * @return p-value, NaN when the p-value is undefined (e.g. both variances are 0)
+     */
+    public static double pValue(double mean1, double variance1, int count1,
+                                double mean2, double variance2, int count2) {
+        double t = statistic(mean1, variance1, count1, mean2, variance2, count2);
+        double degreesOfFreedom = degreesOfFreedom(variance1, count1, variance2, count2);
+        if (Double.isNaN(t) || Double.isNaN(degreesOfFreedom) || degreesOfFreedom <= 0) {
+            return Double.NaN;
+        }
+        return StudentT.twoSidedPValue(t, degreesOfFreedom);
+    }
+
+    /**
+     * Computes the two-sided p-value of two arrays of values, without allocating
+     *
+     * @param values1 values of the first group, at least 2
+     * @param values2 values of the second group, at least 2
+     * @return p-value, NaN when the p-value is undefined (e.g. both variances are 0)
+     * @throws NumberIsTooSmallException whenever one of the groups has fewer than 2 values
+     */
+    public static double pValue(double[] values1, double[] values2) throws NumberIsTooSmallException {
+        checkSamples(values1, values2);
+        double mean1 = PairedTTest.mean(values1);
+        double mean2 = PairedTTest.mean(values2);
+        return pValue(mean1, PairedTTest.variance(values1, mean1), values1.length,
+                mean2, PairedTTest.variance(values2, mean2), values2.length);
+    }
+
+    /**
+     * @param values1 values of the first group
+     * @param values2 values of the second group
+     * @throws NumberIsTooSmallException whenever one of the groups has fewer than 2 values
+     */
+    public static void checkSamples(double[] values1, double[] values2) throws NumberIsTooSmallException {
+        if (values1.length < 2 || values2.length < 2) {
+            throw new NumberIsTooSmallException(LocalizedFormats.INSUFFICIENT_DATA_FOR_T_STATISTIC,
+                    Math.min(values1.length, values2.length), 2, true);
+        }
+    }
+
+    private static double degreesOfFreedom(double variance1, int count1, double variance2, int count2) {
+        double term1 = variance1 / count1;
+        double term2 = variance2 / count2;
+        return (term1 + term2) * (term1 + term2)
+                / ((term1 * term1) / (count1 - 1.0) + (term2 * term2) / (count2 - 1.0));
+    }
+}
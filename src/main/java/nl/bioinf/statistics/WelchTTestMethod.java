@@ -0,0 +1,42 @@
+package nl.bioinf.statistics;
+
+/**
+ * Provides Welch's t-test as the welch-test method, for independent groups
+ */
+public class WelchTTestMethod implements StatisticalMethod {
+
+    @Override
+    public String getName() {
+        return "welch-test";
+    }
+
+    @Override
+    public double compute(PairContext pair) {
+        WelchTTest.checkSamples(pair.getSample1(), pair.getSample2());
+        return WelchTTest.pValue(pair.getMean1(), pair.getVariance1(), pair.getSample1().length,
+                pair.getMean2(), pair.getVariance2(), pair.getSample2().length);
+    }
+
+    @Override
+    public double statistic(PairContext pair) {
+        WelchTTest.checkSamples(pair.getSample1(), pair.getSample2());
+        return WelchTTest.statistic(pair.getMean1(), pair.getVariance1(), pair.getSample1().length,
+                pair.getMean2(), pair.getVariance2(), pair.getSample2().length);
+    }
+
+    @Override
+    public boolean isPairable() {
+        return false;
+    }
+
+    @Override
+    public boolean needsRanks() {
+        return false;
+    }
+
+    @Override
+    public boolean isVectorizable() {
+        // Only uses the mean and variance of every sample
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package nl.bioinf.summarizing;
+
+/**
+ * Mergeable sketch of the distribution of beta values, used for quantiles and histograms. Beta values are counted in
+ * 1001 bins of width 0.001 centered on 0.000, 0.001, ..., 1.000, so memory does not grow with the amount of values.
+ * Quantiles are exact for beta values with at most 3 decimals and are off by at most 0.0005 otherwise.
+ */
+public class BetaValueSketch {
+    private static final int RESOLUTION = 1000;
+    private final long[] counts = new long[RESOLUTION + 1];
+    private long count;
+
+    /**
+     * @param value beta value to add, missing values (NaN) are ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        int bin = (int) Math.round(value * RESOLUTION);
+        counts[Math.max(0, Math.min(RESOLUTION, bin))]++;
+        count++;
+    }
+
+    /**
+     * @param other {@link BetaValueSketch} of another part of the data
+     */
+    public void merge(BetaValueSketch other) {
+        for (int bin = 0; bin <= RESOLUTION; bin++) {
+            counts[bin] += other.counts[bin];
+        }
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gives the quantile using the nearest rank: the smallest value that at least a fraction q of all values is equal
+     * to or smaller than
+     *
+     * @param q fraction between 0 and 1, e.g. 0.5 for the median
+     * @return the quantile, NaN when no values were added
+     */
+    public double getQuantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int bin = 0; bin <= RESOLUTION; bin++) {
+            seen += counts[bin];
+            if (seen >= rank) {
+                return (double) bin / RESOLUTION;
+            }
+        }
+        return 1.0;
+    }
+
+    /**
+     * Counts the values per bin of equal width between 0 and 1, the last bin includes 1
+     *
+     * Values are counted by the bin of the sketch they were rounded to, so a value up to 0.0005 below a bin edge
+     * is counted in the bin above it, e.g. 0.0996 is counted in [0.10, 0.15) with 20 bins
+     *
+     * @param binCount amount of bins
+     * @return amount of values in every bin
+     */
+    public long[] getHistogram(int binCount) {
+        long[] histogram = new long[binCount];
+        for (int bin = 0; bin <= RESOLUTION; bin++) {
+            int histogramBin = Math.min(binCount - 1, (int) ((long) bin * binCount / RESOLUTION));
+            histogram[histogramBin] += counts[bin];
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,91 @@
+package nl.bioinf.summarizing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Summary statistics of every sample and of the whole cohort, built one row at a time. Summaries of separate chunks
+ * of rows can be merged, so the rows can be summarized on multiple threads.
+ */
+public class CohortSummary {
+    private final List<String> samples;
+    private final RunningStatistics[] sampleStatistics;
+    private final BetaValueSketch[] sampleSketches;
+    private long rowCount;
+
+    /**
+     *
+     * @param samples names of the samples, in the order of the columns
+     */
+    public CohortSummary(List<String> samples) {
+        this.samples = new ArrayList<>(samples);
+        sampleStatistics = new RunningStatistics[samples.size()];
+        sampleSketches = new BetaValueSketch[samples.size()];
+        for (int sample = 0; sample < samples.size(); sample++) {
+            sampleStatistics[sample] = new RunningStatistics();
+            sampleSketches[sample] = new BetaValueSketch();
+        }
+    }
+
+    /**
+     * @param betaValues beta values of one row, one for every sample, NaN for missing values
+     */
+    public void addRow(double[] betaValues) {
+        for (int sample = 0; sample < sampleStatistics.length; sample++) {
+            sampleStatistics[sample].add(betaValues[sample]);
+            sampleSketches[sample].add(betaValues[sample]);
+        }
+        rowCount++;
+    }
+
+    /**
+     * Adds all rows of other to this summary
+     *
+     * @param other {@link CohortSummary} of other rows of the same samples
+     */
+    public void merge(CohortSummary other) {
+        for (int sample = 0; sample < sampleStatistics.length; sample++) {
+            sampleStatistics[sample].merge(other.sampleStatistics[sample]);
+            sampleSketches[sample].merge(other.sampleSketches[sample]);
+        }
+        rowCount += other.rowCount;
+    }
+
+    public List<String> getSamples() {
+        return samples;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public RunningStatistics getSampleStatistics(int sample) {
+        return sampleStatistics[sample];
+    }
+
+    public BetaValueSketch getSampleSketch(int sample) {
+        return sampleSketches[sample];
+    }
+
+    /**
+     * @return {@link RunningStatistics} of all beta values of all samples
+     */
+    public RunningStatistics getCohortStatistics() {
+        RunningStatistics cohort = new RunningStatistics();
+        for (RunningStatistics statistics : sampleStatistics) {
+            cohort.merge(statistics);
+        }
+        return cohort;
+    }
+
+    /**
+     * @return {@link BetaValueSketch} of all beta values of all samples
+     */
+    public BetaValueSketch getCohortSketch() {
+        BetaValueSketch cohort = new BetaValueSketch();
+        for (BetaValueSketch sketch : sampleSketches) {
+            cohort.merge(sketch);
+        }
+        return cohort;
+    }
+}
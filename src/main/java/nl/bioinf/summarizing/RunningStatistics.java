@@ -0,0 +1,105 @@
+package nl.bioinf.summarizing;
+
+/**
+ * Count, mean, variance, minimum and maximum of a stream of beta values, updated one value at a time using Welford's
+ * algorithm. Statistics of separate parts of the data can be merged, giving the same result (up to rounding) as
+ * adding all values to one object. Missing values (NaN) are only counted.
+ */
+public class RunningStatistics {
+    private long count;
+    private long naCount;
+    private double mean;
+    // Sum of squared differences from the mean
+    private double sumOfSquares;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * @param value beta value to add, NaN for a missing value
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            naCount++;
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+        if (count == 1) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+
+    /**
+     * Adds all values of other to this object, using the pairwise update of Chan et al.
+     *
+     * @param other {@link RunningStatistics} of another part of the data
+     */
+    public void merge(RunningStatistics other) {
+        naCount += other.naCount;
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            sumOfSquares = other.sumOfSquares;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        long totalCount = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / totalCount;
+        sumOfSquares += other.sumOfSquares + delta * delta * count * other.count / totalCount;
+        count = totalCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return amount of values that are not missing
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getNaCount() {
+        return naCount;
+    }
+
+    /**
+     * @return fraction of all values that is missing, NaN when no values were added
+     */
+    public double getNaRate() {
+        long total = count + naCount;
+        return total == 0 ? Double.NaN : (double) naCount / total;
+    }
+
+    /**
+     * @return mean of the values that are not missing, NaN when there are none
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return sample variance of the values that are not missing, NaN when there are less than 2
+     */
+    public double getVariance() {
+        return count < 2 ? Double.NaN : sumOfSquares / (count - 1);
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+}
@@ -1,63 +1,334 @@
 package nl.bioinf.summarizing;
 
+import nl.bioinf.io.MethylationRowReader;
+import nl.bioinf.io.ProbeSummaryWriter;
 import nl.bioinf.model.MethylationArray;
-import nl.bioinf.model.MethylationData;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
- * Generates short summary for input file
+ * Generates short summary for input file. All statistics are gathered in a single pass over the rows: the rows are
+ * split into chunks that are summarized on multiple threads, the summaries of the chunks are merged in order of the
+ * chunks, so the result does not depend on the amount of threads. A text input file can be summarized while it is
+ * read, without keeping the whole file in memory.
  */
 public class SummaryGenerator {
     private static final Logger logger = LogManager.getLogger(SummaryGenerator.class.getName());
+    // Amount of rows per chunk
+    private static final int CHUNK_SIZE = 16384;
+    // Amount of chunks per thread that may be summarized or waiting to be merged at the same time
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
 
     /**
      * @param methylationData parsed data from input file, including samples, chromosomes/genes and beta values
      */
     public static void generateSummary(MethylationArray methylationData) {
-        List<String> samples;
-        List<MethylationData> dataRows;
-
-        if (methylationData != null) {
-            logger.info("Generating summary...");
-            samples = methylationData.getSamples();
-            dataRows = methylationData.getData();
-        } else {
+        if (methylationData == null) {
             return;
         }
+        printSummary(summarize(methylationData, 1));
+    }
+
+    /**
+     * Prints the number of samples and genes, the average beta value and the amount of NA values to the terminal.
+     * The average only includes values that are not missing.
+     *
+     * @param summary {@link CohortSummary} of the input file
+     */
+    public static void printSummary(CohortSummary summary) {
+        RunningStatistics cohort = summary.getCohortStatistics();
+
+        System.out.println("Summary for input file:");
+        System.out.println("Number of samples: " + summary.getSamples().size());
+        System.out.println("Number of genes: " + summary.getRowCount());
+        System.out.println("Avg beta value: " + Math.round(cohort.getMean() * 100.0) / 100.0); //2 decimals
+        System.out.println("Amount of NA values: " + cohort.getNaCount());
+
+        logger.debug("Summary generated successfully.");
+    }
+
+    /**
+     * Summarizes every sample and the whole cohort
+     *
+     * @param methylationData parsed data from input file
+     * @param threads         amount of threads used to summarize the rows
+     * @return {@link CohortSummary} of all rows
+     */
+    public static CohortSummary summarize(MethylationArray methylationData, int threads) {
+        try {
+            return summarize(methylationData, threads, null);
+        } catch (IOException ex) {
+            // Only writing the probes can fail
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Summarizes every sample and the whole cohort, and writes the summary of every probe in the order of the rows
+     *
+     * @param methylationData parsed data from input file
+     * @param threads         amount of threads used to summarize the rows
+     * @param probeWriter     {@link ProbeSummaryWriter} to write the summary of every probe to, null to skip the
+     *                        probes
+     * @return {@link CohortSummary} of all rows
+     * @throws IOException for instances where writing the probes failed
+     */
+    public static CohortSummary summarize(MethylationArray methylationData, int threads,
+                                          ProbeSummaryWriter probeWriter) throws IOException {
+        int rowCount = methylationData.getRowCount();
+        boolean withProbes = probeWriter != null;
+        int[] nextStart = {0};
+
+        return summarizeChunks(methylationData.getSamples(), threads, probeWriter, () -> {
+            int start = nextStart[0];
+            if (start >= rowCount) {
+                return null;
+            }
+            int end = Math.min(start + CHUNK_SIZE, rowCount);
+            nextStart[0] = end;
+            return () -> summarizeChunk(methylationData, start, end, withProbes);
+        });
+    }
+
+    /**
+     * Summarizes every sample and the whole cohort while reading the file, only a few chunks of lines are kept in
+     * memory at once. The lines are read on the calling thread and parsed on the other threads.
+     *
+     * @param reader      {@link MethylationRowReader} positioned at the first row
+     * @param threads     amount of threads used to parse and summarize the rows
+     * @param probeWriter {@link ProbeSummaryWriter} to write the summary of every probe to, null to skip the probes
+     * @return {@link CohortSummary} of all rows
+     * @throws IOException              for instances where reading the file or writing the probes failed
+     * @throws IllegalArgumentException whenever a row contains invalid beta values
+     */
+    public static CohortSummary summarize(MethylationRowReader reader, int threads, ProbeSummaryWriter probeWriter)
+            throws IOException, IllegalArgumentException {
+        boolean withProbes = probeWriter != null;
+
+        return summarizeChunks(reader.getHeaderData().getSamples(), threads, probeWriter, () -> {
+            String[] lines = new String[CHUNK_SIZE];
+            int lineCount = reader.readLines(lines);
+            if (lineCount == 0) {
+                return null;
+            }
+            return () -> summarizeLines(reader, lines, lineCount, withProbes);
+        });
+    }
 
-        int amountNAValues = 0;
-        double betaVal = 0.0;
-        int minAllowedBetaVal = 0;
-
-        if (samples != null && dataRows != null) {
-            // Add value of all beta values to calculate the average
-            logger.debug("Calculating average beta values...");
-            for (MethylationData row : dataRows) {
-                ArrayList<Double> betas = row.betaValues();
-                for (double beta : betas) {
-                    if (beta >= minAllowedBetaVal) {
-                        betaVal += beta;
-                        continue;
-                    }
-                    // If betaVal is not >1, add it to the amount of NA values (MethylationFileReader parses NA to -1)
-                    amountNAValues++;
+    /**
+     * Summarizes the chunks on multiple threads and merges them in the order they were supplied
+     *
+     * @param samples     names of the samples
+     * @param threads     amount of threads used to summarize the chunks
+     * @param probeWriter {@link ProbeSummaryWriter} to write the summary of every probe to, or null
+     * @param chunks      {@link ChunkSupplier} giving the tasks that summarize the chunks
+     * @return {@link CohortSummary} of all chunks
+     * @throws IOException for instances where supplying the chunks or writing the probes failed
+     */
+    private static CohortSummary summarizeChunks(List<String> samples, int threads, ProbeSummaryWriter probeWriter,
+                                                 ChunkSupplier chunks) throws IOException {
+        logger.info("Generating summary...");
+        CohortSummary summary = new CohortSummary(samples);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1));
+        Deque<Future<ChunkSummary>> inFlight = new ArrayDeque<>();
+        int maxChunksInFlight = Math.max(threads, 1) * CHUNKS_IN_FLIGHT_PER_THREAD;
+
+        try {
+            Callable<ChunkSummary> chunk;
+            while ((chunk = chunks.next()) != null) {
+                inFlight.add(executor.submit(chunk));
+                if (inFlight.size() >= maxChunksInFlight) {
+                    mergeChunk(inFlight.removeFirst().get(), summary, probeWriter);
                 }
             }
+            while (!inFlight.isEmpty()) {
+                mergeChunk(inFlight.removeFirst().get(), summary, probeWriter);
+            }
+
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(ex.getCause());
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.debug("Summarized {} rows of {} samples", summary.getRowCount(), samples.size());
+        return summary;
+    }
+
+    /**
+     * Summarizes all rows of one chunk of a {@link MethylationArray}
+     *
+     * @param start      index of the first row of the chunk
+     * @param end        index directly after the last row of the chunk
+     * @param withProbes whether to compute the summary of every probe
+     * @return {@link ChunkSummary} of the chunk
+     */
+    private static ChunkSummary summarizeChunk(MethylationArray data, int start, int end, boolean withProbes) {
+        ChunkSummary result = new ChunkSummary(data.getSamples(), withProbes ? end - start : 0);
+        double[] values = new double[data.getSampleCount()];
+        // Non-missing values of one row, sorted for the median
+        double[] sorted = new double[values.length];
+
+        for (int row = start; row < end; row++) {
+            for (int sample = 0; sample < values.length; sample++) {
+                values[sample] = data.getBetaValue(row, sample);
+            }
+            result.summary.addRow(values);
+            if (withProbes) {
+                result.locations[row - start] = data.getLocation(row);
+                summarizeProbe(result, row - start, values, sorted);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses and summarizes the lines of one chunk of the file
+     *
+     * @param lineCount  amount of lines in the chunk
+     * @param withProbes whether to compute the summary of every probe
+     * @return {@link ChunkSummary} of the chunk
+     * @throws IllegalArgumentException whenever a row contains invalid beta values
+     */
+    private static ChunkSummary summarizeLines(MethylationRowReader reader, String[] lines, int lineCount,
+                                               boolean withProbes) throws IllegalArgumentException {
+        List<String> samples = reader.getHeaderData().getSamples();
+        ChunkSummary result = new ChunkSummary(samples, withProbes ? lineCount : 0);
+        double[] values = new double[samples.size()];
+        double[] sorted = new double[values.length];
+
+        for (int i = 0; i < lineCount; i++) {
+            int locationEnd = reader.parseRow(lines[i], values);
+            result.summary.addRow(values);
+            if (withProbes) {
+                result.locations[i] = lines[i].substring(0, locationEnd);
+                summarizeProbe(result, i, values, sorted);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores the summary of one probe at index i of the chunk
+     *
+     * @param values beta values of the probe
+     * @param sorted scratch array of at least values.length
+     */
+    private static void summarizeProbe(ChunkSummary result, int i, double[] values, double[] sorted) {
+        int count = 0;
+        for (double value : values) {
+            if (!Double.isNaN(value)) {
+                sorted[count++] = value;
+            }
+        }
+        Arrays.sort(sorted, 0, count);
+        result.count[i] = count;
+        result.naRate[i] = values.length == 0 ? Double.NaN : (double) (values.length - count) / values.length;
+        result.mean[i] = mean(sorted, count);
+        result.variance[i] = variance(sorted, count, result.mean[i]);
+        result.min[i] = count == 0 ? Double.NaN : sorted[0];
+        result.median[i] = median(sorted, count);
+        result.max[i] = count == 0 ? Double.NaN : sorted[count - 1];
+    }
+
+    private static void mergeChunk(ChunkSummary chunk, CohortSummary summary, ProbeSummaryWriter probeWriter)
+            throws IOException {
+        summary.merge(chunk.summary);
+        if (probeWriter == null) {
+            return;
+        }
+        for (int i = 0; i < chunk.count.length; i++) {
+            probeWriter.writeRow(chunk.locations[i], chunk.count[i], chunk.naRate[i], chunk.mean[i],
+                    chunk.variance[i], chunk.min[i], chunk.median[i], chunk.max[i]);
+        }
+    }
 
-            double avgBetaVal = betaVal / (dataRows.size() * samples.size());
+    private static double mean(double[] values, int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        return count > 0 ? sum / count : Double.NaN;
+    }
 
-            System.out.println("Summary for input file:");
-            System.out.println("Number of samples: " + samples.size());
-            System.out.println("Number of genes: " + dataRows.size());
-            System.out.println("Avg beta value: " + Math.round(avgBetaVal * 100.0) / 100.0); //2 decimals
-            System.out.println("Amount of NA values: " + amountNAValues);
+    private static double variance(double[] values, int count, double mean) {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double sumOfSquares = 0;
+        for (int i = 0; i < count; i++) {
+            double difference = values[i] - mean;
+            sumOfSquares += difference * difference;
+        }
+        return sumOfSquares / (count - 1);
+    }
 
-            logger.debug("Summary generated successfully.");
+    private static double median(double[] sorted, int count) {
+        if (count == 0) {
+            return Double.NaN;
         }
+        int middle = count / 2;
+        return count % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * Summary of the samples over the rows of one chunk, and the summary of every probe of the chunk stored per
+     * column
+     */
+    private static class ChunkSummary {
+        private final CohortSummary summary;
+        private final String[] locations;
+        private final int[] count;
+        private final double[] naRate;
+        private final double[] mean;
+        private final double[] variance;
+        private final double[] min;
+        private final double[] median;
+        private final double[] max;
+
+        ChunkSummary(List<String> samples, int probeCount) {
+            summary = new CohortSummary(samples);
+            locations = new String[probeCount];
+            count = new int[probeCount];
+            naRate = new double[probeCount];
+            mean = new double[probeCount];
+            variance = new double[probeCount];
+            min = new double[probeCount];
+            median = new double[probeCount];
+            max = new double[probeCount];
+        }
+    }
+
+    /**
+     * Gives the tasks that summarize the chunks, one at a time
+     */
+    @FunctionalInterface
+    private interface ChunkSupplier {
+        /**
+         * @return task that summarizes the next chunk, null when there are no chunks left
+         * @throws IOException for instances where reading the chunk failed
+         */
+        Callable<ChunkSummary> next() throws IOException;
     }
 }
@@ -2,13 +2,34 @@ package nl.bioinf.utils;
 
 import nl.bioinf.argumentvaliditycheck.*;
 import nl.bioinf.comparing.MethylationArrayPosComparer;
+import nl.bioinf.comparing.MethylationArrayProbeComparer;
 import nl.bioinf.comparing.MethylationArraySampleComparer;
+import nl.bioinf.comparing.RegionAggregator;
+import nl.bioinf.comparing.SpearmanCorrelationMatrix;
+import nl.bioinf.filtering.FilterPlan;
 import nl.bioinf.filtering.MethylationDataFilter;
-import nl.bioinf.io.ComparisonFileWriter;
+import nl.bioinf.filtering.StreamingMethylationFilter;
+import nl.bioinf.io.BvalFileReader;
+import nl.bioinf.io.BinaryComparisonSink;
+import nl.bioinf.io.BvalFileWriter;
+import nl.bioinf.io.CorrelationMatrixWriter;
+import nl.bioinf.io.CsvComparisonSink;
 import nl.bioinf.io.FilterFileWriter;
-import nl.bioinf.io.MethylationFileReader;
-import nl.bioinf.model.ComparisonResults;
+import nl.bioinf.io.FilterRowWriter;
+import nl.bioinf.io.MappedMethylationFileReader;
+import nl.bioinf.io.MethylationRowReader;
+import nl.bioinf.io.ParallelMethylationFileReader;
+import nl.bioinf.io.ProbeResultWriter;
+import nl.bioinf.io.ProbeSummaryWriter;
+import nl.bioinf.io.SampleSheetReader;
+import nl.bioinf.io.SummaryFileWriter;
+import nl.bioinf.model.ComparisonResultSink;
 import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.SampleSheet;
+import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PValueAdjustment;
+import nl.bioinf.statistics.StatisticalMethod;
+import nl.bioinf.summarizing.CohortSummary;
 import nl.bioinf.summarizing.SummaryGenerator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,9 +39,7 @@ import picocli.CommandLine.Model.CommandSpec;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * Reusable option for filepath
@@ -28,7 +47,7 @@ import java.util.List;
 class FilePathInput {
     @Option(names = {"-f", "--file"},
             description = "Path to file containing the input methylation data file containing beta values, genes, " +
-                    "chromosomes and one or more samples",
+                    "chromosomes and one or more samples. Also accepts a .bval file made with the convert subcommand",
             arity = "1",
             required = true)
     Path filePath;
@@ -72,6 +91,14 @@ class SampleIndex {
     int sampleIndex;
 }
 
+class Threads {
+    @Option(names = {"-t", "--threads"},
+            description = "Amount of threads used for reading the input file and comparing samples. " +
+                    "Default: ${DEFAULT-VALUE}",
+            arity = "1")
+    int threads = 1;
+}
+
 class NaRemover {
     @Option(names = {"-NA", "--remove-na"},
             description = "Whether to remove all data rows that contain one or more NA " +
@@ -88,25 +115,46 @@ class NaRemover {
         mixinStandardHelpOptions = true,
         subcommands = {Summary.class,
                 Filter.class,
-                Compare.class})
+                Compare.class,
+                Convert.class})
 public class CommandLineParser implements Runnable {
+    private static final Logger logger = LogManager.getLogger();
 
-    static MethylationArray readFile(FilePathInput filePathInput, int sampleIndex) {
-        MethylationFileReader fileReader;
-
+    /**
+     * Reads the input file by mapping it into memory, using the parallel reader when more than one thread is
+     * requested. A .bval file is detected by its content and loaded directly, using the sample index stored in it.
+     *
+     * @param filePathInput {@link FilePathInput} containing the path of the input file
+     * @param sampleIndex   index of first sample column
+     * @param threads       amount of threads used for reading
+     * @return {@link MethylationArray} or null if the file could not be read
+     */
+    static MethylationArray readFile(FilePathInput filePathInput, int sampleIndex, int threads) {
         try {
-            fileReader = new MethylationFileReader();
+            if (BvalFileReader.isBvalFile(filePathInput.filePath)) {
+                BvalFileReader fileReader = new BvalFileReader();
+                fileReader.readFile(filePathInput.filePath);
+                if (fileReader.getData().getSampleIndex() != sampleIndex) {
+                    logger.warn("Ignoring sample index: '{}', using the sample index stored in the .bval file: '{}'.",
+                            sampleIndex + 1, fileReader.getData().getSampleIndex() + 1);
+                }
+                return fileReader.getData();
+            }
+            if (threads > 1) {
+                ParallelMethylationFileReader fileReader = new ParallelMethylationFileReader(threads);
+                fileReader.readCSV(filePathInput.filePath, sampleIndex);
+                return fileReader.getData();
+            }
+            MappedMethylationFileReader fileReader = new MappedMethylationFileReader();
             fileReader.readCSV(filePathInput.filePath, sampleIndex);
+            return fileReader.getData();
         } catch (IOException | IllegalArgumentException ex) {
             return null;
         }
-
-        return fileReader.getData();
-
     }
 
     /**
-     * Run method of parent class, only runs when user passes no subcommand (summary/filter/compare)
+     * Run method of parent class, only runs when user passes no subcommand (summary/filter/compare/convert)
      * and outputs usage help
      */
     @Override
@@ -131,6 +179,27 @@ class Summary implements Runnable {
     Verbosity verbosity;
     @Mixin
     SampleIndex sampleIndex;
+    @Mixin
+    Threads threads;
+
+    @Spec
+    CommandSpec spec;
+    @Option(names = {"-o", "--output"},
+            description = "Path to write the statistics of every sample and of the whole cohort to, in the format " +
+                    "of -of. Default: only the summary in the terminal",
+            arity = "1")
+    Path outputFilePath;
+
+    @Option(names = {"-of", "--output-format"},
+            description = "Format of the output file of -o. Default: ${DEFAULT-VALUE}. " +
+                    "Valid values: csv, json (also holds a histogram of the beta values)",
+            arity = "1")
+    String outputFormat = "csv";
+
+    @Option(names = {"-ps", "--probe-summary"},
+            description = "Path to write the statistics of every probe to (csv). Default: not written",
+            arity = "1")
+    Path probeSummaryPath;
 
     /**
      * Run method of summary subcommand, runs when user passes subcommand summary and outputs a summary to the terminal
@@ -146,23 +215,69 @@ class Summary implements Runnable {
             return;
         }
 
-        MethylationArray data;
+        if (!outputFormat.equals("csv") && !outputFormat.equals("json")) {
+            throw new ParameterException(spec.commandLine(),
+                    String.format("Invalid value '%s' for option '--output-format'. Valid values: csv, json",
+                            outputFormat));
+        }
 
         if (sampleIndex.sampleIndex > 1) {
             try {
-                data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1);
-            } catch (Exception e) {
-                return;
-            }
+                CohortSummary summary = summarize();
+                if (summary == null) {
+                    return;
+                }
+                SummaryGenerator.printSummary(summary);
 
-            assert data != null;
-            SummaryGenerator.generateSummary(data);
+                if (outputFilePath != null && outputFormat.equals("json")) {
+                    SummaryFileWriter.writeJson(summary, outputFilePath);
+                } else if (outputFilePath != null) {
+                    SummaryFileWriter.writeCsv(summary, outputFilePath);
+                }
+            } catch (IOException | IllegalArgumentException ex) {
+            }
         } else {
             logger.error("Invalid sample index: '{}'. Please provide the number that marks the start of the sample " +
                     "columns, using -si [index].", sampleIndex.sampleIndex);
         }
 
     }
+
+    /**
+     * Summarizes the input file. A text file is summarized while it is read, a .bval file is loaded as a whole.
+     *
+     * @return {@link CohortSummary} of the input file, or null if the .bval file could not be read
+     * @throws IOException              for instances where reading the file or writing the probes failed
+     * @throws IllegalArgumentException whenever a row contains invalid beta values
+     */
+    private CohortSummary summarize() throws IOException, IllegalArgumentException {
+        if (BvalFileReader.isBvalFile(filePathInput.filePath)) {
+            MethylationArray data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1,
+                    threads.threads);
+            if (data == null) {
+                return null;
+            }
+            try (ProbeSummaryWriter probeWriter = openProbeWriter(data)) {
+                return SummaryGenerator.summarize(data, threads.threads, probeWriter);
+            }
+        }
+
+        try (MethylationRowReader reader = new MethylationRowReader(filePathInput.filePath,
+                sampleIndex.sampleIndex - 1);
+             ProbeSummaryWriter probeWriter = openProbeWriter(reader.getHeaderData())) {
+            return SummaryGenerator.summarize(reader, threads.threads, probeWriter);
+        }
+    }
+
+    /**
+     * @param headerData {@link MethylationArray} holding the header of the input file
+     * @return {@link ProbeSummaryWriter} for the file of -ps, or null when no such file was requested
+     * @throws IOException for instances where the file could not be created
+     */
+    private ProbeSummaryWriter openProbeWriter(MethylationArray headerData) throws IOException {
+        return probeSummaryPath == null ? null
+                : new ProbeSummaryWriter(probeSummaryPath, headerData.getAnnotationHeader());
+    }
 }
 
 /**
@@ -188,6 +303,8 @@ class Filter implements Runnable {
     FilePathOutput filePathOutput;
     @Mixin
     NaRemover naRemover;
+    @Mixin
+    Threads threads;
     @ArgGroup()
     PosArguments posArguments;
     @Option(names = {"-c", "--cutoff"},
@@ -201,6 +318,19 @@ class Filter implements Runnable {
             arity = "1")
     MethylationDataFilter.CutoffType cutoffType = MethylationDataFilter.CutoffType.upper;
 
+    @Option(names = {"-st", "--stream"},
+            description = "Whether to filter the file row by row while reading it, instead of loading the whole " +
+                    "file first. Keeps memory usage flat for very large files, but genes/chromosomes are not checked " +
+                    "for presence in the data. Default: ${DEFAULT-VALUE}. Valid values: [true/false]",
+            arity = "1")
+    boolean stream = false;
+
+    @Option(names = {"-dp", "--decimals"},
+            description = "Amount of decimals of the beta values in the output file [range = 0-9]. " +
+                    "Default: ${DEFAULT-VALUE}",
+            arity = "1")
+    int decimals = FilterFileWriter.DEFAULT_PRECISION;
+
     /**
      * Run method of filter subcommand, runs when user passes subcommand filter.
      * Checks are performed on argument input and input file is filtered on those arguments if they are valid
@@ -217,11 +347,18 @@ class Filter implements Runnable {
 
         }
 
+        // The streaming reader only reads text input, .bval files are loaded as a whole instead
+        if (stream && !BvalFileReader.isBvalFile(filePathInput.filePath)) {
+            runStreaming();
+            return;
+        }
+
         MethylationArray data = null;
 
         if (sampleIndex.sampleIndex > 1) {
             try {
-                data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1);
+                data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1,
+                        threads.threads);
             } catch (Exception ex) {
                 return;
             }
@@ -230,27 +367,18 @@ class Filter implements Runnable {
                     "columns, using -si [index].", sampleIndex.sampleIndex);
         }
 
-        // Make new MethylationArray object (copy of MethylationArray generated by MethylationFileReader),
-        // to store filtered values
-        MethylationArray filteredData = new MethylationArray();
-
-        if (data != null) {
-            filteredData.setSampleIndex(data.getSampleIndex());
-            filteredData.setHeader(data.getHeader(), data.getSampleIndex());
-            filteredData.setSamples(data.getSamples());
-            filteredData.setData(data.getData());
-            filteredData.setIndexInformation(data.getIndexInformation());
-
-        } else {
+        if (data == null) {
             return;
         }
-        // List to hold methods to be run based on user arguments
-        List<Runnable> filtersToRun = new ArrayList<>();
-        CompositeUserArgumentsCheck checker = new CompositeUserArgumentsCheck();
 
-        if (naRemover.removeNa) {
-            MethylationDataFilter.removeNA(filteredData);
-        }
+        // Filters are compiled into one FilterPlan and applied in place, in a single pass, on the MethylationArray
+        // generated by MethylationFileReader. The validity checks below are constructed before the plan is applied,
+        // so they still see the unfiltered data
+        MethylationArray filteredData = data;
+
+        FilterPlan filterPlan = new FilterPlan();
+        CompositeUserArgumentsCheck checker = new CompositeUserArgumentsCheck();
+        filterPlan.setRemoveNa(naRemover.removeNa);
 
         try {
 
@@ -258,13 +386,11 @@ class Filter implements Runnable {
                 SampleArgumentCheck sampleArgumentCheck = new SampleArgumentCheck(sampleInput.samples, data);
                 checker.addFilter(sampleArgumentCheck);
 
-                filtersToRun.add(() -> MethylationDataFilter.filterBySample(filteredData, sampleInput.samples));
+                filterPlan.setSamplesFilter(sampleInput.samples);
 
             }
 
             if (posArguments != null && posArguments.chr != null) {
-                MethylationDataFilter.PosFilterType posFilterType = MethylationDataFilter.PosFilterType.CHROMOSOME;
-
                 String[] chromosomes = Arrays.stream(posArguments.chr)
                         .map(String::toUpperCase)
                         .toArray(String[]::new);
@@ -272,11 +398,9 @@ class Filter implements Runnable {
                 ChrArgumentCheck chrArgumentCheck = new ChrArgumentCheck(chromosomes, data);
                 checker.addFilter(chrArgumentCheck);
 
-                filtersToRun.add(() -> MethylationDataFilter.filterByPos(filteredData, posFilterType, chromosomes));
+                filterPlan.setPosFilter(MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes);
 
             } else if (posArguments != null && posArguments.genes != null) {
-                MethylationDataFilter.PosFilterType posFilterType = MethylationDataFilter.PosFilterType.GENE;
-
                 // Convert to uppercase, so that gene is still recognized if user passes it in lowercase
                 String[] genes = Arrays.stream(posArguments.genes)
                         .map(String::toUpperCase)
@@ -285,7 +409,7 @@ class Filter implements Runnable {
                 GeneArgumentCheck geneArgumentCheck = new GeneArgumentCheck(genes, data);
                 checker.addFilter(geneArgumentCheck);
 
-                filtersToRun.add(() -> MethylationDataFilter.filterByPos(filteredData, posFilterType, genes));
+                filterPlan.setPosFilter(MethylationDataFilter.PosFilterType.GENE, genes);
 
             }
 
@@ -293,25 +417,74 @@ class Filter implements Runnable {
             // being 'null', like the other arguments
             CutOffArgumentCheck cutOffArgumentCheck = new CutOffArgumentCheck(cutoff);
             checker.addFilter(cutOffArgumentCheck);
-
-            if (cutoff != 0.0) {
-                filtersToRun.add(() -> MethylationDataFilter.filterByCutOff(filteredData, cutoff, cutoffType));
-            }
-
+            filterPlan.setCutOff(cutoff, cutoffType);
 
             if (checker.pass()) {
-                // Run all filters for which the user has passed arguments
-                for (Runnable filter : filtersToRun) {
-                    filter.run();
-                }
+                // Run all filters for which the user has passed arguments in one pass
+                filterPlan.apply(filteredData, threads.threads);
             }
         } catch (IllegalArgumentException ex) {
             return;
         }
 
         try {
-            FilterFileWriter.writeFile(filteredData, filePathOutput.outputFilePath);
-        } catch (IOException ex) {
+            FilterFileWriter.writeFile(filteredData, filePathOutput.outputFilePath, decimals);
+        } catch (IOException | IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Filters the input file row by row, writing every row that passes the filters directly to the output path.
+     * Only the header is read before filtering starts, so argument checks that need the whole file are skipped.
+     */
+    private void runStreaming() {
+        if (sampleIndex.sampleIndex <= 1) {
+            logger.error("Invalid sample index: '{}'. Please provide the number that marks the start of the sample " +
+                    "columns, using -si [index].", sampleIndex.sampleIndex);
+            return;
+        }
+
+        try (MethylationRowReader reader = new MethylationRowReader(filePathInput.filePath,
+                sampleIndex.sampleIndex - 1)) {
+            StreamingMethylationFilter streamingFilter = new StreamingMethylationFilter();
+            CompositeUserArgumentsCheck checker = new CompositeUserArgumentsCheck();
+            streamingFilter.setRemoveNa(naRemover.removeNa);
+
+            if (sampleInput.samples != null) {
+                checker.addFilter(new SampleArgumentCheck(sampleInput.samples, reader.getHeaderData()));
+                streamingFilter.setSamplesFilter(sampleInput.samples);
+            }
+
+            if (posArguments != null && posArguments.chr != null) {
+                String[] chromosomes = Arrays.stream(posArguments.chr)
+                        .map(String::toUpperCase)
+                        .toArray(String[]::new);
+
+                checker.addFilter(new ChrArgumentCheck(chromosomes));
+                streamingFilter.setPosFilter(MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes);
+
+            } else if (posArguments != null && posArguments.genes != null) {
+                String[] genes = Arrays.stream(posArguments.genes)
+                        .map(String::toUpperCase)
+                        .toArray(String[]::new);
+
+                streamingFilter.setPosFilter(MethylationDataFilter.PosFilterType.GENE, genes);
+            }
+
+            checker.addFilter(new CutOffArgumentCheck(cutoff));
+            streamingFilter.setCutOff(cutoff, cutoffType);
+
+            if (!checker.pass()) {
+                return;
+            }
+
+            try (FilterRowWriter writer = new FilterRowWriter(filePathOutput.outputFilePath,
+                    streamingFilter.getOutputHeader(reader.getHeaderData()), decimals)) {
+                streamingFilter.run(reader, writer);
+            }
+            System.out.println("Output file generated at: '" + filePathOutput.outputFilePath + "'");
+
+        } catch (IOException | IllegalArgumentException ex) {
         }
     }
 
@@ -352,6 +525,8 @@ class Compare implements Runnable {
     PosArguments posArguments;
     @Mixin
     SampleIndex sampleIndex;
+    @Mixin
+    Threads threads;
 
     @Option(names = {"-s", "--sample"},
             description = "Name(s) of the sample(s) to compare with each other. default value: all samples in the file",
@@ -368,17 +543,88 @@ class Compare implements Runnable {
             arity = "1..*")
     String[] methods;
 
+    @Option(names = {"-sm", "--spearman-matrix"},
+            description = "Whether to compute the Spearman correlation of all pairs of samples at once and write " +
+                    "the full correlation matrix, instead of running the methods per pair. Much faster for many " +
+                    "samples, not used when comparing chromosomes or genes. Default: ${DEFAULT-VALUE}. Valid values: [true/false]",
+            arity = "1")
+    boolean spearmanMatrix = false;
+
+    @Option(names = {"-ss", "--sample-sheet"},
+            description = "Path to a sample sheet (csv with a header, then one 'sample,group' line per sample). " +
+                    "When given, the two groups are compared for every probe separately with the test of -pt",
+            arity = "1")
+    Path sampleSheetPath;
+
+    @Option(names = {"-gr", "--groups"},
+            description = "The two groups of the sample sheet to compare. Default: the two groups in the sample sheet",
+            arity = "2")
+    String[] groups;
+
+    @Option(names = {"-pt", "--probe-test"},
+            description = "Statistical test used to compare the groups per probe. Default: ${DEFAULT-VALUE}. " +
+                    "Valid values: welch-test, mann-whitney-test (rank-sum) or another method for " +
+                    "independent groups",
+            arity = "1")
+    String probeTest = "welch-test";
+
+    @Option(names = {"-pa", "--p-adjust"},
+            description = "Correction for multiple testing, written as an extra column next to every column of " +
+                    "p-values. Default: ${DEFAULT-VALUE}. Valid values: none, bonferroni, fdr (Benjamini-Hochberg)",
+            arity = "1")
+    String pAdjust = "none";
+
+    @Option(names = {"-of", "--output-format"},
+            description = "Format of the output file of the comparisons. Default: ${DEFAULT-VALUE}. " +
+                    "Valid values: csv, binary (read back with BinaryComparisonReader, does not hold adjusted p-values)",
+            arity = "1")
+    String outputFormat = "csv";
+
+    @Option(names = {"-ag", "--aggregate"},
+            description = "Summarizes the probes of every chromosome or gene to one value per sample before " +
+                    "comparing, so the regions are compared sample by sample. Only used when comparing chromosomes " +
+                    "or genes. Default: ${DEFAULT-VALUE}. Valid values: none, mean, median, trimmed-mean " +
+                    "(10%% of the values left out at both ends)",
+            arity = "1")
+    String aggregate = "none";
+
     private void validateMethodInput() {
 
         for (String method : methods) {
-            if (!ValidMethods.isValid(method)) {
+            if (!StatisticalMethods.isValid(method)) {
                 throw new ParameterException(spec.commandLine(),
                         String.format("Invalid value '%s' for option '--methods'. Valid values: %s",
-                                method, String.join(", ", ValidMethods.validNames())));
+                                method, String.join(", ", StatisticalMethods.validNames())));
             }
         }
     }
 
+    private PValueAdjustment getPValueAdjustment() {
+        try {
+            return PValueAdjustment.fromName(pAdjust);
+        } catch (IllegalArgumentException ex) {
+            throw new ParameterException(spec.commandLine(),
+                    String.format("Invalid value '%s' for option '--p-adjust'. Valid values: none, bonferroni, fdr",
+                            pAdjust));
+        }
+    }
+
+    /**
+     * @return {@link RegionAggregator.Summary} of the regions, null when all probes of the regions are compared
+     */
+    private RegionAggregator.Summary getRegionSummary() {
+        if (aggregate.equals("none")) {
+            return null;
+        }
+        try {
+            return RegionAggregator.Summary.fromName(aggregate);
+        } catch (IllegalArgumentException ex) {
+            throw new ParameterException(spec.commandLine(),
+                    String.format("Invalid value '%s' for option '--aggregate'. Valid values: none, mean, median, " +
+                            "trimmed-mean", aggregate));
+        }
+    }
+
     /**
      * Run method of compare subcommand, runs when user passes compare filter.
      * Input arguments are validated, statistical methods are applied based on user input and output is written to
@@ -395,11 +641,22 @@ class Compare implements Runnable {
         }
 
         validateMethodInput();
+        PValueAdjustment adjustment = getPValueAdjustment();
+        RegionAggregator.Summary regionSummary = getRegionSummary();
+        if (!outputFormat.equals("csv") && !outputFormat.equals("binary")) {
+            throw new ParameterException(spec.commandLine(),
+                    String.format("Invalid value '%s' for option '--output-format'. Valid values: csv, binary",
+                            outputFormat));
+        }
+        if (outputFormat.equals("binary") && adjustment != PValueAdjustment.NONE) {
+            logger.warn("Adjusted p-values are not written to binary output, only the raw p-values are written.");
+        }
         MethylationArray data = null;
 
         if (sampleIndex.sampleIndex > 0) {
             try {
-                data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1);
+                data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1,
+                        threads.threads);
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -412,20 +669,24 @@ class Compare implements Runnable {
             samples = data.getSamples().toArray(String[]::new);
         }
 
-        ComparisonResults corrData = null;
         MethylationArray filteredData;
         if (naRemover.removeNa) {
             MethylationDataFilter.removeNA(data);
         }
 
+        if (sampleSheetPath != null) {
+            if (data != null) {
+                runPerProbe(data, adjustment);
+            }
+            return;
+        }
+
         if (posArguments != null & data != null) {
-            filteredData = new MethylationArray();
-            filteredData.setSampleIndex(data.getSampleIndex());
-            filteredData.setHeader(data.getHeader(), data.getSampleIndex());
-            filteredData.setSamples(data.getSamples());
-            filteredData.setData(data.getData());
-            filteredData.setIndexInformation(data.getIndexInformation());
+            // Positional filters are applied in place, the checks below read the genes/chromosomes before filtering
+            filteredData = data;
             MethylationDataFilter.PosFilterType posFilterType;
+            RegionAggregator regionAggregator = regionSummary == null ? null
+                    : new RegionAggregator(filteredData, regionSummary, threads.threads);
 
             CompositeUserArgumentsCheck checker = new CompositeUserArgumentsCheck();
 
@@ -445,8 +706,9 @@ class Compare implements Runnable {
                     if (checker.pass()) {
                         MethylationDataFilter.filterByPos(filteredData, posFilterType, chromosomes);
                         MethylationDataFilter.filterBySample(filteredData, samples);
-                        corrData = new MethylationArrayPosComparer(filteredData, methods, posFilterType,
-                                chromosomes).performStatisticalMethods();
+                        writeComparisons(sink -> new MethylationArrayPosComparer(filteredData, methods,
+                                MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes, regionAggregator)
+                                .performStatisticalMethods(sink), adjustment);
                     }
                 } else if (posArguments.genes != null) {
                     String[] genes = Arrays.stream(posArguments.genes)
@@ -461,54 +723,104 @@ class Compare implements Runnable {
 
                         MethylationDataFilter.filterByPos(filteredData, posFilterType, genes);
                         MethylationDataFilter.filterBySample(filteredData, samples);
-                        corrData = new MethylationArrayPosComparer(filteredData, methods, posFilterType,
-                                genes).performStatisticalMethods();
+                        writeComparisons(sink -> new MethylationArrayPosComparer(filteredData, methods,
+                                MethylationDataFilter.PosFilterType.GENE, genes, regionAggregator)
+                                .performStatisticalMethods(sink), adjustment);
                     }
                 }
             } catch (IllegalArgumentException ex) {
                 return;
             }
 
+        } else if (spearmanMatrix && data != null) {
+            try {
+                SpearmanCorrelationMatrix correlationMatrix = new SpearmanCorrelationMatrix(data, samples,
+                        threads.threads);
+                CorrelationMatrixWriter.writeFile(samples, correlationMatrix.computeCorrelations(),
+                        filePathOutput.outputFilePath);
+            } catch (IllegalArgumentException | IOException ex) {
+            }
+            return;
         } else {
             try {
-                corrData = new MethylationArraySampleComparer(data, samples, methods).performStatisticalMethods();
+                MethylationArray sampleData = data;
+                writeComparisons(sink -> new MethylationArraySampleComparer(sampleData, samples, methods,
+                        threads.threads).performStatisticalMethods(sink), adjustment);
             } catch (IllegalArgumentException ex) {
                 return;
             }
         }
+    }
 
-        if (corrData != null) {
+    /**
+     * Runs the comparisons, writing every finished comparison directly to the output file
+     *
+     * @param comparisons runs the comparisons, passing their results to the given sink
+     * @param adjustment  {@link PValueAdjustment} applied to the p-values of every method
+     * @throws IllegalArgumentException whenever the comparisons fail on invalid input
+     */
+    private void writeComparisons(Comparisons comparisons, PValueAdjustment adjustment)
+            throws IllegalArgumentException {
+        try (ComparisonResultSink sink = outputFormat.equals("binary")
+                ? new BinaryComparisonSink(filePathOutput.outputFilePath, methods)
+                : new CsvComparisonSink(filePathOutput.outputFilePath, methods, adjustment)) {
             try {
-                new ComparisonFileWriter(corrData, filePathOutput.outputFilePath).writeData();
-            } catch (IOException ex) {
+                comparisons.run(sink);
+            } catch (IOException | RuntimeException ex) {
+                sink.abort();
+                throw ex;
             }
+        } catch (IOException ex) {
+            return;
         }
+        System.out.println("Output file generated at: '" + filePathOutput.outputFilePath + "'");
     }
 
-    enum ValidMethods {
-        TTEST("t-test"),
-        SPEARMAN("spearman"),
-        WILCOXONTEST("wilcoxon-test"),
-        WELCH("welch-test");
-
-        private final String name;
-
-        ValidMethods(String name) {
-            this.name = name;
-        }
+    /**
+     * Comparisons that pass their results to a {@link ComparisonResultSink}
+     */
+    private interface Comparisons {
+        void run(ComparisonResultSink sink) throws IOException;
+    }
 
-        public static boolean isValid(String value) {
-            return Arrays.stream(values()).anyMatch(v -> v.name.equals(value));
+    /**
+     * Compares the two groups of the sample sheet for every probe, writing the result of every probe to the output
+     * path as soon as its chunk is tested
+     *
+     * @param data       {@link MethylationArray} holding the probes to test
+     * @param adjustment {@link PValueAdjustment} applied to the p-values of all probes
+     */
+    private void runPerProbe(MethylationArray data, PValueAdjustment adjustment) {
+        if (!StatisticalMethods.isValid(probeTest) || StatisticalMethods.get(probeTest).isPairable()) {
+            throw new ParameterException(spec.commandLine(),
+                    String.format("Invalid value '%s' for option '--probe-test'. Valid values: %s",
+                            probeTest, StatisticalMethods.unpairableNames()));
         }
+        StatisticalMethod test = StatisticalMethods.get(probeTest);
 
-        public static List<String> validNames() {
-            return Arrays.stream(values())
-                    .map(ValidMethods::getName)
-                    .toList();
-        }
+        try {
+            SampleSheet sampleSheet = SampleSheetReader.readFile(sampleSheetPath);
+            String[] groupsToCompare = groups != null ? groups : sampleSheet.getGroups().toArray(String[]::new);
+            if (groupsToCompare.length != 2) {
+                logger.error("Sample sheet contains {} groups: {}, please pick the two groups to compare " +
+                        "using -gr [group1] [group2].", groupsToCompare.length, sampleSheet.getGroups());
+                return;
+            }
 
-        public String getName() {
-            return name;
+            MethylationArrayProbeComparer probeComparer = new MethylationArrayProbeComparer(data,
+                    sampleSheet.getSamples(groupsToCompare[0]), sampleSheet.getSamples(groupsToCompare[1]),
+                    test, threads.threads);
+            try (ProbeResultWriter writer = new ProbeResultWriter(filePathOutput.outputFilePath,
+                    data.getAnnotationHeader(), groupsToCompare[0], groupsToCompare[1], adjustment)) {
+                try {
+                    probeComparer.performStatisticalMethods(writer);
+                } catch (IOException | RuntimeException ex) {
+                    writer.abort();
+                    throw ex;
+                }
+            }
+            System.out.println("Output file generated at: '" + filePathOutput.outputFilePath + "'");
+        } catch (IOException | IllegalArgumentException ex) {
         }
     }
 
@@ -522,4 +834,60 @@ class Compare implements Runnable {
                 arity = "2..*")
         String[] genes;
     }
+}
+
+/**
+ * Subcommand for converting, takes file and writes it to a binary .bval file that loads much faster
+ */
+@Command(name = "convert",
+        description = "Converts the input file to a binary .bval file, which can be passed to -f of all other " +
+                "subcommands to skip parsing the text file.",
+        version = "Current version of BVAL: 0.0.1",
+        mixinStandardHelpOptions = true)
+class Convert implements Runnable {
+    private static final Logger logger = LogManager.getLogger();
+    @Mixin
+    FilePathInput filePathInput;
+    @Mixin
+    SampleIndex sampleIndex;
+    @Mixin
+    Verbosity verbosity;
+    @Mixin
+    Threads threads;
+    @Option(names = {"-o", "--output"},
+            description = "Path to where output will be written to, DEFAULT: ${DEFAULT-VALUE}",
+            arity = "1")
+    Path outputFilePath = Path.of("BVAL-output.bval");
+
+    /**
+     * Run method of convert subcommand, runs when user passes subcommand convert. The input file is read and written
+     * to the output path as .bval file.
+     */
+    @Override
+    public void run() {
+        VerbosityLevelProcessor verbosityLevelProcessor = new VerbosityLevelProcessor();
+
+        try {
+            verbosityLevelProcessor.applyVerbosity(verbosity.verbose);
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+
+        if (sampleIndex.sampleIndex <= 1) {
+            logger.error("Invalid sample index: '{}'. Please provide the number that marks the start of the sample " +
+                    "columns, using -si [index].", sampleIndex.sampleIndex);
+            return;
+        }
+
+        MethylationArray data = CommandLineParser.readFile(filePathInput, sampleIndex.sampleIndex - 1,
+                threads.threads);
+        if (data == null) {
+            return;
+        }
+
+        try {
+            BvalFileWriter.writeFile(data, outputFilePath);
+        } catch (IOException ex) {
+        }
+    }
 }
\ No newline at end of file
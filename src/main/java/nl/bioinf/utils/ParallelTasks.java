@@ -0,0 +1,54 @@
+package nl.bioinf.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a task on a {@link ForkJoinPool} and waits for it, so parallel streams inside the task use the threads of that
+ * pool instead of the common pool. Exceptions of the task are rethrown as they are.
+ */
+public final class ParallelTasks {
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Runs the task on a new pool, which is shut down afterwards
+     *
+     * @param threads amount of threads of the pool, at least 1 is used
+     * @param task    task to run, e.g. one that uses parallel streams
+     * @throws IllegalStateException whenever the task threw a checked exception or the calling thread was interrupted
+     */
+    public static void run(int threads, Runnable task) throws IllegalStateException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(threads, 1));
+        try {
+            run(pool, task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the task on an existing pool, which is left running
+     *
+     * @param pool pool to run the task on
+     * @param task task to run, e.g. one that uses parallel streams
+     * @throws IllegalStateException whenever the task threw a checked exception or the calling thread was interrupted
+     */
+    public static void run(ForkJoinPool pool, Runnable task) throws IllegalStateException {
+        try {
+            pool.submit(task).get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package nl.bioinf.comparing;
+
+import nl.bioinf.io.ProbeResultWriter;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.model.StatisticalMethods;
+import nl.bioinf.statistics.PValueAdjustment;
+import nl.bioinf.statistics.StatisticalMethod;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.stat.ranking.NaturalRanking;
+import org.apache.commons.math3.stat.inference.TTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethylationArrayProbeComparerTest {
+    private static final int ROW_COUNT = 20000;
+    @TempDir
+    Path tempDir;
+
+    private MethylationArray createData() {
+        Random random = new Random(11);
+        List<String> samples = new ArrayList<>();
+        for (int sample = 0; sample < 12; sample++) {
+            samples.add("Sample" + sample);
+        }
+        MethylationArray data = new MethylationArray();
+        data.setSamples(samples);
+        data.setHeader("id,gene,chr,Sample0", 3);
+        double[] row = new double[samples.size()];
+        for (int i = 0; i < ROW_COUNT; i++) {
+            for (int sample = 0; sample < row.length; sample++) {
+                // Second group is slightly higher, some values are missing
+                row[sample] = random.nextInt(40) == 0 ? Double.NaN
+                        : Math.min(1, Math.round((random.nextDouble() * 0.8 + (sample >= 6 ? 0.1 : 0)) * 100) / 100.0);
+            }
+            data.addData("cg" + i + ",GENE,1,", row);
+        }
+        return data;
+    }
+
+    @Test
+    @DisplayName("Test that per probe p-values match the Welch and tie corrected rank-sum tests, leaving out missing values")
+    void matchesCommonsMath() throws IOException {
+        MethylationArray data = createData();
+        List<String> group1 = List.of("Sample0", "Sample1", "Sample2", "Sample3", "Sample4", "Sample5");
+        List<String> group2 = List.of("Sample6", "Sample7", "Sample8", "Sample9", "Sample10", "Sample11");
+
+        for (StatisticalMethod probeTest : StatisticalMethods.get(new String[]{"welch-test", "mann-whitney-test"})) {
+            Path output = tempDir.resolve(probeTest.getName() + ".csv");
+            try (ProbeResultWriter writer = new ProbeResultWriter(output, data.getAnnotationHeader(), "a", "b")) {
+                assertEquals(ROW_COUNT, new MethylationArrayProbeComparer(data, group1, group2, probeTest, 3)
+                        .performStatisticalMethods(writer));
+            }
+
+            List<String> lines = Files.readAllLines(output);
+            assertEquals("id,gene,chr,n_a,n_b,mean_a,mean_b,statistic,p-value", lines.get(0));
+            assertEquals(ROW_COUNT + 1, lines.size());
+            for (int row = 0; row < ROW_COUNT; row += 97) {
+                String[] fields = lines.get(row + 1).split(",");
+                assertEquals("cg" + row, fields[0]);
+                double[] values1 = presentValues(data, row, 0, 6);
+                double[] values2 = presentValues(data, row, 6, 12);
+                double expected = probeTest.getName().equals("welch-test")
+                        ? new TTest().tTest(values1, values2)
+                        : tieCorrectedRankSumPValue(values1, values2);
+                assertEquals(values1.length, Integer.parseInt(fields[3]));
+                assertEquals(expected, Double.parseDouble(fields[8]), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test that adjusted p-values are appended to every probe and the temporary file is removed")
+    void adjustedPValues() throws IOException {
+        MethylationArray data = createData();
+        Path output = tempDir.resolve("adjusted.csv");
+        try (ProbeResultWriter writer = new ProbeResultWriter(output, data.getAnnotationHeader(), "a", "b",
+                PValueAdjustment.BENJAMINI_HOCHBERG)) {
+            new MethylationArrayProbeComparer(data, List.of("Sample0", "Sample1", "Sample2"),
+                    List.of("Sample6", "Sample7", "Sample8"), StatisticalMethods.get("welch-test"), 2)
+                    .performStatisticalMethods(writer);
+        }
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(ROW_COUNT + 1, lines.size());
+        assertTrue(lines.get(0).endsWith(",p-value,p-value_fdr"));
+        double[] pValues = new double[ROW_COUNT];
+        double[] adjusted = new double[ROW_COUNT];
+        for (int row = 0; row < ROW_COUNT; row++) {
+            String[] fields = lines.get(row + 1).split(",");
+            pValues[row] = Double.parseDouble(fields[8]);
+            adjusted[row] = Double.parseDouble(fields[9]);
+        }
+        assertArrayEquals(PValueAdjustment.BENJAMINI_HOCHBERG.adjust(pValues), adjusted);
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test that the probes written so far are kept without adjusted p-values when the comparison fails")
+    void abortedAdjustment() throws IOException {
+        MethylationArray data = createData();
+        Path output = tempDir.resolve("aborted.csv");
+        try (ProbeResultWriter writer = new ProbeResultWriter(output, data.getAnnotationHeader(), "a", "b",
+                PValueAdjustment.BONFERRONI)) {
+            writer.writeRow(data.getLocation(0), 3, 3, 0.5, 0.25, 2.5, 0.04);
+            writer.abort();
+        }
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith(",statistic,p-value"));
+        assertEquals(data.getLocation(0) + "3,3,0.5,0.25,2.5,0.04", lines.get(1));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test that unknown samples and methods for paired samples are rejected")
+    void invalidArguments() {
+        MethylationArray data = createData();
+        assertThrows(IllegalArgumentException.class, () -> new MethylationArrayProbeComparer(data,
+                List.of("Sample0"), List.of("SampleX"), StatisticalMethods.get("welch-test"), 1));
+        assertThrows(IllegalArgumentException.class, () -> new MethylationArrayProbeComparer(data,
+                List.of("Sample0"), List.of("Sample6"), StatisticalMethods.get("wilcoxon-test"), 1));
+    }
+
+    /**
+     * p-value of wilcox.test(values1, values2, exact = FALSE, correct = FALSE) of R
+     */
+    private static double tieCorrectedRankSumPValue(double[] values1, double[] values2) {
+        double[] values = new double[values1.length + values2.length];
+        System.arraycopy(values1, 0, values, 0, values1.length);
+        System.arraycopy(values2, 0, values, values1.length, values2.length);
+        double[] ranks = new NaturalRanking().rank(values);
+        double u = Arrays.stream(ranks, 0, values1.length).sum() - values1.length * (values1.length + 1) / 2.0;
+
+        double tieSum = 0;
+        for (double value : values) {
+            double ties = Arrays.stream(values).filter(other -> other == value).count();
+            // Every value of a group of ties adds (t^3 - t) / t
+            tieSum += ties * ties - 1;
+        }
+        double n = values.length;
+        double product = (double) values1.length * values2.length;
+        double sigma = Math.sqrt(product / 12 * (n + 1 - tieSum / (n * (n - 1))));
+        return 2 * new NormalDistribution().cumulativeProbability(-Math.abs(u - product / 2) / sigma);
+    }
+
+    private static double[] presentValues(MethylationArray data, int row, int fromSample, int toSample) {
+        return Arrays.stream(data.getRowBetaValues(row), fromSample, toSample)
+                .filter(value -> !Double.isNaN(value))
+                .toArray();
+    }
+}
@@ -1,6 +1,7 @@
 package nl.bioinf.comparing;
 
 import jdk.jfr.Description;
+import nl.bioinf.filtering.MethylationDataFilter;
 import nl.bioinf.io.MethylationFileReader;
 import nl.bioinf.model.MethylationArray;
 import nl.bioinf.model.ComparisonResults;
@@ -10,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -77,4 +79,21 @@ class MethylationArraySampleComparerTest {
         assertTrue(result.getStatisticMethods().contains("t-test"));
         assertFalse(result.getStatisticMethods().contains("welch-test"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @Description("Tests that comparing on multiple threads gives the same results in the same order")
+    void testPerformStatisticalMethodsParallel() {
+        String[] samples = {"Sample3", "Sample1", "Sample2"};
+        String[] methods = {"t-test", "spearman", "welch-test"};
+        MethylationDataFilter.removeNA(methylationDataCorrect);
+
+        ComparisonResults sequential = new MethylationArraySampleComparer(methylationDataCorrect, samples, methods)
+                .performStatisticalMethods();
+        ComparisonResults parallel = new MethylationArraySampleComparer(methylationDataCorrect, samples, methods, 4)
+                .performStatisticalMethods();
+
+        assertEquals(List.of("Sample3,Sample1", "Sample3,Sample2", "Sample1,Sample2"),
+                parallel.getSampleVersusSampleNames());
+        assertEquals(sequential.getStatisticsData(), parallel.getStatisticsData());
+    }
+}
@@ -0,0 +1,94 @@
+package nl.bioinf.comparing;
+
+import jdk.jfr.Description;
+import nl.bioinf.filtering.MethylationDataFilter;
+import nl.bioinf.io.MethylationFileReader;
+import nl.bioinf.model.BetaValueMatrix;
+import nl.bioinf.model.ComparisonResults;
+import nl.bioinf.model.MethylationArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegionAggregatorTest {
+    MethylationArray methylationDataCorrect;
+
+    @BeforeEach
+    public void setup() throws URISyntaxException, IOException {
+        ClassLoader classloader = getClass().getClassLoader();
+        Path filePath = Path.of(Objects.requireNonNull(
+                classloader.getResource("correctData.csv")).toURI());
+
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(filePath, 6);
+        methylationDataCorrect = methylationFileReader.getData();
+    }
+
+    @Test
+    @Description("Tests the summaries of the values of a region, the trimmed mean leaves out 10% at both ends")
+    void testSummaries() {
+        double[] values = {1.0, 0.3, 0.2, 0.4, 0.1, 0.3, 0.5, 0.2, 0.3, 0.4};
+        assertEquals(0.37, RegionAggregator.Summary.MEAN.summarize(values.clone(), values.length), 1e-12);
+        assertEquals(0.3, RegionAggregator.Summary.MEDIAN.summarize(values.clone(), values.length), 1e-12);
+        assertEquals(0.3, RegionAggregator.Summary.MEDIAN.summarize(values.clone(), 3), 1e-12);
+        assertEquals(0.325, RegionAggregator.Summary.TRIMMED_MEAN.summarize(values.clone(), values.length), 1e-12);
+        assertEquals(RegionAggregator.Summary.TRIMMED_MEAN, RegionAggregator.Summary.fromName("trimmed-mean"));
+        assertThrows(IllegalArgumentException.class, () -> RegionAggregator.Summary.fromName("mode"));
+    }
+
+    @Test
+    @Description("Tests aggregating chromosomes, missing values are left out of the summary of a sample")
+    void testAggregateChromosomes() {
+        RegionAggregator aggregator = new RegionAggregator(methylationDataCorrect,
+                RegionAggregator.Summary.MEAN, 2);
+        BetaValueMatrix regionValues = aggregator.aggregate(MethylationDataFilter.PosFilterType.CHROMOSOME,
+                new String[] {"17", "x"});
+
+        assertEquals(2, regionValues.getRowCount());
+        assertEquals(3, regionValues.getSampleCount());
+        // Chromosome 17 holds TP53 (NA, 0.85, 0.89) and MYC (0.12, 0.14, 0.10)
+        assertEquals(0.12, regionValues.get(0, 0), 1e-12);
+        assertEquals(0.495, regionValues.get(0, 1), 1e-12);
+        assertEquals(0.495, regionValues.get(0, 2), 1e-12);
+        assertEquals(0.35, regionValues.get(1, 1), 1e-12);
+    }
+
+    @Test
+    @Description("Tests aggregating a gene that is not present in the data")
+    void testAggregateInvalidInput() {
+        RegionAggregator aggregator = new RegionAggregator(methylationDataCorrect,
+                RegionAggregator.Summary.MEDIAN, 1);
+        assertThrows(IllegalArgumentException.class, () ->
+                aggregator.aggregate(MethylationDataFilter.PosFilterType.GENE, new String[] {"TP53", "TP5"}));
+    }
+
+    @Test
+    @Description("Tests comparing aggregated genes, a sample without values in a gene is only left out of its pairs")
+    void testCompareAggregatedRegions() {
+        MethylationArrayPosComparer posComparer = new MethylationArrayPosComparer(methylationDataCorrect,
+                new String[] {"t-test", "spearman"},
+                MethylationDataFilter.PosFilterType.GENE,
+                new String[] {"TP53", "MYC", "BRCA1"},
+                new RegionAggregator(methylationDataCorrect, RegionAggregator.Summary.MEAN, 1));
+        ComparisonResults results = posComparer.performStatisticalMethods();
+
+        assertEquals(List.of("TP53,MYC", "TP53,BRCA1", "MYC,BRCA1"), results.getSampleVersusSampleNames());
+        // TP53 is missing in Sample1, so its pairs compare Sample2 and Sample3 only, with t-test p-values of
+        // t.test(c(0.85, 0.89), c(0.14, 0.10), paired = TRUE) and t.test(c(0.85, 0.89), c(0.35, 0.38), paired = TRUE)
+        List<Double> tTest = results.getStatisticsData().get("t-test");
+        assertEquals(0.03392091683102694, tTest.get(0), 1e-9);
+        assertEquals(0.006302960109532574, tTest.get(1), 1e-9);
+        assertEquals(0.01176147382558268, tTest.get(2), 1e-9);
+        List<Double> spearman = results.getStatisticsData().get("spearman");
+        assertEquals(-1, spearman.get(0), 1e-12);
+        assertEquals(1, spearman.get(1), 1e-12);
+        assertEquals(-0.5, spearman.get(2), 1e-12);
+    }
+}
@@ -0,0 +1,68 @@
+package nl.bioinf.comparing;
+
+import nl.bioinf.model.MethylationArray;
+import org.apache.commons.math3.stat.correlation.SpearmansCorrelation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpearmanCorrelationMatrixTest {
+
+    @Test
+    @DisplayName("Test that the correlation matrix matches pairwise SpearmansCorrelation, including ties")
+    void matchesPairwiseSpearman() {
+        int sampleCount = 37;
+        int rowCount = 5000;
+        Random random = new Random(7);
+        List<String> samples = new ArrayList<>();
+        for (int sample = 0; sample < sampleCount; sample++) {
+            samples.add("Sample" + sample);
+        }
+        MethylationArray data = new MethylationArray();
+        data.setSamples(samples);
+        double[] row = new double[sampleCount];
+        for (int i = 0; i < rowCount; i++) {
+            for (int sample = 0; sample < sampleCount; sample++) {
+                // Two decimals give many ties, like real beta values
+                row[sample] = Math.round(random.nextDouble() * 100) / 100.0;
+            }
+            data.addData("cg" + i, row);
+        }
+
+        String[] sampleNames = samples.toArray(String[]::new);
+        double[][] correlations = new SpearmanCorrelationMatrix(data, sampleNames, 3).computeCorrelations();
+
+        SpearmansCorrelation spearmansCorrelation = new SpearmansCorrelation();
+        for (int i = 0; i < sampleCount; i++) {
+            for (int j = 0; j < sampleCount; j++) {
+                double expected = spearmansCorrelation.correlation(data.getSampleBetaValues(i),
+                        data.getSampleBetaValues(j));
+                assertEquals(expected, correlations[i][j], 1e-10);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test that samples with missing values get NaN and unknown samples are rejected")
+    void missingValuesAndUnknownSamples() {
+        MethylationArray data = new MethylationArray();
+        data.setSamples(new ArrayList<>(List.of("Sample1", "Sample2", "Sample3")));
+        data.addData("cg1", new double[]{0.1, Double.NaN, 0.3});
+        data.addData("cg2", new double[]{0.2, 0.5, 0.1});
+        data.addData("cg3", new double[]{0.3, 0.6, 0.2});
+
+        double[][] correlations = new SpearmanCorrelationMatrix(data,
+                new String[]{"Sample1", "Sample2", "Sample3"}, 1).computeCorrelations();
+        assertTrue(Double.isNaN(correlations[0][1]));
+        assertEquals(1.0, correlations[0][0], 1e-12);
+        assertEquals(-0.5, correlations[0][2], 1e-12);
+
+        assertThrows(IllegalArgumentException.class, () -> new SpearmanCorrelationMatrix(data,
+                new String[]{"Sample1", "SampleX"}, 1).computeCorrelations());
+    }
+}
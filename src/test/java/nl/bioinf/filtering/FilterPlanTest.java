@@ -0,0 +1,112 @@
+package nl.bioinf.filtering;
+
+import jdk.jfr.Description;
+import nl.bioinf.io.MethylationFileReader;
+import nl.bioinf.model.MethylationArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterPlanTest {
+    Path filePath;
+
+    @BeforeEach
+    public void setup() throws URISyntaxException {
+        ClassLoader classloader = getClass().getClassLoader();
+        filePath = Path.of(Objects.requireNonNull(
+                classloader.getResource("correctData.csv")).toURI());
+    }
+
+    private MethylationArray readData() throws IOException {
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(filePath, 6);
+        return methylationFileReader.getData();
+    }
+
+    @Test
+    @Description("Tests that the fused filter plan gives the same result as running the filters one after another")
+    void testApplyMatchesSequentialFilters() throws IOException {
+        String[] samples = {"Sample1", "Sample3"};
+        String[] chromosomes = {"17", "X"};
+
+        MethylationArray expected = readData();
+        MethylationDataFilter.removeNA(expected);
+        MethylationDataFilter.filterBySample(expected, samples);
+        MethylationDataFilter.filterByPos(expected, MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes);
+        MethylationDataFilter.filterByCutOff(expected, 0.3f, MethylationDataFilter.CutoffType.upper);
+
+        MethylationArray actual = readData();
+        FilterPlan filterPlan = new FilterPlan();
+        filterPlan.setRemoveNa(true);
+        filterPlan.setSamplesFilter(samples);
+        filterPlan.setPosFilter(MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes);
+        filterPlan.setCutOff(0.3f, MethylationDataFilter.CutoffType.upper);
+        filterPlan.apply(actual, 4);
+
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getSamples(), actual.getSamples());
+    }
+
+    @Test
+    @Description("Tests that filtering more rows than fit in one partition with several threads gives the same " +
+            "result as running the filters one after another")
+    void testApplyPartitionsInParallel(@TempDir Path tempDir) throws IOException {
+        Random random = new Random(3);
+        String[] chromosomes = {"1", "2", "X"};
+        StringBuilder csv = new StringBuilder("id,gene,chr,fpos,tpos,strand,Sample1,Sample2,Sample3\n");
+        for (int row = 0; row < 50_000; row++) {
+            csv.append("cg").append(row).append(",GENE").append(row % 100).append(',')
+                    .append(chromosomes[row % chromosomes.length]).append(",1,1,+");
+            for (int sample = 0; sample < 3; sample++) {
+                csv.append(',').append(random.nextInt(20) == 0 ? "NA"
+                        : String.format(Locale.ROOT, "%.4f", random.nextDouble()));
+            }
+            csv.append('\n');
+        }
+        filePath = tempDir.resolve("partitionedData.csv");
+        Files.writeString(filePath, csv);
+        String[] samples = {"Sample1", "Sample3"};
+        String[] kept = {"1", "X"};
+
+        MethylationArray expected = readData();
+        MethylationDataFilter.removeNA(expected);
+        MethylationDataFilter.filterBySample(expected, samples);
+        MethylationDataFilter.filterByPos(expected, MethylationDataFilter.PosFilterType.CHROMOSOME, kept);
+        MethylationDataFilter.filterByCutOff(expected, 0.3f, MethylationDataFilter.CutoffType.upper);
+
+        MethylationArray actual = readData();
+        FilterPlan filterPlan = new FilterPlan();
+        filterPlan.setRemoveNa(true);
+        filterPlan.setSamplesFilter(samples);
+        filterPlan.setPosFilter(MethylationDataFilter.PosFilterType.CHROMOSOME, kept);
+        filterPlan.setCutOff(0.3f, MethylationDataFilter.CutoffType.upper);
+        filterPlan.apply(actual, 4);
+
+        // Both the selected rows and the copied values span several partitions of 16384 rows
+        assertTrue(expected.getRowCount() > 16384);
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getSamples(), actual.getSamples());
+    }
+
+    @Test
+    @Description("Tests that applying a plan without filters keeps all data")
+    void testApplyWithoutFilters() throws IOException {
+        MethylationArray expected = readData();
+        MethylationArray actual = readData();
+
+        new FilterPlan().apply(actual, 1);
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+}
@@ -0,0 +1,76 @@
+package nl.bioinf.filtering;
+
+import jdk.jfr.Description;
+import nl.bioinf.io.FilterFileWriter;
+import nl.bioinf.io.FilterRowWriter;
+import nl.bioinf.io.MethylationFileReader;
+import nl.bioinf.io.MethylationRowReader;
+import nl.bioinf.model.MethylationArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingMethylationFilterTest {
+    @TempDir
+    Path tempDir;
+
+    Path filePath;
+
+    @BeforeEach
+    public void setup() throws URISyntaxException {
+        ClassLoader classloader = getClass().getClassLoader();
+        filePath = Path.of(Objects.requireNonNull(
+                classloader.getResource("correctData.csv")).toURI());
+    }
+
+    @Test
+    @Description("Tests that streaming filtering writes the same output as filtering the whole MethylationArray")
+    void testStreamingMatchesInMemoryFilter() throws IOException {
+        String[] samples = {"Sample1", "Sample3"};
+        String[] chromosomes = {"17", "X"};
+
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(filePath, 6);
+        MethylationArray data = methylationFileReader.getData();
+        MethylationDataFilter.filterBySample(data, samples);
+        MethylationDataFilter.filterByPos(data, MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes);
+        MethylationDataFilter.filterByCutOff(data, 0.3f, MethylationDataFilter.CutoffType.upper);
+        Path expectedFile = tempDir.resolve("expected.csv");
+        FilterFileWriter.writeFile(data, expectedFile);
+
+        StreamingMethylationFilter streamingFilter = new StreamingMethylationFilter();
+        streamingFilter.setSamplesFilter(samples);
+        streamingFilter.setPosFilter(MethylationDataFilter.PosFilterType.CHROMOSOME, chromosomes);
+        streamingFilter.setCutOff(0.3f, MethylationDataFilter.CutoffType.upper);
+        Path actualFile = tempDir.resolve("actual.csv");
+        try (MethylationRowReader reader = new MethylationRowReader(filePath, 6);
+             FilterRowWriter writer = new FilterRowWriter(actualFile,
+                     streamingFilter.getOutputHeader(reader.getHeaderData()))) {
+            assertEquals(3, streamingFilter.run(reader, writer));
+        }
+
+        assertEquals(Files.readString(expectedFile), Files.readString(actualFile));
+    }
+
+    @Test
+    @Description("Tests that rows with NA values are removed while streaming")
+    void testStreamingRemoveNA() throws IOException {
+        StreamingMethylationFilter streamingFilter = new StreamingMethylationFilter();
+        streamingFilter.setRemoveNa(true);
+        Path actualFile = tempDir.resolve("actual.csv");
+
+        try (MethylationRowReader reader = new MethylationRowReader(filePath, 6);
+             FilterRowWriter writer = new FilterRowWriter(actualFile,
+                     streamingFilter.getOutputHeader(reader.getHeaderData()))) {
+            assertEquals(9, streamingFilter.run(reader, writer));
+        }
+    }
+}
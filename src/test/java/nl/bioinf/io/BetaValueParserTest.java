@@ -0,0 +1,57 @@
+package nl.bioinf.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BetaValueParserTest {
+
+    @Test
+    @DisplayName("Test that decimals are parsed to exactly the same double as Double.parseDouble")
+    void matchesParseDouble() {
+        for (int i = 0; i <= 100000; i++) {
+            String value = String.format(Locale.ROOT, "%.5f", i / 100000.0);
+            assertEquals(Double.parseDouble(value), BetaValueParser.parse(value), value);
+        }
+        for (String value : new String[]{"0", "1", "1.", ".5", "0.123456789012345", "0.1234567890123456789",
+                "1e-2", "5E-1", " 0.45"}) {
+            assertEquals(Double.parseDouble(value), BetaValueParser.parse(value), value);
+        }
+    }
+
+    @Test
+    @DisplayName("Test that NA, NaN and empty values are parsed to NaN")
+    void missingValues() {
+        assertTrue(Double.isNaN(BetaValueParser.parse("NA")));
+        assertTrue(Double.isNaN(BetaValueParser.parse("NaN")));
+        assertTrue(Double.isNaN(BetaValueParser.parse("")));
+    }
+
+    @Test
+    @DisplayName("Test that parsing from a buffer gives the same values as parsing from a String")
+    void bufferMatchesString() {
+        String line = "0.87,NA,,1,2.5e-1";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(0.87, BetaValueParser.parse(buffer, 0, 4));
+        assertTrue(Double.isNaN(BetaValueParser.parse(buffer, 5, 7)));
+        assertTrue(Double.isNaN(BetaValueParser.parse(buffer, 8, 8)));
+        assertEquals(1.0, BetaValueParser.parse(buffer, 9, 10));
+        assertEquals(0.25, BetaValueParser.parse(buffer, 11, 17));
+    }
+
+    @Test
+    @DisplayName("Test that invalid and out of range values throw an IllegalArgumentException")
+    void invalidValues() {
+        for (String value : new String[]{"abc", "0.5.5", "-0.1", "1.01", "2e0", ".", "N", "NAN"}) {
+            assertThrows(IllegalArgumentException.class, () -> BetaValueParser.parse(value), value);
+        }
+    }
+}
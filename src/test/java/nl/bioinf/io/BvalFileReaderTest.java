@@ -0,0 +1,113 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.MethylationArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BvalFileReaderTest {
+    @TempDir
+    Path tempDir;
+
+    Path filePath;
+
+    @BeforeEach
+    public void setup() throws URISyntaxException {
+        ClassLoader classloader = getClass().getClassLoader();
+        filePath = Path.of(Objects.requireNonNull(
+                classloader.getResource("correctData.csv")).toURI());
+    }
+
+    @Test
+    @DisplayName("Test that a converted file is read back to the same MethylationArray")
+    void roundTrip() throws IOException {
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(filePath, 6);
+        MethylationArray expected = methylationFileReader.getData();
+
+        Path bvalFile = tempDir.resolve("data.bval");
+        BvalFileWriter.writeFile(expected, bvalFile);
+        assertTrue(BvalFileReader.isBvalFile(bvalFile));
+        assertFalse(BvalFileReader.isBvalFile(filePath));
+
+        BvalFileReader bvalFileReader = new BvalFileReader();
+        bvalFileReader.readFile(bvalFile);
+        MethylationArray actual = bvalFileReader.getData();
+
+        assertEquals(expected.getHeader(), actual.getHeader());
+        assertEquals(expected.getSamples(), actual.getSamples());
+        assertEquals(expected.getSampleIndex(), actual.getSampleIndex());
+        assertEquals(expected.getGenes(), actual.getGenes());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            assertEquals(expected.getLocation(row), actual.getLocation(row));
+            assertArrayEquals(expected.getRowBetaValues(row), actual.getRowBetaValues(row));
+        }
+        assertTrue(actual.rowHasNA(0));
+    }
+
+    @Test
+    @DisplayName("Test that a corrupted file is rejected by the checksum")
+    void corruptedFile() throws IOException {
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(filePath, 6);
+        Path bvalFile = tempDir.resolve("data.bval");
+        BvalFileWriter.writeFile(methylationFileReader.getData(), bvalFile);
+
+        byte[] bytes = Files.readAllBytes(bvalFile);
+        bytes[bytes.length - 20] ^= 1;
+        Files.write(bvalFile, bytes);
+
+        assertThrows(IOException.class, () -> new BvalFileReader().readFile(bvalFile));
+    }
+
+    @Test
+    @DisplayName("Test that values with more than four decimals are stored as doubles and read back exactly")
+    void doubleEncoding() throws IOException {
+        Path csvFile = tempDir.resolve("decimals.csv");
+        Files.writeString(csvFile, "id,gene,chr,Sample1,Sample2\n" +
+                "cg1,TP53,17,0.1234,NA\n" +
+                "cg2,MYC,17,0.123456789,1\n");
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(csvFile, 3);
+        MethylationArray expected = methylationFileReader.getData();
+
+        Path bvalFile = tempDir.resolve("decimals.bval");
+        BvalFileWriter.writeFile(expected, bvalFile);
+        BvalFileReader bvalFileReader = new BvalFileReader();
+        bvalFileReader.readFile(bvalFile);
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            assertArrayEquals(expected.getRowBetaValues(row), bvalFileReader.getData().getRowBetaValues(row));
+        }
+
+        // Without the value with nine decimals every value is packed into 2 bytes
+        Path packedFile = tempDir.resolve("packed.bval");
+        expected.setBetaValue(1, 0, 0.5);
+        BvalFileWriter.writeFile(expected, packedFile);
+        assertEquals(Files.size(bvalFile) - 4 * (Double.BYTES - Short.BYTES), Files.size(packedFile));
+    }
+
+    @Test
+    @DisplayName("Test that a truncated file is rejected")
+    void truncatedFile() throws IOException {
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(filePath, 6);
+        Path bvalFile = tempDir.resolve("data.bval");
+        BvalFileWriter.writeFile(methylationFileReader.getData(), bvalFile);
+
+        byte[] bytes = Files.readAllBytes(bvalFile);
+        Files.write(bvalFile, Arrays.copyOf(bytes, bytes.length - 30));
+
+        assertThrows(IOException.class, () -> new BvalFileReader().readFile(bvalFile));
+    }
+}
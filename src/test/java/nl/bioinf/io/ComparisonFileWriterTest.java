@@ -1,8 +1,10 @@
 package nl.bioinf.io;
 
 import nl.bioinf.comparing.MethylationArraySampleComparer;
+import nl.bioinf.filtering.MethylationDataFilter;
 import nl.bioinf.model.ComparisonResults;
 import nl.bioinf.model.MethylationArray;
+import nl.bioinf.statistics.PValueAdjustment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -76,4 +78,41 @@ class ComparisonFileWriterTest {
         writer.writeData();
         assertTrue(Files.exists(tempFile));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Tests that adjusted p-values are written next to the p-values of a method")
+    void testComparisonWriterAdjustedPValues() throws IOException {
+        Path tempFile = tempDir.resolve("test-output-adjusted.txt");
+        new ComparisonFileWriter(comparisonResults, tempFile, PValueAdjustment.BONFERRONI).writeData();
+
+        List<String> lines = Files.readAllLines(tempFile);
+        assertEquals("Variable1,Variable2,welch-test,welch-test_bonferroni", lines.get(0));
+        String[] fields = lines.get(1).split(",");
+        // A single comparison is a single test, its p-value stays the same
+        assertEquals(Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+    }
+
+    @Test
+    @DisplayName("Tests that only methods that result in a p-value get a column of adjusted p-values")
+    void testComparisonWriterAdjustsOnlyPValues() throws IOException {
+        MethylationDataFilter.removeNA(data);
+        ComparisonResults results = new MethylationArraySampleComparer(data,
+                new String[] {"Sample1", "Sample2", "Sample3"},
+                new String[] {"spearman", "wilcoxon-test", "mean-difference"}).performStatisticalMethods();
+        Path tempFile = tempDir.resolve("test-output-adjusted-methods.txt");
+        new ComparisonFileWriter(results, tempFile, PValueAdjustment.BONFERRONI).writeData();
+
+        List<String> lines = Files.readAllLines(tempFile);
+        assertEquals("Variable1,Variable2,spearman,wilcoxon-test,wilcoxon-test_bonferroni,mean-difference",
+                lines.get(0));
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            double pValue = Double.parseDouble(fields[3]);
+            double adjustedPValue = Double.parseDouble(fields[4]);
+            if (!Double.isNaN(pValue)) {
+                assertTrue(pValue >= 0 && pValue <= 1);
+                assertEquals(Math.min(1, pValue * (lines.size() - 1)), adjustedPValue, 1e-12);
+            }
+        }
+    }
+}
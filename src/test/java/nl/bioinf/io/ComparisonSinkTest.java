@@ -0,0 +1,128 @@
+package nl.bioinf.io;
+
+import nl.bioinf.comparing.MethylationArraySampleComparer;
+import nl.bioinf.model.ComparisonResults;
+import nl.bioinf.model.MethylationArray;
+import nl.bioinf.statistics.PValueAdjustment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComparisonSinkTest {
+    private static final String[] SAMPLES = {"Sample0", "Sample1", "Sample2", "Sample3", "Sample4"};
+    @TempDir
+    Path tempDir;
+
+    MethylationArray data;
+    String[] methods;
+    ComparisonResults comparisonResults;
+
+    @BeforeEach
+    void setup() {
+        Random random = new Random(5);
+        data = new MethylationArray();
+        data.setSamples(Arrays.asList(SAMPLES));
+        data.setHeader("id,gene,chr,Sample0", 3);
+        double[] row = new double[SAMPLES.length];
+        for (int i = 0; i < 50; i++) {
+            for (int sample = 0; sample < row.length; sample++) {
+                row[sample] = Math.round(random.nextDouble() * 100) / 100.0;
+            }
+            data.addData("cg" + i + ",GENE,1,", row);
+        }
+
+        comparisonResults = new MethylationArraySampleComparer(data, SAMPLES,
+                new String[]{"t-test", "spearman", "welch-test"}).performStatisticalMethods();
+        // Same order as the columns of ComparisonFileWriter
+        methods = comparisonResults.getStatisticMethods().toArray(String[]::new);
+    }
+
+    @Test
+    @DisplayName("Tests that the csv sink writes the same file as ComparisonFileWriter")
+    void csvSinkMatchesFileWriter() throws IOException {
+        Path expectedFile = tempDir.resolve("expected.csv");
+        Path sinkFile = tempDir.resolve("sink.csv");
+        new ComparisonFileWriter(comparisonResults, expectedFile, PValueAdjustment.BENJAMINI_HOCHBERG).writeData();
+
+        try (CsvComparisonSink sink = new CsvComparisonSink(sinkFile, methods,
+                PValueAdjustment.BENJAMINI_HOCHBERG)) {
+            new MethylationArraySampleComparer(data, SAMPLES, methods, 2).performStatisticalMethods(sink);
+        }
+
+        assertEquals(Files.readAllLines(expectedFile), Files.readAllLines(sinkFile));
+        // Only the output file is left, the temporary file of the adjustment is removed
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Tests that results are on disk as soon as the buffer is flushed, before the sink is closed")
+    void csvSinkStreams() throws IOException {
+        Path sinkFile = tempDir.resolve("sink.csv");
+        CsvComparisonSink sink = new CsvComparisonSink(sinkFile, new String[]{"t-test"});
+        String variable = "x".repeat(1000);
+        for (int i = 0; i < 100; i++) {
+            sink.accept(variable, "Sample" + i, new double[]{0.5});
+        }
+        // 100 lines of about 1 KB do not fit in the buffer of 64 KB
+        assertTrue(Files.size(sinkFile) > 0);
+        sink.close();
+        assertEquals(101, Files.readAllLines(sinkFile).size());
+    }
+
+    @Test
+    @DisplayName("Tests that the results are kept without adjusted p-values when the comparisons fail")
+    void csvSinkAbort() throws IOException {
+        Path sinkFile = tempDir.resolve("sink.csv");
+        try (CsvComparisonSink sink = new CsvComparisonSink(sinkFile, methods, PValueAdjustment.BONFERRONI)) {
+            sink.accept("Sample0", "Sample1", new double[]{0.01, 0.5, 0.02});
+            sink.abort();
+        }
+
+        assertEquals(List.of("Variable1,Variable2," + String.join(",", methods), "Sample0,Sample1,0.01,0.5,0.02"),
+                Files.readAllLines(sinkFile));
+        // The temporary file of the adjustment is removed
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Tests writing and reading back the binary format, including a file of a stopped run")
+    void binaryRoundTrip() throws IOException {
+        Path sinkFile = tempDir.resolve("sink.bcmp");
+        try (BinaryComparisonSink sink = new BinaryComparisonSink(sinkFile, methods)) {
+            new MethylationArraySampleComparer(data, SAMPLES, methods).performStatisticalMethods(sink);
+        }
+
+        ComparisonResults readResults = BinaryComparisonReader.readFile(sinkFile);
+        assertEquals(comparisonResults.getSampleVersusSampleNames(), readResults.getSampleVersusSampleNames());
+        assertEquals(comparisonResults.getStatisticsData(), readResults.getStatisticsData());
+
+        // Cut the file in the middle of the last comparison
+        byte[] bytes = Files.readAllBytes(sinkFile);
+        Path truncatedFile = tempDir.resolve("truncated.bcmp");
+        Files.write(truncatedFile, Arrays.copyOf(bytes, bytes.length - 4));
+        List<String> truncatedNames = BinaryComparisonReader.readFile(truncatedFile).getSampleVersusSampleNames();
+        assertEquals(comparisonResults.getSampleVersusSampleNames().subList(0, 9), truncatedNames);
+    }
+
+    @Test
+    @DisplayName("Tests that other files are rejected by the binary reader")
+    void binaryReaderRejectsCsv() throws IOException {
+        Path csvFile = tempDir.resolve("sink.csv");
+        Files.writeString(csvFile, "Variable1,Variable2,t-test\n");
+        assertThrows(IllegalArgumentException.class, () -> BinaryComparisonReader.readFile(csvFile));
+    }
+}
@@ -0,0 +1,58 @@
+package nl.bioinf.io;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecimalEncoderTest {
+
+    private static String encode(DecimalEncoder encoder, double value) {
+        byte[] buffer = new byte[encoder.getMaxLength()];
+        int length = encoder.encode(value, buffer, 0);
+        return new String(buffer, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("Test that random beta values give the same text as String.format, for every precision")
+    void matchesStringFormatRandom() {
+        Random random = new Random(3);
+        for (int precision = 0; precision <= DecimalEncoder.MAX_PRECISION; precision++) {
+            DecimalEncoder encoder = new DecimalEncoder(precision);
+            String format = "%." + precision + "f";
+            for (int i = 0; i < 200_000; i++) {
+                // Mix of values with many decimals and values with as many decimals as a typical input file
+                double value = i % 2 == 0 ? random.nextDouble()
+                        : Math.round(random.nextDouble() * 1000) / 1000.0;
+                assertEquals(String.format(Locale.US, format, value), encode(encoder, value), "value " + value);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test values halfway between two results, and values outside the range of beta values")
+    void matchesStringFormatEdgeCases() {
+        double[] values = {0, 1, 0.005, 0.125, 0.135, 1.005, 2.675, 0.995, 0.9999999, 0.285, 0.015, 0.045,
+                -0.0, -0.5, -0.001, 12345.675, 1e20, 9.999999995e8, Double.MAX_VALUE, Double.MIN_VALUE,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int precision = 0; precision <= DecimalEncoder.MAX_PRECISION; precision++) {
+            DecimalEncoder encoder = new DecimalEncoder(precision);
+            for (double value : values) {
+                assertEquals(String.format(Locale.US, "%." + precision + "f", value), encode(encoder, value),
+                        "value " + value + ", precision " + precision);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test that NaN is written as NaN and invalid precisions are rejected")
+    void nanAndInvalidPrecision() {
+        assertEquals("NaN", encode(new DecimalEncoder(2), Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new DecimalEncoder(-1));
+        assertThrows(IllegalArgumentException.class, () -> new DecimalEncoder(10));
+    }
+}
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Locale;
 import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -58,4 +59,22 @@ class FilterFileWriterTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Tests that the output is the same as formatting every value with String.format")
+    void testFilterWriterMatchesStringFormat() throws IOException {
+        Path tempFile = tempDir.resolve("test-output.txt");
+        FilterFileWriter.writeFile(data, tempFile, 3);
+
+        StringBuilder expected = new StringBuilder(String.format("%s%n", data.getHeader()));
+        for (int row = 0; row < data.getRowCount(); row++) {
+            expected.append(data.getLocation(row));
+            for (int sample = 0; sample < data.getSampleCount(); sample++) {
+                double value = data.getBetaValue(row, sample);
+                expected.append(Double.isNaN(value) ? "NaN" : String.format(Locale.US, "%.3f", value))
+                        .append(sample < data.getSampleCount() - 1 ? "," : "");
+            }
+            expected.append(System.lineSeparator());
+        }
+        assertEquals(expected.toString(), Files.readString(tempFile));
+    }
+}
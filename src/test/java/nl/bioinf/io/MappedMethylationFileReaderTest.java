@@ -0,0 +1,119 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.MethylationArray;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedMethylationFileReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test that plain and uncommon notations give exactly the same beta values as the sequential reader")
+    void mappedMatchesSequential() throws IOException {
+        Path tempFile = tempDir.resolve("notations.csv");
+        Files.writeString(tempFile, "id,gene,chr,fpos,tpos,strand,Sample1,Sample2,Sample3,Sample4\r\n" +
+                "cg00000029,TP53,17,7565097,7565097,+,0.87,NA,1,.5\r\n" +
+                "cg00000165,MYC,17,12874834,12874834,-,1e-2,NaN,0.123456789012345678,1.\r\n" +
+                "cg00000236,,16,53468160,53468160,+, 0.45,0.0,0.3,0.7");
+
+        MethylationFileReader sequentialReader = new MethylationFileReader();
+        sequentialReader.readCSV(tempFile, 6);
+        MethylationArray expected = sequentialReader.getData();
+
+        MappedMethylationFileReader mappedReader = new MappedMethylationFileReader();
+        mappedReader.readCSV(tempFile, 6);
+        MethylationArray actual = mappedReader.getData();
+
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            assertEquals(expected.getLocation(row), actual.getLocation(row));
+            for (int sample = 0; sample < expected.getSampleCount(); sample++) {
+                assertEquals(expected.getBetaValue(row, sample), actual.getBetaValue(row, sample));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test that empty values at the end of a row are read as missing values, like the sequential reader")
+    void trailingEmptyValues() throws IOException {
+        Path tempFile = tempDir.resolve("trailing.csv");
+        Files.writeString(tempFile, "id,gene,chr,Sample1,Sample2,Sample3\r\n" +
+                "cg00000029,TP53,17,0.87,,\r\n" +
+                "cg00000165,MYC,17,,0.14,0.5\n" +
+                "cg00000236,CDH5,16,0.45,0.47,\n");
+
+        MethylationFileReader sequentialReader = new MethylationFileReader();
+        sequentialReader.readCSV(tempFile, 3);
+        MethylationArray expected = sequentialReader.getData();
+
+        MappedMethylationFileReader mappedReader = new MappedMethylationFileReader();
+        mappedReader.readCSV(tempFile, 3);
+        MethylationArray actual = mappedReader.getData();
+
+        assertEquals(3, actual.getRowCount());
+        for (int row = 0; row < expected.getRowCount(); row++) {
+            assertEquals(expected.getLocation(row), actual.getLocation(row));
+            for (int sample = 0; sample < expected.getSampleCount(); sample++) {
+                assertEquals(expected.getBetaValue(row, sample), actual.getBetaValue(row, sample));
+            }
+        }
+        assertTrue(Double.isNaN(actual.getBetaValue(0, 2)));
+        assertTrue(Double.isNaN(actual.getBetaValue(2, 2)));
+    }
+
+    @Test
+    @DisplayName("Test that every two decimal beta value is parsed to the same double as Double.parseDouble")
+    void allTwoDecimalValues() throws IOException {
+        StringBuilder content = new StringBuilder("id,gene,chr,Sample1\n");
+        for (int i = 0; i <= 1000; i++) {
+            content.append("cg,GENE,1,").append(i / 1000).append('.').append(String.format("%03d", i % 1000))
+                    .append('\n');
+        }
+        Path tempFile = tempDir.resolve("decimals.csv");
+        Files.writeString(tempFile, content.toString());
+
+        MappedMethylationFileReader mappedReader = new MappedMethylationFileReader();
+        mappedReader.readCSV(tempFile, 3);
+        for (int i = 0; i <= 1000; i++) {
+            String value = i / 1000 + "." + String.format("%03d", i % 1000);
+            assertEquals(Double.parseDouble(value), mappedReader.getData().getBetaValue(i, 0));
+        }
+    }
+
+    @Test
+    @DisplayName("Test error handling for incorrect paths, empty files, out of range and invalid values")
+    void invalidInput() throws IOException, URISyntaxException {
+        MappedMethylationFileReader reader = new MappedMethylationFileReader();
+        assertThrows(IOException.class, () -> reader.readCSV(Paths.get("9382jdn"), 6));
+
+        Path emptyFile = tempDir.resolve("empty.csv");
+        Files.writeString(emptyFile, "");
+        assertThrows(IOException.class, () -> reader.readCSV(emptyFile, 6));
+
+        Path outOfRange = tempDir.resolve("range.csv");
+        Files.writeString(outOfRange, "id,gene,chr,Sample1\ncg,GENE,1,1.5\n");
+        assertThrows(IllegalArgumentException.class, () -> reader.readCSV(outOfRange, 3));
+
+        Path invalidValue = tempDir.resolve("invalid.csv");
+        Files.writeString(invalidValue, "id,gene,chr,Sample1\ncg,GENE,1,abc\n");
+        assertThrows(IllegalArgumentException.class, () -> reader.readCSV(invalidValue, 3));
+
+        ClassLoader classloader = getClass().getClassLoader();
+        Path faultyFile = Path.of(Objects.requireNonNull(
+                classloader.getResource("faultyData.csv")).toURI());
+        assertThrows(IllegalArgumentException.class, () -> reader.readCSV(faultyFile, 6));
+    }
+}
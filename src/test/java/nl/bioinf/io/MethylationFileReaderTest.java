@@ -15,6 +15,7 @@ import java.util.Objects;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MethylationFileReaderTest {
 
@@ -89,6 +90,25 @@ class MethylationFileReaderTest {
         assertEquals(expectedMethylationArray.toString(), actualMethylationArray.toString());
     }
 
+    @Test
+    @DisplayName("Test that an empty value at the end of a row is missing, like an empty value in the middle")
+    void trailingEmptyValue() throws IOException {
+        Path tempFile = Files.createTempFile("exampledata", ".csv");
+        Files.writeString(tempFile, "id,gene,chr,fpos,tpos,strand,Sample1,Sample2,Sample3" + System.lineSeparator() +
+                "cg00000029,TP53,17,7565097,7565097,+,0.87,,0.89" + System.lineSeparator() +
+                "cg00000165,MYC,17,12874834,12874834,-,0.12,0.14,");
+
+        MethylationFileReader methylationFileReader = new MethylationFileReader();
+        methylationFileReader.readCSV(tempFile, 6);
+        MethylationArray data = methylationFileReader.getData();
+
+        assertEquals(2, data.getRowCount());
+        assertTrue(Double.isNaN(data.getBetaValue(0, 1)));
+        assertEquals(0.14, data.getBetaValue(1, 1));
+        assertTrue(Double.isNaN(data.getBetaValue(1, 2)));
+        assertEquals("cg00000165,MYC,17,12874834,12874834,-,", data.getLocation(1));
+    }
+
     @Test
     @DisplayName("Test for reading file with invalid header")
     void testInvalidMethylationArrayHeader() throws URISyntaxException, IOException {
@@ -0,0 +1,76 @@
+package nl.bioinf.io;
+
+import nl.bioinf.model.MethylationArray;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelMethylationFileReaderTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Test that parallel reading gives the same MethylationArray as sequential reading")
+    void parallelMatchesSequential() throws IOException {
+        // Create a file with enough rows to be split in many ranges, using windows line separators
+        StringBuilder content = new StringBuilder("id,gene,chr,fpos,tpos,strand,Sample1,Sample2,Sample3\r\n");
+        for (int i = 0; i < 2000; i++) {
+            content.append(String.format(Locale.US, "cg%08d,GENE%d,%d,100,100,+,%.2f,%s,%.2f\r\n",
+                    i, i % 50, i % 22 + 1, (i % 100) / 100.0, i % 7 == 0 ? "NA" : "0.5", (i % 13) / 13.0));
+        }
+        Path tempFile = tempDir.resolve("parallel.csv");
+        Files.writeString(tempFile, content.toString());
+
+        MethylationFileReader sequentialReader = new MethylationFileReader();
+        sequentialReader.readCSV(tempFile, 6);
+
+        ParallelMethylationFileReader parallelReader = new ParallelMethylationFileReader(8);
+        parallelReader.readCSV(tempFile, 6);
+        MethylationArray parallelData = parallelReader.getData();
+
+        assertEquals(sequentialReader.getData().toString(), parallelData.toString());
+        assertEquals(2000, parallelData.getRowCount());
+    }
+
+    @Test
+    @DisplayName("Test that a file with fewer rows than threads is read correctly")
+    void moreThreadsThanRows() throws IOException, URISyntaxException {
+        ClassLoader classloader = getClass().getClassLoader();
+        Path filePath = Path.of(Objects.requireNonNull(
+                classloader.getResource("correctData.csv")).toURI());
+
+        MethylationFileReader sequentialReader = new MethylationFileReader();
+        sequentialReader.readCSV(filePath, 6);
+        ParallelMethylationFileReader parallelReader = new ParallelMethylationFileReader(16);
+        parallelReader.readCSV(filePath, 6);
+
+        assertEquals(sequentialReader.getData().toString(), parallelReader.getData().toString());
+    }
+
+    @Test
+    @DisplayName("Test error handling for incorrect paths, empty files and invalid rows")
+    void invalidInput() throws IOException, URISyntaxException {
+        ParallelMethylationFileReader reader = new ParallelMethylationFileReader(4);
+        assertThrows(IOException.class, () -> reader.readCSV(Paths.get("9382jdn"), 6));
+
+        Path emptyFile = tempDir.resolve("empty.csv");
+        Files.writeString(emptyFile, "");
+        assertThrows(IOException.class, () -> reader.readCSV(emptyFile, 6));
+
+        ClassLoader classloader = getClass().getClassLoader();
+        Path faultyFile = Path.of(Objects.requireNonNull(
+                classloader.getResource("faultyData.csv")).toURI());
+        assertThrows(IllegalArgumentException.class, () -> reader.readCSV(faultyFile, 6));
+    }
+}
@@ -0,0 +1,122 @@
+package nl.bioinf.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BetaValueMatrixTest {
+
+    @Test
+    @DisplayName("Tests that rows are stored per sample column and NA values are tracked")
+    void testAddRowAndNABitmap() {
+        BetaValueMatrix matrix = new BetaValueMatrix(3, 1);
+        matrix.addRow(new double[]{0.87, Double.NaN, 0.89});
+        matrix.addRow(new double[]{0.12, 0.14, 0.10});
+
+        assertEquals(2, matrix.getRowCount());
+        assertArrayEquals(new double[]{0.87, 0.12}, matrix.getColumn(0));
+        assertTrue(matrix.isNA(0, 1));
+        assertTrue(matrix.rowHasNA(0));
+        assertFalse(matrix.rowHasNA(1));
+        assertTrue(matrix.columnHasNA(1));
+        assertFalse(matrix.columnHasNA(2));
+    }
+
+    @Test
+    @DisplayName("Tests that overwriting a value updates the NA bitmap")
+    void testSetUpdatesNABitmap() {
+        BetaValueMatrix matrix = new BetaValueMatrix(2);
+        matrix.addRow(new double[]{0.5, 0.6});
+
+        matrix.set(0, 0, Double.NaN);
+        assertTrue(matrix.columnHasNA(0));
+
+        matrix.set(0, 0, 0.4);
+        assertFalse(matrix.columnHasNA(0));
+        assertEquals(0.4, matrix.get(0, 0));
+    }
+
+    @Test
+    @DisplayName("Tests selecting rows and columns, including rows beyond the first bitmap word")
+    void testSelectRowsAndColumns() {
+        BetaValueMatrix matrix = new BetaValueMatrix(2);
+        for (int row = 0; row < 100; row++) {
+            matrix.addRow(new double[]{row / 100.0, row == 70 ? Double.NaN : 1.0});
+        }
+
+        BetaValueMatrix rows = matrix.selectRows(new int[]{70, 3});
+        assertEquals(0.7, rows.get(0, 0));
+        assertTrue(rows.isNA(0, 1));
+        assertFalse(rows.isNA(1, 1));
+
+        BetaValueMatrix columns = matrix.selectColumns(new int[]{1});
+        assertEquals(1, columns.getSampleCount());
+        assertEquals(100, columns.getRowCount());
+        assertTrue(columns.isNA(70, 0));
+    }
+
+    @Test
+    @DisplayName("Tests that a projection reads the original columns and changes are not shared")
+    void testProjectColumns() {
+        BetaValueMatrix matrix = new BetaValueMatrix(3);
+        matrix.addRow(new double[]{0.1, Double.NaN, 0.3});
+        matrix.addRow(new double[]{0.4, 0.5, 0.6});
+
+        BetaValueMatrix projection = matrix.projectColumns(new int[]{2, 1});
+        assertEquals(2, projection.getSampleCount());
+        assertEquals(2, projection.getRowCount());
+        assertEquals(0.3, projection.get(0, 0));
+        assertTrue(projection.isNA(0, 1));
+
+        projection.set(1, 0, Double.NaN);
+        assertTrue(projection.isNA(1, 0));
+        assertEquals(0.6, matrix.get(1, 2));
+        assertFalse(matrix.isNA(1, 2));
+
+        matrix.set(1, 1, 0.9);
+        assertEquals(0.5, projection.get(1, 1));
+
+        projection.addRow(new double[]{0.7, 0.8});
+        assertEquals(3, projection.getRowCount());
+        assertEquals(2, matrix.getRowCount());
+    }
+
+    @Test
+    @DisplayName("Tests that a column view holds exactly the rows and is not copied again")
+    void testColumnView() {
+        BetaValueMatrix matrix = new BetaValueMatrix(2);
+        matrix.addRow(new double[]{0.1, 0.2});
+        matrix.addRow(new double[]{0.3, Double.NaN});
+
+        double[] view = matrix.getColumnView(0);
+        assertArrayEquals(new double[]{0.1, 0.3}, view);
+        assertSame(view, matrix.getColumnView(0));
+        assertTrue(matrix.isNA(1, 1));
+
+        // Rows added after trimming are still stored
+        matrix.addRow(new double[]{0.5, 0.6});
+        assertArrayEquals(new double[]{0.1, 0.3, 0.5}, matrix.getColumnView(0));
+        assertArrayEquals(new double[]{0.2, Double.NaN, 0.6}, matrix.getColumnView(1));
+    }
+
+    @Test
+    @DisplayName("Tests that columns that do not hold exactly the amount of rows are rejected")
+    void testFromColumnsWrongLength() {
+        BetaValueMatrix matrix = BetaValueMatrix.fromColumns(new double[][]{{0.1, Double.NaN}, {0.3, 0.4}}, 2);
+        assertTrue(matrix.isNA(1, 0));
+        assertArrayEquals(new double[]{0.3, 0.4}, matrix.getColumnView(1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BetaValueMatrix.fromColumns(new double[][]{{0.1, 0.2}, {0.3, 0.4, 0.5}}, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> BetaValueMatrix.fromColumns(new double[][]{{0.1, 0.2}, {0.3}}, 2));
+    }
+
+    @Test
+    @DisplayName("Tests that a row with the wrong amount of values is rejected")
+    void testAddRowWrongSize() {
+        BetaValueMatrix matrix = new BetaValueMatrix(3);
+        assertThrows(IllegalArgumentException.class, () -> matrix.addRow(new double[]{0.1, 0.2}));
+    }
+}
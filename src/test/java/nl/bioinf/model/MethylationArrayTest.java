@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -54,4 +56,23 @@ class MethylationArrayTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void testExactRegionLookups() {
+        MethylationArray tester = new MethylationArray();
+        tester.setSamples(new ArrayList<>(Arrays.asList("sample1", "sample2")));
+        tester.setIndexInformation(new HeaderIndexLocation("id,gene,chr,fpos,tpos,strand,sample1,sample2"));
+        tester.addData("cg00000029,TP53,17,7565097,7565097,+", new double[]{0.1, 0.2});
+        tester.addData("cg00000165,MYC,8,17893621,17893621,-", new double[]{0.3, 0.4});
+        tester.addData("cg00000236,tp53,17,7565200,7565200,+", new double[]{0.5, 0.6});
+
+        assertArrayEquals(new double[]{0.1, 0.2, 0.5, 0.6}, tester.getGeneBetaValues("TP53"));
+        assertArrayEquals(new double[]{0.1, 0.2, 0.5, 0.6}, tester.getChromosomeBetaValues("17"));
+        assertThrows(IllegalArgumentException.class, () -> tester.getGeneBetaValues("TP5"));
+        assertEquals(2, tester.getGenes().size());
+
+        // The index is rebuilt after the rows change
+        tester.keepRows(new int[]{1});
+        assertArrayEquals(new double[]{0.3, 0.4}, tester.getChromosomeBetaValues("8"));
+        assertThrows(IllegalArgumentException.class, () -> tester.getChromosomeBetaValues("17"));
+    }
+}
@@ -0,0 +1,78 @@
+package nl.bioinf.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeAnnotationsTest {
+    private final HeaderIndexLocation indexInformation =
+            new HeaderIndexLocation("id,gene,chr,fpos,tpos,strand,Sample1");
+
+    @Test
+    @DisplayName("Test that the annotation columns are parsed into typed fields")
+    void typedFields() {
+        ProbeAnnotations annotations = new ProbeAnnotations(indexInformation);
+        annotations.add("cg00000029,TP53,17,7565097,7565098,+,");
+        annotations.add("cg00000165, MYC ,8,NA,,-,");
+        annotations.add("cg00000236,TP53,17,7565200,7565200,?,");
+
+        assertEquals(3, annotations.getRowCount());
+        assertEquals("cg00000165", annotations.getProbeId(1));
+        assertEquals("MYC", annotations.getGene(1));
+        assertEquals("17", annotations.getChromosome(2));
+        assertEquals(7565097, annotations.getStartPosition(0));
+        assertEquals(7565098, annotations.getEndPosition(0));
+        assertEquals(ProbeAnnotations.MISSING_POSITION, annotations.getStartPosition(1));
+        assertEquals(ProbeAnnotations.MISSING_POSITION, annotations.getEndPosition(1));
+        assertEquals('+', annotations.getStrand(0));
+        assertEquals('-', annotations.getStrand(1));
+        assertEquals(ProbeAnnotations.MISSING_STRAND, annotations.getStrand(2));
+
+        // Repeated gene names share one dictionary code
+        assertEquals(annotations.getGeneCode(0), annotations.getGeneCode(2));
+        assertEquals(2, annotations.getGeneCount());
+    }
+
+    @Test
+    @DisplayName("Test that rows of separately parsed annotations keep their names after being joined")
+    void addAllRemapsCodes() {
+        ProbeAnnotations first = new ProbeAnnotations(indexInformation);
+        first.add("cg1,TP53,17,1,1,+,");
+        ProbeAnnotations second = new ProbeAnnotations(indexInformation);
+        second.add("cg2,MYC,8,2,2,-,");
+        second.add("cg3,TP53,17,3,3,+,");
+
+        first.addAll(second);
+        assertEquals(3, first.getRowCount());
+        assertEquals("MYC", first.getGene(1));
+        assertEquals("TP53", first.getGene(2));
+        assertEquals(first.getGeneCode(0), first.getGeneCode(2));
+        assertEquals("cg3", first.getProbeId(2));
+
+        ProbeAnnotations selection = first.selectRows(new int[]{2, 1});
+        assertEquals("cg3", selection.getProbeId(0));
+        assertEquals("8", selection.getChromosome(1));
+    }
+
+    @Test
+    @DisplayName("Test that gene and chromosome names are matched on their codes, ignoring case")
+    void matchCodes() {
+        ProbeAnnotations annotations = new ProbeAnnotations(indexInformation);
+        annotations.add("cg1,TP53,17,1,1,+,");
+        annotations.add("cg2,myc,8,2,2,-,");
+        annotations.add("cg3,BRCA1,17,3,3,+,");
+
+        BitSet geneCodes = annotations.getGeneCodes(Set.of("MYC", "BRCA1", "EGFR"));
+        assertFalse(geneCodes.get(annotations.getGeneCode(0)));
+        assertTrue(geneCodes.get(annotations.getGeneCode(1)));
+        assertTrue(geneCodes.get(annotations.getGeneCode(2)));
+
+        BitSet chromosomeCodes = annotations.getChromosomeCodes(Set.of("17"));
+        assertTrue(chromosomeCodes.get(annotations.getChromosomeCode(2)));
+        assertFalse(chromosomeCodes.get(annotations.getChromosomeCode(1)));
+    }
+}
@@ -0,0 +1,72 @@
+package nl.bioinf.model;
+
+import nl.bioinf.statistics.PairContext;
+import nl.bioinf.statistics.StatisticalMethod;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticalMethodsTest {
+
+    /**
+     * Provider registered in the test resources, to check that methods outside this application are loaded
+     */
+    public static class MeanDifferenceMethod implements StatisticalMethod {
+        @Override
+        public String getName() {
+            return "mean-difference";
+        }
+
+        @Override
+        public double compute(PairContext pair) {
+            return pair.getDifferenceMean();
+        }
+
+        @Override
+        public boolean resultsInPValue() {
+            return false;
+        }
+
+        @Override
+        public boolean isPairable() {
+            return true;
+        }
+
+        @Override
+        public boolean needsRanks() {
+            return false;
+        }
+    }
+
+    @Test
+    @DisplayName("Test that the built-in methods and the providers of other class path entries are loaded")
+    void loadsProviders() {
+        List<String> names = StatisticalMethods.validNames();
+        assertTrue(names.containsAll(
+                List.of("t-test", "spearman", "wilcoxon-test", "welch-test", "mann-whitney-test")));
+        assertTrue(StatisticalMethods.isValid("mean-difference"));
+        assertFalse(StatisticalMethods.isValid("kendall"));
+
+        double difference = new StatisticalMethods().getStatisticalMethods().get("mean-difference")
+                .apply(new double[]{0.5, 0.7}, new double[]{0.4, 0.4});
+        assertEquals(0.2, difference, 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test the properties declared by the built-in methods")
+    void methodProperties() {
+        assertTrue(StatisticalMethods.resultsInPValue("t-test"));
+        assertFalse(StatisticalMethods.resultsInPValue("spearman"));
+        assertFalse(StatisticalMethods.get("welch-test").isPairable());
+        assertEquals(List.of("welch-test", "mann-whitney-test"), StatisticalMethods.unpairableNames());
+        assertTrue(StatisticalMethods.get("spearman").needsRanks());
+        assertTrue(StatisticalMethods.get("spearman").isVectorizable());
+        assertTrue(StatisticalMethods.get("welch-test").isVectorizable());
+        assertFalse(StatisticalMethods.get("wilcoxon-test").needsRanks());
+        assertFalse(StatisticalMethods.get("wilcoxon-test").isVectorizable());
+        assertThrows(IllegalArgumentException.class, () -> StatisticalMethods.get(new String[]{"t-test", "kendall"}));
+    }
+}
@@ -0,0 +1,48 @@
+package nl.bioinf.statistics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PValueAdjustmentTest {
+
+    @Test
+    @DisplayName("Test Benjamini-Hochberg against p.adjust of R, on unsorted p-values")
+    void benjaminiHochberg() {
+        double[] pValues = {0.074, 0.001, 0.042, 0.205, 0.039, 0.008, 0.06, 0.041};
+        double[] expected = {0.0845714285714286, 0.008, 0.0672, 0.205, 0.0672, 0.032, 0.08, 0.0672};
+        assertArrayEquals(expected, PValueAdjustment.BENJAMINI_HOCHBERG.adjust(pValues), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test that tied p-values share the adjusted value of their highest rank")
+    void benjaminiHochbergTies() {
+        double[] adjusted = PValueAdjustment.BENJAMINI_HOCHBERG.adjust(new double[]{0.02, 0.5, 0.02});
+        assertArrayEquals(new double[]{0.03, 0.5, 0.03}, adjusted, 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test that NaN p-values stay NaN and are not counted as tests")
+    void missingPValues() {
+        double[] pValues = {0.01, Double.NaN, 0.04};
+        double[] bonferroni = PValueAdjustment.BONFERRONI.adjust(pValues);
+        double[] fdr = PValueAdjustment.BENJAMINI_HOCHBERG.adjust(pValues);
+
+        assertArrayEquals(new double[]{0.02, Double.NaN, 0.08}, bonferroni, 1e-12);
+        assertArrayEquals(new double[]{0.02, Double.NaN, 0.04}, fdr, 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test that Bonferroni is capped at 1")
+    void bonferroniCapped() {
+        assertArrayEquals(new double[]{1, 0.6}, PValueAdjustment.BONFERRONI.adjust(new double[]{0.7, 0.3}), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test looking up a correction by its name")
+    void fromName() {
+        assertEquals(PValueAdjustment.BENJAMINI_HOCHBERG, PValueAdjustment.fromName("fdr"));
+        assertThrows(IllegalArgumentException.class, () -> PValueAdjustment.fromName("holm"));
+    }
+}
@@ -0,0 +1,174 @@
+package nl.bioinf.statistics;
+
+import org.apache.commons.math3.exception.DimensionMismatchException;
+import org.apache.commons.math3.exception.NumberIsTooSmallException;
+import org.apache.commons.math3.stat.correlation.SpearmansCorrelation;
+import org.apache.commons.math3.stat.inference.MannWhitneyUTest;
+import org.apache.commons.math3.stat.inference.TTest;
+import org.apache.commons.math3.stat.inference.WilcoxonSignedRankTest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticalKernelsTest {
+    private final StatisticsScratch scratch = new StatisticsScratch();
+
+    /**
+     * @return beta values with two decimals, so the samples contain many ties
+     */
+    private static double[] betaValues(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Math.round(random.nextDouble() * 100) / 100.0;
+        }
+        return values;
+    }
+
+    @Test
+    @DisplayName("Test the kernels against commons-math on samples of different sizes, reusing one scratch")
+    void matchesCommonsMath() {
+        Random random = new Random(42);
+        for (int count : new int[]{2, 5, 30, 31, 200, 1000}) {
+            double[] values1 = betaValues(random, count);
+            double[] values2 = betaValues(random, count);
+
+            assertEquals(new TTest().pairedTTest(values1, values2),
+                    PairedTTest.pValue(values1, values2), 1e-12);
+            assertEquals(new TTest().tTest(values1, values2),
+                    WelchTTest.pValue(values1, values2), 1e-12);
+            assertEquals(new WilcoxonSignedRankTest().wilcoxonSignedRank(values1, values2),
+                    SignedRankTest.statistic(values1, values2, scratch), 1e-9);
+            assertEquals(new SpearmansCorrelation().correlation(values1, values2),
+                    SpearmanCorrelation.correlation(values1, values2, scratch), 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Test that identical and constant samples give the same edge values as commons-math")
+    void edgeCases() {
+        double[] values = {0.1, 0.5, 0.5, 0.9};
+        double[] constant = {0.3, 0.3, 0.3, 0.3};
+
+        assertTrue(Double.isNaN(PairedTTest.pValue(values, values)));
+        assertEquals(1.0, SpearmanCorrelation.correlation(values, values, scratch));
+        assertTrue(Double.isNaN(SpearmanCorrelation.correlation(values, constant, scratch)));
+        assertEquals(new WilcoxonSignedRankTest().wilcoxonSignedRank(values, constant),
+                SignedRankTest.statistic(values, constant, scratch));
+    }
+
+    @Test
+    @DisplayName("Test that too small samples are rejected like commons-math")
+    void tooSmall() {
+        assertThrows(NumberIsTooSmallException.class,
+                () -> PairedTTest.pValue(new double[]{0.1}, new double[]{0.2}));
+        assertThrows(NumberIsTooSmallException.class,
+                () -> WelchTTest.pValue(new double[]{0.1, 0.2}, new double[]{0.2}));
+    }
+
+    @Test
+    @DisplayName("Test the exact signed-rank p-value of a small sample without ties, as wilcox.test of R")
+    void signedRankExact() {
+        double[] values1 = {0.11, 0.22, 0.33, 0.44, 0.55};
+        double[] values2 = {0.1, 0.2, 0.3, 0.4, 0.5};
+        assertEquals(0.0625, SignedRankTest.pValue(values1, values2, scratch), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test that differences of 0 give the normal approximation, like R")
+    void signedRankZeros() {
+        // wilcox.test(values1, values2, paired = TRUE) gives V = 15, p-value = 0.05906 (exact p-value is 0.0625)
+        double[] values1 = {0.11, 0.22, 0.33, 0.44, 0.55, 0.6};
+        double[] values2 = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6};
+        assertEquals(0.05905822909053674, SignedRankTest.pValue(values1, values2, scratch), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test the normal approximation with tie correction, differences that only differ by rounding are ties")
+    void signedRankTies() {
+        double[] values1 = {0.3, 0.3, 0.4, 0.1, 0.5};
+        double[] values2 = {0.2, 0.2, 0.2, 0.4, 0.5};
+        assertEquals(0.8539232992870668, SignedRankTest.pValue(values1, values2, scratch), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test that ranking by counting gives the same p-value as ranking by sorting")
+    void signedRankCounting() {
+        Random random = new Random(7);
+        double[] values1 = betaValues(random, 5000);
+        double[] values2 = betaValues(random, 5000);
+
+        assertEquals(SignedRankTest.pValue(values1, values2, scratch, Integer.MAX_VALUE),
+                SignedRankTest.pValue(values1, values2, scratch, 0), 1e-12);
+        assertTrue(Double.isNaN(SignedRankTest.pValue(values1, values1, scratch)));
+    }
+
+    @Test
+    @DisplayName("Test that prepared samples give the same results as samples that are preprocessed per pair")
+    void preparedSamples() {
+        Random random = new Random(13);
+        PairContext pair = new PairContext();
+        StatisticalMethod[] methods = {new PairedTTestMethod(), new WelchTTestMethod(),
+                new SignedRankTestMethod(), new SpearmanCorrelationMethod(), new RankSumTestMethod()};
+        double[] values1 = betaValues(random, 300);
+        double[] values2 = betaValues(random, 300);
+        double[] expected = new double[methods.length];
+        pair.reset(values1, values2);
+        for (int method = 0; method < methods.length; method++) {
+            expected[method] = methods[method].compute(pair);
+        }
+
+        pair.reset(PreparedSample.prepare(values1, true), PreparedSample.prepare(values2, true));
+        for (int method = 0; method < methods.length; method++) {
+            assertEquals(expected[method], methods[method].compute(pair), 1e-12);
+        }
+        // Without prepared ranks the pair ranks the samples itself
+        pair.reset(PreparedSample.prepare(values1, false), PreparedSample.prepare(values2, false));
+        assertEquals(expected[3], methods[3].compute(pair), 1e-12);
+        pair.reset(PreparedSample.prepare(values1, true), PreparedSample.prepare(new double[]{0.1, 0.2}, true));
+        assertThrows(DimensionMismatchException.class, () -> new SpearmanCorrelationMethod().compute(pair));
+    }
+
+    @Test
+    @DisplayName("Test the rank-sum normal approximation with tie correction, as wilcox.test of R")
+    void rankSumTies() {
+        // wilcox.test(values1, values2, exact = FALSE, correct = FALSE) gives W = 4.5, p-value = 0.1688
+        PairContext pair = new PairContext();
+        pair.reset(new double[]{0.1, 0.2, 0.2, 0.3, 0.5}, new double[]{0.2, 0.4, 0.5, 0.6});
+        assertEquals(30, pair.getPooledTieSum(), 1e-12);
+        assertEquals(4.5, new RankSumTestMethod().statistic(pair), 1e-12);
+        assertEquals(0.16876122858514953, new RankSumTestMethod().compute(pair), 1e-12);
+    }
+
+    @Test
+    @DisplayName("Test that the methods give the same results through a shared pair context, reused for every pair")
+    void pairContext() {
+        Random random = new Random(11);
+        PairContext pair = new PairContext();
+        StatisticalMethod[] methods = {new PairedTTestMethod(), new WelchTTestMethod(),
+                new SignedRankTestMethod(), new SpearmanCorrelationMethod()};
+        for (int count : new int[]{200, 5, 30, 1000}) {
+            double[] values1 = betaValues(random, count);
+            double[] values2 = betaValues(random, count);
+            pair.reset(values1, values2);
+            double[] expected = {PairedTTest.pValue(values1, values2), WelchTTest.pValue(values1, values2),
+                    SignedRankTest.pValue(values1, values2, scratch),
+                    SpearmanCorrelation.correlation(values1, values2, scratch)};
+            // Run twice, the second time reading everything from the cache
+            for (int run = 0; run < 2; run++) {
+                for (int method = 0; method < methods.length; method++) {
+                    assertEquals(expected[method], methods[method].compute(pair), 1e-12);
+                }
+            }
+        }
+        pair.reset(new double[]{0.1, 0.2, 0.3}, new double[]{0.1, 0.2});
+        assertTrue(Double.isFinite(new WelchTTestMethod().compute(pair)));
+        assertThrows(DimensionMismatchException.class, () -> new PairedTTestMethod().compute(pair));
+        // Without ties the rank-sum test needs no tie correction, like commons-math
+        pair.reset(new double[]{0.1, 0.2, 0.3, 0.45}, new double[]{0.15, 0.25, 0.35});
+        assertEquals(new MannWhitneyUTest().mannWhitneyUTest(pair.getSample1(), pair.getSample2()),
+                new RankSumTestMethod().compute(pair), 1e-12);
+    }
+}
@@ -0,0 +1,177 @@
+package nl.bioinf.summarizing;
+
+import nl.bioinf.io.FilterFileWriter;
+import nl.bioinf.io.MethylationRowReader;
+import nl.bioinf.io.ProbeSummaryWriter;
+import nl.bioinf.model.MethylationArray;
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SummaryGeneratorTest {
+    private static final String[] SAMPLES = {"Sample0", "Sample1", "Sample2", "Sample3"};
+    // More than two chunks of rows
+    private static final int ROWS = 40000;
+    @TempDir
+    Path tempDir;
+
+    MethylationArray data;
+
+    @BeforeEach
+    void setup() {
+        Random random = new Random(16);
+        data = new MethylationArray();
+        data.setSamples(Arrays.asList(SAMPLES));
+        data.setHeader("id,gene,chr,Sample0", 3);
+        double[] row = new double[SAMPLES.length];
+        for (int i = 0; i < ROWS; i++) {
+            for (int sample = 0; sample < row.length; sample++) {
+                row[sample] = random.nextInt(20) == 0 ? Double.NaN : random.nextInt(1001) / 1000.0;
+            }
+            data.addData("cg" + i + ",GENE,1,", row);
+        }
+    }
+
+    @Test
+    @DisplayName("Tests the statistics of every sample against DescriptiveStatistics of commons-math")
+    void sampleStatistics() {
+        CohortSummary summary = SummaryGenerator.summarize(data, 4);
+        assertEquals(ROWS, summary.getRowCount());
+
+        for (int sample = 0; sample < SAMPLES.length; sample++) {
+            DescriptiveStatistics expected = new DescriptiveStatistics();
+            int naCount = 0;
+            for (double value : data.getSampleBetaValues(sample)) {
+                if (Double.isNaN(value)) {
+                    naCount++;
+                } else {
+                    expected.addValue(value);
+                }
+            }
+            RunningStatistics statistics = summary.getSampleStatistics(sample);
+            assertEquals(expected.getN(), statistics.getCount());
+            assertEquals(naCount, statistics.getNaCount());
+            assertEquals(expected.getMean(), statistics.getMean(), 1e-12);
+            assertEquals(expected.getVariance(), statistics.getVariance(), 1e-12);
+            assertEquals(expected.getMin(), statistics.getMin());
+            assertEquals(expected.getMax(), statistics.getMax());
+
+            // Nearest rank quantiles are exact for values with 3 decimals
+            double[] sorted = expected.getSortedValues();
+            BetaValueSketch sketch = summary.getSampleSketch(sample);
+            assertEquals(sorted[(int) Math.ceil(0.25 * sorted.length) - 1], sketch.getQuantile(0.25));
+            assertEquals(sorted[(int) Math.ceil(0.5 * sorted.length) - 1], sketch.getQuantile(0.5));
+            assertEquals(expected.getN(), Arrays.stream(sketch.getHistogram(20)).sum());
+        }
+    }
+
+    @Test
+    @DisplayName("Tests that the summary does not depend on the amount of threads")
+    void sameForAllThreadCounts() {
+        RunningStatistics single = SummaryGenerator.summarize(data, 1).getCohortStatistics();
+        RunningStatistics parallel = SummaryGenerator.summarize(data, 3).getCohortStatistics();
+
+        assertEquals(single.getCount(), parallel.getCount());
+        assertEquals(single.getMean(), parallel.getMean());
+        assertEquals(single.getVariance(), parallel.getVariance());
+    }
+
+    @Test
+    @DisplayName("Tests that values are counted in the histogram by the bin of the sketch they were rounded to")
+    void histogramBinEdges() {
+        BetaValueSketch sketch = new BetaValueSketch();
+        sketch.add(0.0994);
+        sketch.add(0.0996);
+        sketch.add(0.1);
+        sketch.add(1.0);
+
+        long[] histogram = sketch.getHistogram(20);
+        assertEquals(1, histogram[1]);
+        assertEquals(2, histogram[2]);
+        assertEquals(1, histogram[19]);
+    }
+
+    @Test
+    @DisplayName("Tests that NA values are left out of the average")
+    void averageWithoutNA() {
+        MethylationArray small = new MethylationArray();
+        small.setSamples(List.of("Sample0", "Sample1", "Sample2"));
+        small.setHeader("id,gene,chr,Sample0", 3);
+        small.addData("cg0,GENE,1,", new double[]{0.2, Double.NaN, 0.4});
+
+        RunningStatistics cohort = SummaryGenerator.summarize(small, 1).getCohortStatistics();
+        assertEquals(0.3, cohort.getMean(), 1e-12);
+        assertEquals(1, cohort.getNaCount());
+    }
+
+    @Test
+    @DisplayName("Tests that the summary of every probe is written in the order of the rows")
+    void probeSummary() throws IOException {
+        Path probeFile = tempDir.resolve("probes.csv");
+        try (ProbeSummaryWriter writer = new ProbeSummaryWriter(probeFile, data.getAnnotationHeader())) {
+            SummaryGenerator.summarize(data, 4, writer);
+        }
+
+        List<String> lines = Files.readAllLines(probeFile);
+        assertEquals(ROWS + 1, lines.size());
+        assertEquals("id,gene,chr,n,na_rate,mean,variance,min,median,max", lines.get(0));
+        for (int row : new int[]{0, 20000, ROWS - 1}) {
+            String[] fields = lines.get(row + 1).split(",");
+            assertEquals("cg" + row, fields[0]);
+
+            double[] values = Arrays.stream(data.getRowBetaValues(row)).filter(value -> !Double.isNaN(value))
+                    .toArray();
+            DescriptiveStatistics expected = new DescriptiveStatistics(values);
+            assertEquals(values.length, Integer.parseInt(fields[3]));
+            assertEquals(expected.getMean(), Double.parseDouble(fields[5]), 1e-12);
+            assertEquals(expected.getPercentile(50), Double.parseDouble(fields[8]), 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Tests that streaming the file gives the same summary and probes as summarizing the loaded data")
+    void streamingMatchesLoadedData() throws IOException {
+        Path inputFile = tempDir.resolve("input.csv");
+        FilterFileWriter.writeFile(data, inputFile, 3);
+        Path expectedProbes = tempDir.resolve("expected.csv");
+        Path streamedProbes = tempDir.resolve("streamed.csv");
+
+        CohortSummary expected;
+        try (ProbeSummaryWriter writer = new ProbeSummaryWriter(expectedProbes, data.getAnnotationHeader())) {
+            expected = SummaryGenerator.summarize(data, 1, writer);
+        }
+        CohortSummary streamed;
+        try (MethylationRowReader reader = new MethylationRowReader(inputFile, 3);
+             ProbeSummaryWriter writer = new ProbeSummaryWriter(streamedProbes, data.getAnnotationHeader())) {
+            streamed = SummaryGenerator.summarize(reader, 3, writer);
+        }
+
+        assertEquals(expected.getRowCount(), streamed.getRowCount());
+        assertEquals(expected.getCohortStatistics().getNaCount(), streamed.getCohortStatistics().getNaCount());
+        assertEquals(expected.getCohortStatistics().getMean(), streamed.getCohortStatistics().getMean());
+        assertEquals(expected.getCohortSketch().getQuantile(0.5), streamed.getCohortSketch().getQuantile(0.5));
+        assertEquals(Files.readAllLines(expectedProbes), Files.readAllLines(streamedProbes));
+    }
+
+    @Test
+    @DisplayName("Tests that invalid rows are reported while streaming")
+    void streamingInvalidRow() throws IOException {
+        Path inputFile = tempDir.resolve("input.csv");
+        Files.writeString(inputFile, "id,gene,chr,Sample0,Sample1\ncg0,GENE,1,0.5,0.2\ncg1,GENE,1,0.5\n");
+
+        try (MethylationRowReader reader = new MethylationRowReader(inputFile, 3)) {
+            assertThrows(IllegalArgumentException.class, () -> SummaryGenerator.summarize(reader, 2, null));
+        }
+    }
+}